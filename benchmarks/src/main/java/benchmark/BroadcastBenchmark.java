@@ -0,0 +1,96 @@
+package benchmark;
+
+import chess.ChessGame;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.openjdk.jmh.annotations.*;
+import server.websocket.ConnectionManager;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ConnectionManager.broadcast of a LOAD_GAME to everyone watching one game, while other games have their
+ * own players connected. Sessions are stand-ins that count the characters sent instead of writing to a
+ * socket, so this measures the server's own fan-out cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BroadcastBenchmark {
+    private static final int GAME_ID = 1;
+
+    /** Players and observers in the game being broadcast to */
+    @Param({"2", "16", "128"})
+    public int watchers;
+
+    /** Connections in other games, two per game */
+    @Param({"0", "1000"})
+    public int otherConnections;
+
+    private ConnectionManager connections;
+    private ServerMessage loadGame;
+    private long sent;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        connections = new ConnectionManager();
+        for (int i = 0; i < watchers; i++) {
+            connections.add("watcher" + i, GAME_ID, fakeSession());
+        }
+        for (int i = 0; i < otherConnections; i++) {
+            connections.add("player" + i, GAME_ID + 1 + i / 2, fakeSession());
+        }
+        loadGame = new LoadGameMessage(new ChessGame());
+    }
+
+    @Benchmark
+    public long broadcastLoadGame() throws IOException {
+        connections.broadcast(GAME_ID, null, loadGame);
+        return sent;
+    }
+
+    //An always open session whose sends just add the message length to the sent count
+    private Session fakeSession() {
+        RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("sendString") && args != null && args[0] instanceof String text) {
+                        sent += text.length();
+                        if (args.length > 1 && args[1] instanceof WriteCallback callback) {
+                            callback.writeSuccess();
+                        }
+                    }
+                    return method.getReturnType() == Future.class
+                            ? CompletableFuture.completedFuture(null) : defaultValue(method.getReturnType());
+                });
+        return (Session) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Session.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> true;
+                    case "getRemote" -> remote;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    case "toString" -> "FakeSession@" + Integer.toHexString(System.identityHashCode(proxy));
+                    default -> defaultValue(method.getReturnType());
+                });
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
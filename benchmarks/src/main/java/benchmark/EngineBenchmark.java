@@ -0,0 +1,132 @@
+package benchmark;
+
+import chess.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The rules engine calls the server makes on every move: listing moves, making a move and checking
+ * whether the game is over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"start", "kiwipete", "endgame"})
+    public String position;
+
+    private ChessGame game;
+    private ChessPosition[] squares;
+    private ChessGame checkmate;
+    private ChessGame stalemate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = Fen.parse(fen(position));
+        checkmate = Fen.parse(Positions.CHECKMATE);
+        stalemate = Fen.parse(Positions.STALEMATE);
+        squares = new ChessPosition[64];
+        for (int i = 0; i < squares.length; i++) {
+            squares[i] = new ChessPosition(i / 8 + 1, i % 8 + 1);
+        }
+    }
+
+    static String fen(String position) {
+        return switch (position) {
+            case "start" -> Fen.START;
+            case "kiwipete" -> Positions.KIWIPETE;
+            case "endgame" -> Positions.ENDGAME;
+            default -> throw new IllegalArgumentException("Unknown position " + position);
+        };
+    }
+
+    /** validMoves for every square of the board, which is what drawing highlighted moves costs */
+    @Benchmark
+    public void validMovesAllSquares(Blackhole blackhole) {
+        for (ChessPosition square : squares) {
+            Collection<ChessMove> moves = game.validMoves(square);
+            blackhole.consume(moves == null ? 0 : moves.size());
+        }
+    }
+
+    /** Checking for the end of the game on a position where it isn't over, so every move gets looked at */
+    @Benchmark
+    public boolean isInCheckmateOngoing() {
+        return game.isInCheckmate(game.getTeamTurn());
+    }
+
+    @Benchmark
+    public boolean isInStalemateOngoing() {
+        return game.isInStalemate(game.getTeamTurn());
+    }
+
+    /** What the server does after every move: check, mate and stalemate in one pass */
+    @Benchmark
+    public GameOutcome evaluate() {
+        return game.evaluate();
+    }
+
+    @Benchmark
+    public GameOutcome evaluateMated() {
+        return checkmate.evaluate();
+    }
+
+    @Benchmark
+    public boolean isInCheckmateMated() {
+        return checkmate.isInCheckmate(ChessGame.TeamColor.WHITE);
+    }
+
+    @Benchmark
+    public boolean isInStalemateStalemated() {
+        return stalemate.isInStalemate(ChessGame.TeamColor.BLACK);
+    }
+
+    /**
+     * makeMove changes the game, so each call gets a fresh copy of the position. The copy is made outside
+     * the timed part.
+     */
+    @State(Scope.Thread)
+    public static class MoveState {
+        @Param({"start", "kiwipete", "endgame"})
+        public String position;
+
+        ChessGame template;
+        ChessMove move;
+        ChessGame game;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            template = Fen.parse(fen(position));
+            //The first piece with a legal move, to keep the choice independent of how moves are ordered
+            for (int square = 0; square < 64 && move == null; square++) {
+                ChessPosition start = new ChessPosition(square / 8 + 1, square % 8 + 1);
+                ChessPiece piece = template.getBoard().getPiece(start);
+                if (piece != null && piece.getTeamColor() == template.getTeamTurn()) {
+                    Collection<ChessMove> moves = template.validMoves(start);
+                    if (!moves.isEmpty()) {
+                        move = moves.iterator().next();
+                    }
+                }
+            }
+        }
+
+        @Setup(Level.Invocation)
+        public void copyGame() {
+            game = new ChessGame();
+            game.setBoard(new ChessBoard(template.getBoard()));
+            game.setTeamTurn(template.getTeamTurn());
+        }
+    }
+
+    @Benchmark
+    public ChessGame makeMove(MoveState state) throws InvalidMoveException {
+        state.game.makeMove(state.move);
+        return state.game;
+    }
+}
@@ -0,0 +1,19 @@
+package benchmark;
+
+/**
+ * The positions the engine benchmarks run on, as FEN
+ */
+final class Positions {
+    /** Busy middlegame with castling, en passant, promotions and pins available */
+    static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    /** Sparse endgame, mostly long sliding moves */
+    static final String ENDGAME = "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1";
+    /** White to move is checkmated (back rank mate) */
+    static final String CHECKMATE = "6k1/5ppp/8/8/8/8/5PPP/3r2K1 w - - 0 1";
+    /** Black to move is stalemated */
+    static final String STALEMATE = "7k/5Q2/6K1/8/8/8/8/8 b - - 0 1";
+
+    private Positions() {
+
+    }
+}
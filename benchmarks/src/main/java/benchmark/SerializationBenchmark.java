@@ -0,0 +1,100 @@
+package benchmark;
+
+import chess.ChessGame;
+import chess.Fen;
+import chess.GameCodec;
+import com.google.gson.Gson;
+import org.openjdk.jmh.annotations.*;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.ServerMessage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gson round trips of what the server stores (ChessGame in the games table) and sends (LOAD_GAME after
+ * every move), which go through GameCodec, and the codec's binary and FEN forms on their own.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"start", "kiwipete", "endgame"})
+    public String position;
+
+    private final Gson gson = new Gson();
+    private ChessGame game;
+    private String gameJson;
+    private LoadGameMessage loadGame;
+    private String loadGameJson;
+    private byte[] gameBytes;
+    private String gameFen;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        game = Fen.parse(EngineBenchmark.fen(position));
+        gameJson = gson.toJson(game);
+        loadGame = new LoadGameMessage(game);
+        loadGameJson = gson.toJson(loadGame);
+        gameBytes = GameCodec.encode(game);
+        gameFen = Fen.format(game);
+    }
+
+    @Benchmark
+    public byte[] gameToBinary() {
+        return GameCodec.encode(game);
+    }
+
+    @Benchmark
+    public ChessGame gameFromBinary() {
+        return GameCodec.decode(gameBytes);
+    }
+
+    @Benchmark
+    public String gameToFen() {
+        return Fen.format(game);
+    }
+
+    @Benchmark
+    public ChessGame gameFromFen() {
+        return Fen.parse(gameFen);
+    }
+
+    @Benchmark
+    public String gameToJson() {
+        return gson.toJson(game);
+    }
+
+    @Benchmark
+    public ChessGame gameFromJson() {
+        return gson.fromJson(gameJson, ChessGame.class);
+    }
+
+    @Benchmark
+    public ChessGame gameRoundTrip() {
+        return gson.fromJson(gson.toJson(game), ChessGame.class);
+    }
+
+    /** How the server builds the text of a LOAD_GAME message */
+    @Benchmark
+    public String loadGameToString() {
+        return loadGame.toString();
+    }
+
+    /** How clients read a LOAD_GAME message, as a ServerMessage first to find its type, then as the message */
+    @Benchmark
+    public ChessGame loadGameFromJson() {
+        ServerMessage message = gson.fromJson(loadGameJson, ServerMessage.class);
+        if (message.getServerMessageType() != ServerMessage.ServerMessageType.LOAD_GAME) {
+            throw new IllegalStateException("Expected LOAD_GAME, got " + message.getServerMessageType());
+        }
+        return gson.fromJson(loadGameJson, LoadGameMessage.class).getGame();
+    }
+
+    @Benchmark
+    public ChessGame loadGameRoundTrip() {
+        return gson.fromJson(loadGame.toString(), LoadGameMessage.class).getGame();
+    }
+}
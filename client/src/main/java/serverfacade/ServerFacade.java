@@ -41,7 +41,7 @@ public class ServerFacade {
         return this.makeRequest("POST", path, new CreateGameRequest(gameName), GameData.class, authToken);
     }
 
-    public List<GameData> listGames(String authToken) throws ResponseException {
+    public List<GameSummary> listGames(String authToken) throws ResponseException {
         var path = "/game";
         return this.makeRequest("GET", path, null, ListGamesResult.class, authToken).games();
     }
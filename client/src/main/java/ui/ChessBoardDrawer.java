@@ -26,7 +26,7 @@ class ChessBoardDrawer {
 
             for (int col = 1; col <= 8; col++) {
                 int boardCol = isWhitePlayer ? col : (9 - col);
-                ChessPiece piece = board.getPiece(new ChessPosition(boardRow, boardCol));
+                ChessPiece piece = board.getPiece(ChessPosition.of(boardRow, boardCol));
                 boolean isLightSquare = (boardRow + boardCol) % 2 == 0;
                 boardString.append(isLightSquare ? SET_BG_COLOR_LIGHT_BROWN : SET_BG_COLOR_DARK_BROWN);
 
@@ -89,7 +89,7 @@ class ChessBoardDrawer {
 
             for (int col = 1; col <= 8; col++) {
                 int boardCol = isWhitePlayer ? col : (9 - col);
-                ChessPosition currentPos = new ChessPosition(boardRow, boardCol);
+                ChessPosition currentPos = ChessPosition.of(boardRow, boardCol);
                 ChessPiece piece = board.getPiece(currentPos);
 
                 String bgColor;
@@ -136,14 +136,14 @@ public class ChessClient {
             throw new ResponseException(400, "To list active games, simply type 'Listgames'");
         }
 
-        List<GameData> gameDataList = server.listGames(currentUser.authToken());
+        List<GameSummary> gameDataList = server.listGames(currentUser.authToken());
         if(gameDataList.isEmpty()){
             return String.format(SET_TEXT_COLOR_RED + SET_TEXT_BOLD +
                     "There are currently no active games! \n\n" + RESET_TEXT_BOLD_FAINT + "%s", help());
         }
 
         StringBuilder outputList = new StringBuilder();
-        for(GameData data : gameDataList){
+        for(GameSummary data : gameDataList){
             var whitePlayerString = (data.whiteUsername() == null) ?
                     SET_TEXT_COLOR_GREEN + "White player available!" : SET_TEXT_COLOR_LIGHT_GREY + data.whiteUsername();
             var blackPlayerString = (data.blackUsername() == null) ?
@@ -195,10 +195,10 @@ public class ChessClient {
         this.playerColor = requestedColor; // Store player color
         // Need game data for context, but rely on LOAD_GAME message for initial display
 
-        List<GameData> games = server.listGames(currentUser.authToken());
-        for(GameData game : games){
+        List<GameSummary> games = server.listGames(currentUser.authToken());
+        for(GameSummary game : games){
             if(game.gameID() == gameID){
-                activeChessGameData = game;
+                activeChessGameData = activeGame(game);
 //                state = State.GAMESTATE;
 //                return displayBoard(activeChessGameData, playerColor) + String.format("Game %d joined successfully!", gameID);
             }
@@ -246,17 +246,17 @@ public class ChessClient {
             throw new ResponseException(400, "Invalid Game ID format. Please enter a number.");
         }
 
-        List<GameData> games = server.listGames(currentUser.authToken());
-        for(GameData game : games){
+        List<GameSummary> games = server.listGames(currentUser.authToken());
+        for(GameSummary game : games){
             if(game.gameID() == gameID){
-                activeChessGameData = game;
+                activeChessGameData = activeGame(game);
                 state = State.OBSERVATION;
                 ws = new WebSocketFacade(serverUrl, notificationHandler);
                 ws.connect(currentUser.authToken(), gameID, null);
                 this.playerColor = null;
 
-                return ChessBoardDrawer.displayBoard(activeChessGameData.game().getBoard(), "white") +
-                        String.format(SET_TEXT_COLOR_GREEN + "Observing game %d", gameID);
+                //The game list doesn't carry boards, the LOAD_GAME sent on connect draws it
+                return String.format(SET_TEXT_COLOR_GREEN + "Observing game %d. Waiting for game state...", gameID);
             }
         }
         return String.format(SET_TEXT_COLOR_RED + "Sorry, game %d does not exist!", gameID);
@@ -359,6 +359,12 @@ public class ChessClient {
                 perspective, position, validMoves);
     }
 
+    //The board comes later, with the LOAD_GAME the server sends on connect
+    private static GameData activeGame(GameSummary summary) {
+        return new GameData(summary.gameID(), summary.whiteUsername(), summary.blackUsername(), summary.gameName(),
+                null, summary.status());
+    }
+
     public void updateActiveGame(ChessGame updatedGame) {
         if (this.activeChessGameData != null) {
             this.activeChessGameData = new GameData(
@@ -382,7 +388,7 @@ public class ChessClient {
         if (col < 1 || col > 8 || row < 1 || row > 8) {
             throw new IllegalArgumentException("Invalid position");
         }
-        return new ChessPosition(row, col);
+        return ChessPosition.of(row, col);
     }
 
     private ChessPiece.PieceType parsePromotionPiece(String piece) {
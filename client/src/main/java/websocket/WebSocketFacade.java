@@ -2,6 +2,8 @@ package websocket;
 
 import chess.ChessGame;
 import chess.ChessMove;
+import chess.GameCodec;
+import chess.InvalidMoveException;
 import com.google.gson.Gson;
 import exception.ResponseException;
 
@@ -18,6 +20,11 @@ public class WebSocketFacade extends Endpoint{
     Session session;
     NotificationHandler notificationHandler;
     private final Gson gson = new Gson();
+    //Our copy of the game, kept up to date with the moves the server sends. Only this class's message
+    //thread touches it, the UI is always handed a copy of its own
+    private ChessGame game;
+    private String authToken;
+    private Integer gameID;
 
     public WebSocketFacade(String url, NotificationHandler notificationHandler) throws ResponseException {
         try {
@@ -41,7 +48,13 @@ public class WebSocketFacade extends Endpoint{
                         ServerMessage specificMessageObject = null;
                         switch (messageType) {
                             case LOAD_GAME:
-                                specificMessageObject = gson.fromJson(message, LoadGameMessage.class);
+                                LoadGameMessage loadGame = gson.fromJson(message, LoadGameMessage.class);
+                                game = copy(loadGame.getGame());
+                                specificMessageObject = loadGame;
+                                break;
+                            case MOVE_APPLIED:
+                                //Passed on as the updated game, so the UI only has one kind of update to draw
+                                specificMessageObject = applyMove(gson.fromJson(message, MoveAppliedMessage.class));
                                 break;
                             case ERROR:
                                 specificMessageObject = gson.fromJson(message, ErrorMessage.class);
@@ -85,9 +98,60 @@ public class WebSocketFacade extends Endpoint{
         System.err.println("WebSocket error: " + thr.getMessage());
     }
 
+    /**
+     * Makes the move on our copy of the game. If the copy is behind or doesn't end up where the server's
+     * did, asks the server for the whole game instead
+     *
+     * @return the updated game to show, or null if there's nothing new until the server answers
+     */
+    private LoadGameMessage applyMove(MoveAppliedMessage moveApplied) throws ResponseException {
+        //Before the game arrives on connect or resync there's nothing to apply it to, and the game
+        //that's coming will have it. Likewise a full game sent after this move already has it
+        if (game == null || moveApplied.getSeq() <= game.getMoveCount()) {
+            return null;
+        }
+        if (moveApplied.getSeq() != game.getMoveCount() + 1) {
+            resync();
+            return null;
+        }
+        try {
+            game.makeMove(moveApplied.getMove());
+        } catch (InvalidMoveException e) {
+            resync();
+            return null;
+        }
+        if (game.getPositionKey() != moveApplied.getPositionHash()) {
+            resync();
+            return null;
+        }
+        return new LoadGameMessage(copy(game));
+    }
+
+    //ChessGame isn't thread-safe, working out valid moves changes the board in place for a moment
+    private static ChessGame copy(ChessGame game) {
+        return game == null ? null : GameCodec.decode(GameCodec.encode(game));
+    }
+
+    /**
+     * Asks the server for the whole game, replacing our copy when it arrives
+     */
+    public void resync() throws ResponseException {
+        //Anything that arrives before the answer can't be trusted to apply
+        game = null;
+        try {
+            send(new ResyncCommand(authToken, gameID));
+        } catch (IOException e) {
+            throw new ResponseException(500, "Send Failed (Resync): " + e.getMessage());
+        }
+    }
+
     public void connect(String authToken, int gameID, ChessGame.TeamColor playerColor) throws ResponseException{
+        this.authToken = authToken;
+        this.gameID = gameID;
+        this.game = null;
         try{
-            var command = new ConnectCommand(authToken, gameID, playerColor);
+            //We keep our own copy of the game, so the server only needs to send each move
+            var command = new ConnectCommand(authToken, gameID, playerColor, true);
             send(command);
         } catch (IOException e){
             throw new ResponseException(500, "Send Failed (Connect): " + e.getMessage());
@@ -3,6 +3,7 @@ package client;
 import exception.ResponseException;
 import model.AuthData;
 import model.GameData;
+import model.GameSummary;
 import org.junit.jupiter.api.*;
 import server.Server;
 import serverfacade.ServerFacade;
@@ -177,7 +178,7 @@ public class ServerFacadeTests {
         AuthData auth = facade.register(
                 "IAmBatman", "alfredTheButtlerWithTwoTs", "batBob@batmail.com");
         facade.createGame(auth.authToken(), "BatGame");
-        List<GameData> gameData = facade.listGames(auth.authToken());
+        List<GameSummary> gameData = facade.listGames(auth.authToken());
         assertEquals(1, gameData.size());
     }
 
@@ -189,7 +190,7 @@ public class ServerFacadeTests {
         GameData gameData2 = facade.createGame(auth.authToken(), "BatGameButDarkAndBrooding");
         GameData gameData3 = facade.createGame(auth.authToken(), "BatmanLivesHere");
         GameData gameData4 = facade.createGame(auth.authToken(), "BatCave");
-        List<GameData> gameList = facade.listGames(auth.authToken());
+        List<GameSummary> gameList = facade.listGames(auth.authToken());
         assertEquals(4, gameList.size());
         assertEquals(1, gameData.gameID());
         assertEquals(2, gameData2.gameID());
@@ -202,7 +203,7 @@ public class ServerFacadeTests {
     void listGamesNoGamesPositive() throws Exception{
         AuthData auth = facade.register(
                 "IAmBatman", "alfredTheButtlerWithTwoTs", "batBob@batmail.com");
-        List<GameData> gameData = facade.listGames(auth.authToken());
+        List<GameSummary> gameData = facade.listGames(auth.authToken());
         assertEquals(0, gameData.size());
     }
 
@@ -214,7 +215,7 @@ public class ServerFacadeTests {
         facade.createGame(auth.authToken(), "BatGameButDarkAndBrooding");
         facade.createGame(auth.authToken(), "BatmanLivesHere");
         facade.createGame(auth.authToken(), "BatCave");
-        List<GameData> gameData = facade.listGames(auth.authToken());
+        List<GameSummary> gameData = facade.listGames(auth.authToken());
         assertEquals(4, gameData.size());
     }
 
@@ -242,7 +243,7 @@ public class ServerFacadeTests {
                 "BatmansHomie", "hahaGoodPassword", "IKnowBatman@gmail");
         facade.joinGame(authP2.authToken(),2, "black");
 
-        List<GameData> gameDataList = facade.listGames(authP1.authToken());
+        List<GameSummary> gameDataList = facade.listGames(authP1.authToken());
         assertEquals("IAmBatman", gameDataList.get(1).whiteUsername());
         assertEquals("BatmansHomie", gameDataList.get(1).blackUsername());
     }
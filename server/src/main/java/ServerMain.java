@@ -5,11 +5,12 @@ import server.Server;
 
 public class ServerMain {
     public static void main(String[] args) {
-        var piece = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
+        var piece = ChessPiece.of(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
         System.out.println("♕ 240 Chess Server: " + piece);
 
         Server server = new Server();
         server.run(8080);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
 
     }
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * A bounded, in-memory cache of auth token lookups, so the lookup every request and WebSocket command
+ * starts with doesn't have to go to MySQL.
+ * <p>
+ * Valid tokens are kept for {@code ttlMillis}, and tokens that turned out not to exist for
+ * {@code negativeTtlMillis}, so a client retrying with a bad token doesn't cost a query each time. Once
+ * {@code maxSize} tokens are cached the least recently used one is dropped. Logging out and clearing the
+ * database invalidate entries straight away, the TTL only bounds how long a token deleted by another server
+ * on the same database can still be used here.
+ */
+public class AuthTokenCache {
+
+    /**
+     * Looks a token up in the database
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * @return the token's auth data, or null if the token doesn't exist
+         */
+        AuthData load(String token) throws DataAccessException;
+    }
+
+    /**
+     * Cache settings, read from db.properties with {@link #fromProperties}
+     *
+     * @param maxSize           most tokens cached at once, 0 turns the cache off
+     * @param ttlMillis         how long a valid token is served from memory
+     * @param negativeTtlMillis how long a token that doesn't exist is remembered as invalid, 0 for never
+     */
+    public record Config(int maxSize, long ttlMillis, long negativeTtlMillis) {
+        public static final Config DEFAULT = new Config(10_000, 60_000, 5_000);
+
+        public Config {
+            if (maxSize < 0 || ttlMillis < 0 || negativeTtlMillis < 0) {
+                throw new IllegalArgumentException("Auth cache settings can't be negative, got maxSize=" + maxSize
+                        + " ttlMillis=" + ttlMillis + " negativeTtlMillis=" + negativeTtlMillis);
+            }
+        }
+
+        /**
+         * Reads the {@code db.authCache.*} keys, using {@link #DEFAULT} for any that are missing
+         */
+        public static Config fromProperties(Properties props) {
+            return new Config(
+                    Integer.parseInt(props.getProperty("db.authCache.maxSize", String.valueOf(DEFAULT.maxSize))),
+                    Long.parseLong(props.getProperty("db.authCache.ttlMillis", String.valueOf(DEFAULT.ttlMillis))),
+                    Long.parseLong(props.getProperty("db.authCache.negativeTtlMillis",
+                            String.valueOf(DEFAULT.negativeTtlMillis))));
+        }
+    }
+
+    /**
+     * A snapshot of the cache's counters
+     *
+     * @param hits         lookups answered with a cached valid token
+     * @param negativeHits lookups answered with a cached invalid token
+     * @param misses       lookups that went to the database
+     * @param evictions    entries dropped to stay under maxSize
+     * @param size         entries cached now, including expired ones not yet dropped
+     */
+    public record Stats(long hits, long negativeHits, long misses, long evictions, int size) {
+    }
+
+    //auth is null for a token that doesn't exist
+    private record Entry(AuthData auth, long expiresAt) {
+    }
+
+    private final Config config;
+    private final LongSupplier nanoClock;
+    private final Map<String, Entry> entries;
+    //Bumped by every invalidation, so a lookup that raced with one doesn't cache what it read before it
+    private long generation;
+    private long hits;
+    private long negativeHits;
+    private long misses;
+    private long evictions;
+
+    public AuthTokenCache(Config config) {
+        this(config, System::nanoTime);
+    }
+
+    AuthTokenCache(Config config, LongSupplier nanoClock) {
+        this.config = config;
+        this.nanoClock = nanoClock;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > config.maxSize()) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * @return the token's auth data from memory if it's cached and fresh, otherwise from the loader (which is
+     * called without holding the cache's lock), or null if the token doesn't exist
+     * @throws DataAccessException if the loader fails, nothing is cached then
+     */
+    public AuthData get(String token, Loader loader) throws DataAccessException {
+        long startGeneration;
+        synchronized (this) {
+            Entry entry = entries.get(token);
+            if (entry != null) {
+                if (entry.expiresAt() - nanoClock.getAsLong() > 0) {
+                    if (entry.auth() == null) {
+                        negativeHits++;
+                    } else {
+                        hits++;
+                    }
+                    return entry.auth();
+                }
+                entries.remove(token);
+            }
+            misses++;
+            startGeneration = generation;
+        }
+
+        AuthData auth = loader.load(token);
+        synchronized (this) {
+            if (generation == startGeneration) {
+                cache(token, auth, auth == null ? config.negativeTtlMillis() : config.ttlMillis());
+            }
+        }
+        return auth;
+    }
+
+    /**
+     * Caches a token that was just created
+     */
+    public synchronized void put(AuthData auth) {
+        cache(auth.authToken(), auth, config.ttlMillis());
+    }
+
+    //Called holding the cache's lock
+    private void cache(String token, AuthData auth, long ttlMillis) {
+        if (ttlMillis > 0 && config.maxSize() > 0) {
+            entries.put(token, new Entry(auth, nanoClock.getAsLong() + TimeUnit.MILLISECONDS.toNanos(ttlMillis)));
+        }
+    }
+
+    /**
+     * Forgets a token, for when it is deleted
+     */
+    public synchronized void invalidate(String token) {
+        generation++;
+        entries.remove(token);
+    }
+
+    /**
+     * Forgets every token, for when the database is cleared
+     */
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+    }
+
+    public synchronized Stats stats() {
+        return new Stats(hits, negativeHits, misses, evictions, entries.size());
+    }
+}
@@ -0,0 +1,487 @@
+package dataaccess;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed-bounds pool of database connections, so a request reuses an open MySQL session instead of
+ * connecting and logging in again.
+ * <p>
+ * {@link #getConnection()} hands out a wrapper around a pooled connection. Closing the wrapper (as the DAOs'
+ * try-with-resources blocks do) puts the real connection back in the pool instead of closing it. Connections
+ * that sat idle for a while are checked with {@link Connection#isValid} before being handed out, idle
+ * connections over the minimum are closed after {@code idleTimeoutMillis}, and a connection kept out longer
+ * than {@code leakThresholdMillis} is reported along with where it was taken from.
+ * <p>
+ * Borrowers first take one of {@code maxSize} permits from a fair semaphore, which they hold until the
+ * connection is returned. During a burst the waiters are served in arrival order instead of newcomers
+ * grabbing connections ahead of them, and a virtual thread waiting for a permit just parks.
+ */
+public class ConnectionPool implements AutoCloseable {
+
+    /**
+     * Opens a new real connection for the pool
+     */
+    @FunctionalInterface
+    public interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * Pool settings, read from db.properties with {@link #fromProperties}
+     *
+     * @param minSize                  connections kept open even when idle
+     * @param maxSize                  most connections open at once, borrowers wait when all are in use
+     * @param maxWaitMillis            how long a borrower waits for a free connection before giving up
+     * @param idleTimeoutMillis        idle connections over minSize are closed after this long
+     * @param validationIntervalMillis a connection idle for longer than this is validated before it is reused
+     * @param leakThresholdMillis      a connection kept out longer than this is reported as a leak, 0 for never
+     */
+    public record Config(int minSize, int maxSize, long maxWaitMillis, long idleTimeoutMillis,
+                         long validationIntervalMillis, long leakThresholdMillis) {
+        public static final Config DEFAULT = new Config(2, 10, 5_000, 300_000, 5_000, 30_000);
+
+        public Config {
+            if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+                throw new IllegalArgumentException("Pool sizes must satisfy 0 <= min <= max and max >= 1, got min="
+                        + minSize + " max=" + maxSize);
+            }
+        }
+
+        /**
+         * Reads the {@code db.pool.*} keys, using {@link #DEFAULT} for any that are missing
+         */
+        public static Config fromProperties(Properties props) {
+            return new Config(
+                    Integer.parseInt(props.getProperty("db.pool.minSize", String.valueOf(DEFAULT.minSize))),
+                    Integer.parseInt(props.getProperty("db.pool.maxSize", String.valueOf(DEFAULT.maxSize))),
+                    Long.parseLong(props.getProperty("db.pool.maxWaitMillis", String.valueOf(DEFAULT.maxWaitMillis))),
+                    Long.parseLong(props.getProperty("db.pool.idleTimeoutMillis",
+                            String.valueOf(DEFAULT.idleTimeoutMillis))),
+                    Long.parseLong(props.getProperty("db.pool.validationIntervalMillis",
+                            String.valueOf(DEFAULT.validationIntervalMillis))),
+                    Long.parseLong(props.getProperty("db.pool.leakThresholdMillis",
+                            String.valueOf(DEFAULT.leakThresholdMillis))));
+        }
+    }
+
+    /**
+     * A snapshot of the pool's counters
+     *
+     * @param open           connections currently open, idle or in use
+     * @param idle           open connections waiting in the pool
+     * @param inUse          connections handed out and not yet returned
+     * @param waiting        threads waiting for a connection right now
+     * @param created        connections opened since the pool started
+     * @param destroyed      connections closed since the pool started (evicted, failed validation or broken)
+     * @param borrowed       total successful getConnection calls
+     * @param timeouts       getConnection calls that gave up waiting
+     * @param leaks          connections reported as leaked
+     * @param totalWaitNanos total time borrowers spent waiting for a connection
+     */
+    public record Stats(int open, int idle, int inUse, int waiting, long created, long destroyed, long borrowed,
+                        long timeouts, long leaks, long totalWaitNanos) {
+        public double averageWaitMillis() {
+            return borrowed == 0 ? 0 : totalWaitNanos / 1e6 / borrowed;
+        }
+    }
+
+    private static final long MAINTENANCE_INTERVAL_MILLIS = 1_000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+    private final ConnectionFactory factory;
+    private final Config config;
+    //One per connection the pool can have out, taken before a borrower touches the lock
+    private final Semaphore permits;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition available = lock.newCondition();
+    //Most recently returned at the head, so busy periods reuse the same warm connections
+    private final ArrayDeque<IdleConnection> idle = new ArrayDeque<>();
+    private final Map<PooledConnection, Boolean> inUse = new IdentityHashMap<>();
+    private final ScheduledExecutorService maintenance;
+
+    private int open;
+    private int waiting;
+    private boolean closed;
+    private long created;
+    private long destroyed;
+    private long borrowed;
+    private long timeouts;
+    private long leaks;
+    private long totalWaitNanos;
+
+    private record IdleConnection(Connection connection, long idleSince) {
+    }
+
+    public ConnectionPool(ConnectionFactory factory, Config config) {
+        this.factory = factory;
+        this.config = config;
+        this.permits = new Semaphore(config.maxSize(), true);
+        this.maintenance = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-maintenance");
+            thread.setDaemon(true);
+            return thread;
+        });
+        maintenance.scheduleWithFixedDelay(this::maintain, MAINTENANCE_INTERVAL_MILLIS, MAINTENANCE_INTERVAL_MILLIS,
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Takes a connection from the pool, opening a new one if none are idle and the pool isn't full, or
+     * waiting up to {@code maxWaitMillis} for one to be returned. Close the connection to give it back.
+     *
+     * @throws DataAccessException if no connection could be had in time or a new one couldn't be opened
+     */
+    public Connection getConnection() throws DataAccessException {
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(config.maxWaitMillis());
+        acquirePermit(deadline);
+        try {
+            return borrow(start, deadline);
+        } catch (DataAccessException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void acquirePermit(long deadline) throws DataAccessException {
+        try {
+            if (!permits.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                lock.lock();
+                try {
+                    timeouts++;
+                } finally {
+                    lock.unlock();
+                }
+                throw new DataAccessException("Timed out after " + config.maxWaitMillis()
+                        + "ms waiting for a database connection, all " + config.maxSize() + " are in use");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DataAccessException("Interrupted waiting for a database connection");
+        }
+    }
+
+    //With a permit held there's normally a connection to have, the wait below only covers the moment
+    //between a connection being given back and its permit being released
+    private Connection borrow(long start, long deadline) throws DataAccessException {
+        while (true) {
+            Connection connection = null;
+            boolean openNew = false;
+            lock.lock();
+            try {
+                while (!closed && idle.isEmpty() && open >= config.maxSize()) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) {
+                        timeouts++;
+                        throw new DataAccessException("Timed out after " + config.maxWaitMillis()
+                                + "ms waiting for a database connection, all " + open + " are in use");
+                    }
+                    waiting++;
+                    try {
+                        available.awaitNanos(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new DataAccessException("Interrupted waiting for a database connection");
+                    } finally {
+                        waiting--;
+                    }
+                }
+                if (closed) {
+                    throw new DataAccessException("The connection pool has been shut down");
+                }
+                IdleConnection next = idle.pollFirst();
+                if (next != null) {
+                    if (System.currentTimeMillis() - next.idleSince() < config.validationIntervalMillis()) {
+                        return lend(next.connection(), start);
+                    }
+                    connection = next.connection();
+                } else {
+                    //Claim the slot now so other borrowers can't overfill the pool while this one connects
+                    open++;
+                    openNew = true;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            //Network work happens outside the lock so it doesn't hold up other borrowers
+            if (openNew) {
+                connection = openConnection();
+            } else if (!isValid(connection)) {
+                destroy(connection);
+                continue;
+            }
+            lock.lock();
+            try {
+                return lend(connection, start);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    //Called with the lock held
+    private Connection lend(Connection connection, long start) {
+        long waited = System.nanoTime() - start;
+        borrowed++;
+        totalWaitNanos += waited;
+        PooledConnection pooled = new PooledConnection(connection);
+        inUse.put(pooled, Boolean.TRUE);
+        return (Connection) Proxy.newProxyInstance(ConnectionPool.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, pooled);
+    }
+
+    private Connection openConnection() throws DataAccessException {
+        try {
+            Connection connection = factory.create();
+            lock.lock();
+            try {
+                created++;
+            } finally {
+                lock.unlock();
+            }
+            return connection;
+        } catch (SQLException | RuntimeException e) {
+            lock.lock();
+            try {
+                open--;
+                available.signal();
+            } finally {
+                lock.unlock();
+            }
+            throw new DataAccessException("Unable to connect to the database: " + e.getMessage());
+        }
+    }
+
+    private boolean isValid(Connection connection) {
+        try {
+            return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    //Gives a returned connection back to the pool, or closes it if it's broken or the pool is shut down
+    private void release(PooledConnection pooled) {
+        Connection connection = pooled.connection;
+        boolean reusable = resetForReuse(connection);
+        try {
+            lock.lock();
+            try {
+                inUse.remove(pooled);
+                if (reusable && !closed) {
+                    idle.addFirst(new IdleConnection(connection, System.currentTimeMillis()));
+                    available.signal();
+                    return;
+                }
+            } finally {
+                lock.unlock();
+            }
+            destroy(connection);
+        } finally {
+            permits.release();
+        }
+    }
+
+    //Undoes anything the borrower left behind so the next borrower gets a clean connection
+    private boolean resetForReuse(Connection connection) {
+        try {
+            if (connection.isClosed()) {
+                return false;
+            }
+            if (!connection.getAutoCommit()) {
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+            connection.clearWarnings();
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void destroy(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            System.err.println("Error closing pooled database connection: " + e.getMessage());
+        }
+        lock.lock();
+        try {
+            open--;
+            destroyed++;
+            available.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes idle connections that have timed out, tops the pool back up to the minimum, and reports leaks.
+     * Runs once a second on the maintenance thread.
+     */
+    void maintain() {
+        List<Connection> expired = new ArrayList<>();
+        List<PooledConnection> leaked = new ArrayList<>();
+        int missing;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            long now = System.currentTimeMillis();
+            //The oldest idle connections are at the tail
+            while (open - expired.size() > config.minSize() && !idle.isEmpty()
+                    && now - idle.peekLast().idleSince() >= config.idleTimeoutMillis()) {
+                expired.add(idle.pollLast().connection());
+            }
+            if (config.leakThresholdMillis() > 0) {
+                for (PooledConnection pooled : inUse.keySet()) {
+                    if (!pooled.reportedLeak && now - pooled.borrowedAt >= config.leakThresholdMillis()) {
+                        pooled.reportedLeak = true;
+                        leaks++;
+                        leaked.add(pooled);
+                    }
+                }
+            }
+            missing = Math.max(0, config.minSize() - (open - expired.size()));
+            open += missing;
+        } finally {
+            lock.unlock();
+        }
+
+        for (Connection connection : expired) {
+            destroy(connection);
+        }
+        for (PooledConnection pooled : leaked) {
+            System.err.println("Possible database connection leak: a connection has been in use for over "
+                    + config.leakThresholdMillis() + "ms. It was taken from:");
+            pooled.borrowedFrom.printStackTrace();
+        }
+        for (int i = 0; i < missing; i++) {
+            try {
+                Connection connection = openConnection();
+                lock.lock();
+                try {
+                    idle.addLast(new IdleConnection(connection, System.currentTimeMillis()));
+                    available.signal();
+                } finally {
+                    lock.unlock();
+                }
+            } catch (DataAccessException e) {
+                //openConnection gave the slot back, try again on the next run
+                System.err.println("Unable to top up the connection pool: " + e.getMessage());
+                lock.lock();
+                try {
+                    open -= missing - i - 1;
+                } finally {
+                    lock.unlock();
+                }
+                break;
+            }
+        }
+    }
+
+    public Stats stats() {
+        lock.lock();
+        try {
+            return new Stats(open, idle.size(), inUse.size(), waiting + permits.getQueueLength(), created, destroyed, borrowed, timeouts,
+                    leaks, totalWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Closes every idle connection and stops handing out new ones. Connections still in use are closed
+     * when they are returned.
+     */
+    @Override
+    public void close() {
+        List<IdleConnection> toClose;
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            toClose = new ArrayList<>(idle);
+            idle.clear();
+            available.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        maintenance.shutdownNow();
+        //Wakes everyone waiting for a permit, so they see the pool is closed instead of timing out. Half the
+        //maximum leaves room for the permits of connections still out to be released later
+        permits.release(Integer.MAX_VALUE / 2);
+        for (IdleConnection connection : toClose) {
+            destroy(connection.connection());
+        }
+    }
+
+    /**
+     * The borrower's view of a pooled connection. close() returns it to the pool, and after that every
+     * other call fails the way it would on a closed connection.
+     */
+    private final class PooledConnection implements InvocationHandler {
+        private final Connection connection;
+        private final long borrowedAt = System.currentTimeMillis();
+        private final Throwable borrowedFrom;
+        private boolean reportedLeak;
+        private final AtomicBoolean returned = new AtomicBoolean();
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.borrowedFrom = config.leakThresholdMillis() > 0 ? new Throwable("Connection borrowed here") : null;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    //Only the first close gives it back, even when two threads race to close it
+                    if (returned.compareAndSet(false, true)) {
+                        release(this);
+                    }
+                    return null;
+                case "isClosed":
+                    return returned.get() || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "Pooled" + connection;
+                default:
+                    break;
+            }
+            if (returned.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+            try {
+                return method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+    }
+}
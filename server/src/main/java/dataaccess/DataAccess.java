@@ -0,0 +1,154 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * The storage the server runs on: one DAO of each kind, plus the registry that keeps games being played in
+ * memory in front of the game DAO. The services and the WebSocket handler get theirs from here, so the
+ * whole server can be switched between backends in one place.
+ */
+public final class DataAccess {
+    /**
+     * System property naming the backend the server stores data in: mysql, memory or file. When it isn't set
+     * the db.storage key in db.properties is used, and MySQL when that isn't set either.
+     */
+    public static final String STORAGE_PROPERTY = "chess.storage";
+    /** Default size the file backend's journal grows to before it is compacted */
+    public static final long DEFAULT_COMPACT_BYTES = 64L * 1024 * 1024;
+
+    private final UserDAO userDAO;
+    private final AuthDAO authDAO;
+    private final GameDAO gameDAO;
+    private final LiveGameRegistry liveGames;
+    private final Runnable onStart;
+    private final Runnable onShutdown;
+
+    private DataAccess(UserDAO userDAO, AuthDAO authDAO, GameDAO gameDAO, LiveGameRegistry liveGames,
+                       Runnable onStart, Runnable onShutdown) {
+        this.userDAO = userDAO;
+        this.authDAO = authDAO;
+        this.gameDAO = gameDAO;
+        this.liveGames = liveGames;
+        this.onStart = onStart;
+        this.onShutdown = onShutdown;
+    }
+
+    /**
+     * The file backend is set up from db.properties: db.file.dir is the directory its files go in (chess-data
+     * by default), db.file.sync forces each journal write to disk when true (false by default), and
+     * db.file.compactBytes is how big the journal gets before it is compacted.
+     *
+     * @return the backend named by the chess.storage system property, or by db.storage in db.properties
+     * @throws IllegalArgumentException if it names a backend that doesn't exist
+     */
+    public static DataAccess fromConfig() {
+        String storage = System.getProperty(STORAGE_PROPERTY);
+        if (storage == null) {
+            storage = DbProperties.get("db.storage", "mysql");
+        }
+        return switch (storage) {
+            case "mysql" -> mySQL();
+            case "memory" -> inMemory();
+            case "file" -> files(Path.of(DbProperties.get("db.file.dir", "chess-data")),
+                    Boolean.parseBoolean(DbProperties.get("db.file.sync", "false")),
+                    Long.parseLong(DbProperties.get("db.file.compactBytes",
+                            String.valueOf(DEFAULT_COMPACT_BYTES))));
+            default -> throw new IllegalArgumentException("Unknown storage backend '" + storage
+                    + "', expected mysql, memory or file");
+        };
+    }
+
+    /**
+     * @return the shared MySQL DAOs and registry, set up from db.properties. Shutting it down logs how the
+     * auth token cache and the connection pool did.
+     */
+    public static DataAccess mySQL() {
+        MySQLAuthDAO authDAO = MySQLAuthDAO.getInstance();
+        return new DataAccess(MySQLUserDAO.getInstance(), authDAO, MySQLGameDAO.getInstance(),
+                LiveGameRegistry.getInstance(), DatabaseManager::initializeDatabase, () -> {
+                    AuthTokenCache.Stats stats = authDAO.cacheStats();
+                    System.out.printf("Auth token cache: %d hits, %d known-bad hits, %d misses, %d evictions, "
+                            + "%d tokens cached%n", stats.hits(), stats.negativeHits(), stats.misses(),
+                            stats.evictions(), stats.size());
+                    DatabaseManager.shutdown();
+                });
+    }
+
+    /**
+     * @return a new, empty in-memory backend. Nothing is saved, and db.properties isn't needed.
+     */
+    public static DataAccess inMemory() {
+        GameDAO games = new MemoryGameDAO();
+        return new DataAccess(new MemoryUserDAO(), new MemoryAuthDAO(), games,
+                new LiveGameRegistry(games, LiveGameRegistry.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                        LiveGameRegistry.DEFAULT_IDLE_EVICT_MILLIS, LiveGameRegistry.DEFAULT_SNAPSHOT_INTERVAL),
+                () -> { }, () -> { });
+    }
+
+    /**
+     * Keeps everything in files in the directory: games in games.dat, a memory-mapped file with a fixed-size
+     * record per game, and users, tokens and moves in journal.log. Nothing but the JDK is needed. The files
+     * are read when the backend starts, which creates them if they're missing.
+     *
+     * @param sync         force each journal write to disk, so changes survive a power cut and not just a
+     *                     crash of the server, at the cost of a disk flush per write
+     * @param compactBytes how big the journal gets before it is rewritten to hold just the current state
+     */
+    public static DataAccess files(Path directory, boolean sync, long compactBytes) {
+        FileJournal journal = new FileJournal(directory.resolve("journal.log"), sync, compactBytes);
+        FileUserDAO users = new FileUserDAO(journal);
+        FileAuthDAO tokens = new FileAuthDAO(journal);
+        FileGameDAO games = new FileGameDAO(directory.resolve("games.dat"), journal);
+        return new DataAccess(users, tokens, games,
+                new LiveGameRegistry(games, LiveGameRegistry.DEFAULT_FLUSH_INTERVAL_MILLIS,
+                        LiveGameRegistry.DEFAULT_IDLE_EVICT_MILLIS, LiveGameRegistry.DEFAULT_SNAPSHOT_INTERVAL),
+                () -> {
+                    try {
+                        journal.open(List.of(users, tokens, games));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException("Unable to open the files in " + directory, e);
+                    }
+                },
+                () -> {
+                    try {
+                        journal.close();
+                    } catch (IOException e) {
+                        System.err.println("Error closing the files in " + directory + ": " + e.getMessage());
+                    }
+                });
+    }
+
+    public UserDAO userDAO() {
+        return userDAO;
+    }
+
+    public AuthDAO authDAO() {
+        return authDAO;
+    }
+
+    public GameDAO gameDAO() {
+        return gameDAO;
+    }
+
+    public LiveGameRegistry liveGames() {
+        return liveGames;
+    }
+
+    /**
+     * Gets the backend ready for use, creating the database and tables, or the files, if they're missing
+     */
+    public void start() {
+        onStart.run();
+    }
+
+    /**
+     * Saves the games still waiting to be written, then lets go of the backend's resources
+     */
+    public void shutdown() {
+        liveGames.shutdown();
+        onShutdown.run();
+    }
+}
@@ -8,39 +8,54 @@ public class DatabaseManager {
     private static final String USER;
     private static final String PASSWORD;
     private static final String CONNECTION_URL;
+    private static final ConnectionPool.Config POOL_CONFIG;
+    private static final AuthTokenCache.Config AUTH_CACHE_CONFIG;
+    //Created on first use, after createDatabase has made sure the database exists
+    private static ConnectionPool pool;
 
     /*
-     * Load the database information for the db.properties file.
+     * Load the database information for the db.properties file. Besides the connection settings it can
+     * set up the connection pool with db.pool.minSize, db.pool.maxSize, db.pool.maxWaitMillis,
+     * db.pool.idleTimeoutMillis, db.pool.validationIntervalMillis and db.pool.leakThresholdMillis
+     * (see ConnectionPool.Config for what they mean and their defaults), and the auth token cache with
+     * db.authCache.maxSize, db.authCache.ttlMillis and db.authCache.negativeTtlMillis (see AuthTokenCache.Config).
+     * The connection settings may be left out when db.storage picks a backend other than MySQL (see DataAccess).
+     * The other backends don't load this class, so they run without a db.properties at all.
      */
     static {
         try {
-            try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream("db.properties")) {
-                if (propStream == null) {
-                    throw new Exception("Unable to load db.properties");
-                }
-                Properties props = new Properties();
-                props.load(propStream);
-                DATABASE_NAME = props.getProperty("db.name");
-                USER = props.getProperty("db.user");
-                PASSWORD = props.getProperty("db.password");
-
-                var host = props.getProperty("db.host");
-                var port = Integer.parseInt(props.getProperty("db.port"));
-                CONNECTION_URL = String.format("jdbc:mysql://%s:%d", host, port);
-            }
+            Properties props = DbProperties.require();
+            DATABASE_NAME = props.getProperty("db.name");
+            USER = props.getProperty("db.user");
+            PASSWORD = props.getProperty("db.password");
+
+            var host = props.getProperty("db.host");
+            var port = props.getProperty("db.port");
+            //Lets a JDBC batch go to the server in one round trip instead of one per statement
+            CONNECTION_URL = host == null || port == null ? null : String.format(
+                    "jdbc:mysql://%s:%d?rewriteBatchedStatements=true", host, Integer.parseInt(port));
+            POOL_CONFIG = ConnectionPool.Config.fromProperties(props);
+            AUTH_CACHE_CONFIG = AuthTokenCache.Config.fromProperties(props);
         } catch (Exception ex) {
             throw new RuntimeException("unable to process db.properties. " + ex.getMessage());
         }
     }
 
+    static AuthTokenCache.Config authCacheConfig() {
+        return AUTH_CACHE_CONFIG;
+    }
+
     /**
      * Creates the database if it does not already exist.
      */
     static void createDatabase() throws DataAccessException {
+        if (CONNECTION_URL == null) {
+            throw new DataAccessException("db.properties has no db.host and db.port to connect to MySQL with");
+        }
         try {
             var statement = "CREATE DATABASE IF NOT EXISTS " + DATABASE_NAME;
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
-            try (var preparedStatement = conn.prepareStatement(statement)) {
+            try (var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
+                 var preparedStatement = conn.prepareStatement(statement)) {
                 preparedStatement.executeUpdate();
             }
         } catch (SQLException e) {
@@ -49,9 +64,10 @@ public class DatabaseManager {
     }
 
     /**
-     * Create a connection to the database and sets the catalog based upon the
-     * properties specified in db.properties. Connections to the database should
-     * be short-lived, and you must close the connection when you are done with it.
+     * Gets a connection to the database from the connection pool, with the catalog
+     * set based upon the properties specified in db.properties. Connections to the
+     * database should be short-lived, and you must close the connection when you are
+     * done with it, which returns it to the pool.
      * The easiest way to do that is with a try-with-resource block.
      * <br/>
      * <code>
@@ -61,12 +77,48 @@ public class DatabaseManager {
      * </code>
      */
     static Connection getConnection() throws DataAccessException {
+        return pool().getConnection();
+    }
+
+    private static synchronized ConnectionPool pool() {
+        if (pool == null) {
+            pool = new ConnectionPool(DatabaseManager::openConnection, POOL_CONFIG);
+        }
+        return pool;
+    }
+
+    private static Connection openConnection() throws SQLException {
+        if (CONNECTION_URL == null) {
+            throw new SQLException("db.properties has no db.host and db.port to connect to MySQL with");
+        }
+        var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
         try {
-            var conn = DriverManager.getConnection(CONNECTION_URL, USER, PASSWORD);
             conn.setCatalog(DATABASE_NAME);
-            return conn;
         } catch (SQLException e) {
-            throw new DataAccessException(e.getMessage());
+            conn.close();
+            throw e;
+        }
+        return conn;
+    }
+
+    /**
+     * @return the connection pool's counters, all zero if nothing has used the database yet
+     */
+    public static synchronized ConnectionPool.Stats poolStats() {
+        return pool == null ? new ConnectionPool.Stats(0, 0, 0, 0, 0, 0, 0, 0, 0, 0) : pool.stats();
+    }
+
+    /**
+     * Logs the pool's counters and closes the pooled connections. The next database call starts a new pool.
+     */
+    public static synchronized void shutdown() {
+        if (pool != null) {
+            ConnectionPool.Stats stats = poolStats();
+            System.out.printf("Connection pool: %d borrowed, %.1f ms average wait, %d timeouts, %d leaks, "
+                            + "%d connections opened, %d closed%n", stats.borrowed(), stats.averageWaitMillis(),
+                    stats.timeouts(), stats.leaks(), stats.created(), stats.destroyed());
+            pool.close();
+            pool = null;
         }
     }
 
@@ -110,38 +162,81 @@ public class DatabaseManager {
                     black_player VARCHAR(50),
                     game_name VARCHAR(50),
                     chess_game TEXT NOT NULL,
+                    snapshot_ply INT NOT NULL DEFAULT 0,
                     status VARCHAR(10) NOT NULL DEFAULT 'ACTIVE',
+                    INDEX idx_games_status (status, game_id),
+                    INDEX idx_games_white_player (white_player, game_id),
+                    INDEX idx_games_black_player (black_player, game_id),
                     FOREIGN KEY (white_player) REFERENCES users(username),
                     FOREIGN KEY (black_player) REFERENCES users(username)
                 )
             """);
 
+            //Databases made before the move log have a games table without snapshot_ply
+            try (ResultSet rs = conn.getMetaData().getColumns(DATABASE_NAME, null, "games", "snapshot_ply")) {
+                if (!rs.next()) {
+                    stmt.executeUpdate("ALTER TABLE games ADD COLUMN snapshot_ply INT NOT NULL DEFAULT 0");
+                }
+            }
+
+            //The game list filters on these, databases made before it have only the foreign key indexes
+            addIndexIfMissing(conn, stmt, "games", "idx_games_status", "status, game_id");
+            addIndexIfMissing(conn, stmt, "games", "idx_games_white_player", "white_player, game_id");
+            addIndexIfMissing(conn, stmt, "games", "idx_games_black_player", "black_player, game_id");
+
+            //Move log, chess_game in games is a snapshot and the moves after it are replayed on load
+            stmt.executeUpdate("""
+                CREATE TABLE IF NOT EXISTS game_moves (
+                    game_id INT NOT NULL,
+                    ply INT NOT NULL,
+                    move SMALLINT NOT NULL,
+                    PRIMARY KEY (game_id, ply),
+                    FOREIGN KEY (game_id) REFERENCES games(game_id) ON DELETE CASCADE
+                )
+            """);
+
         } catch (SQLException | DataAccessException e){
             throw new RuntimeException("Error creating tables: " + e.getMessage());
         }
     }
 
+    private static void addIndexIfMissing(Connection conn, Statement stmt, String table, String index,
+                                          String columns) throws SQLException {
+        try (ResultSet rs = conn.getMetaData().getIndexInfo(DATABASE_NAME, null, table, false, false)) {
+            while (rs.next()) {
+                if (index.equalsIgnoreCase(rs.getString("INDEX_NAME"))) {
+                    return;
+                }
+            }
+        }
+        stmt.executeUpdate("ALTER TABLE " + table + " ADD INDEX " + index + " (" + columns + ")");
+    }
+
     public static void clear() throws DataAccessException {
         try (Connection conn = DatabaseManager.getConnection();
              Statement stmt = conn.createStatement()) {
 
             // Disable foreign key checks to avoid constraint violations
             stmt.executeUpdate("SET FOREIGN_KEY_CHECKS = 0");
-
-            // Clear tables in the correct order
-            stmt.executeUpdate("DELETE FROM auth_tokens");
-            stmt.executeUpdate("DELETE FROM games");
-            stmt.executeUpdate("DELETE FROM users");
-
-            // Reset auto-increment values if needed
-            stmt.executeUpdate("ALTER TABLE users AUTO_INCREMENT = 1");
-            stmt.executeUpdate("ALTER TABLE games AUTO_INCREMENT = 1");
-
-            // Re-enable foreign key checks
-            stmt.executeUpdate("SET FOREIGN_KEY_CHECKS = 1");
+            try {
+                // Clear tables in the correct order
+                stmt.executeUpdate("DELETE FROM auth_tokens");
+                stmt.executeUpdate("DELETE FROM game_moves");
+                stmt.executeUpdate("DELETE FROM games");
+                stmt.executeUpdate("DELETE FROM users");
+
+                // Reset auto-increment values if needed
+                stmt.executeUpdate("ALTER TABLE users AUTO_INCREMENT = 1");
+                stmt.executeUpdate("ALTER TABLE games AUTO_INCREMENT = 1");
+            } finally {
+                // Re-enable foreign key checks even if a statement failed, the connection goes back to the pool
+                stmt.executeUpdate("SET FOREIGN_KEY_CHECKS = 1");
+            }
 
         } catch (SQLException e) {
             throw new DataAccessException("Error clearing tables: " + e.getMessage());
+        } finally {
+            MySQLAuthDAO.getInstance().invalidateCache();
         }
     }
 
@@ -0,0 +1,64 @@
+package dataaccess;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Properties;
+
+/**
+ * The settings in db.properties, read the first time one is asked for. The file is only needed to reach
+ * MySQL: without it every other setting takes its default, so the memory and file backends run without one.
+ */
+final class DbProperties {
+    static final String RESOURCE = "db.properties";
+
+    //null until the file has been looked for
+    private static Properties properties;
+    private static boolean found;
+
+    private DbProperties() {
+    }
+
+    /**
+     * @return the value for the key, or the default if it isn't set or there is no db.properties
+     */
+    static String get(String key, String defaultValue) {
+        return properties().getProperty(key, defaultValue);
+    }
+
+    /**
+     * @return every setting in db.properties
+     * @throws IllegalStateException if there is no db.properties
+     */
+    static Properties require() {
+        Properties props = properties();
+        if (!found) {
+            throw new IllegalStateException("Unable to load " + RESOURCE);
+        }
+        return props;
+    }
+
+    private static synchronized Properties properties() {
+        if (properties == null) {
+            Properties loaded = load(RESOURCE);
+            found = loaded != null;
+            properties = found ? loaded : new Properties();
+        }
+        return properties;
+    }
+
+    /**
+     * @return the properties in the classpath resource, or null if there is no such resource
+     */
+    static Properties load(String resource) {
+        try (var propStream = Thread.currentThread().getContextClassLoader().getResourceAsStream(resource)) {
+            if (propStream == null) {
+                return null;
+            }
+            Properties props = new Properties();
+            props.load(propStream);
+            return props;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read " + resource, e);
+        }
+    }
+}
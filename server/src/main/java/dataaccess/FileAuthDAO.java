@@ -0,0 +1,80 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Auth tokens for the file backend: kept in memory like {@link MemoryAuthDAO}, with every change written to
+ * the journal first, so users stay logged in across a restart.
+ */
+public class FileAuthDAO extends MemoryAuthDAO implements FileJournal.Participant {
+    private static final int CREATE = 4;
+    private static final int DELETE = 5;
+    private static final int CLEAR = 6;
+
+    private final FileJournal journal;
+
+    FileAuthDAO(FileJournal journal) {
+        this.journal = journal;
+    }
+
+    private static byte[] createEntry(AuthData authData) {
+        return FileJournal.entry(CREATE, out -> {
+            out.writeUTF(authData.authToken());
+            out.writeUTF(authData.username());
+        });
+    }
+
+    @Override
+    public AuthData createAuth(String username) throws DataAccessException {
+        AuthData authData = newToken(username);
+        journal.append(createEntry(authData), () -> put(authData));
+        return authData;
+    }
+
+    @Override
+    public void deleteAuth(String token) throws DataAccessException {
+        //Checked first so bad logouts don't fill the journal
+        if (!exists(token)) {
+            throw new DataAccessException("Auth token not found");
+        }
+        journal.append(FileJournal.entry(DELETE, out -> out.writeUTF(token)), () -> super.deleteAuth(token));
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        journal.append(FileJournal.entry(CLEAR, out -> { }), super::clear);
+    }
+
+    @Override
+    public boolean replay(int type, DataInputStream in) throws IOException {
+        try {
+            switch (type) {
+                case CREATE -> put(new AuthData(in.readUTF(), in.readUTF()));
+                case DELETE -> {
+                    String token = in.readUTF();
+                    if (exists(token)) {
+                        super.deleteAuth(token);
+                    }
+                }
+                case CLEAR -> super.clear();
+                default -> {
+                    return false;
+                }
+            }
+        } catch (DataAccessException e) {
+            throw new IOException(e.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public void checkpoint(List<byte[]> entries) {
+        for (AuthData authData : tokens()) {
+            entries.add(createEntry(authData));
+        }
+    }
+}
@@ -0,0 +1,491 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import chess.Move;
+import model.GameData;
+import model.GameStatus;
+import model.GameSummary;
+import model.ListGamesRequest;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Games for the file backend. Each game has a fixed-size record in a memory-mapped file, at an offset worked
+ * out from its ID, holding its players, name, status and a {@link GameCodec} snapshot. The move log is kept in
+ * memory and in the journal, and reading a game replays the moves made after its snapshot, the same as the
+ * MySQL DAO.
+ * <p>
+ * A record is written to the journal before it is written to the mapped file, so a record left half written
+ * by a crash is put back when the journal is replayed. The mapped file is forced to disk whenever the journal
+ * is compacted, which is what lets the compacted journal leave out the records and the moves their
+ * snapshots cover.
+ * <p>
+ * Listing games reads the records in place, starting at the cursor's record, without decoding any boards.
+ */
+public class FileGameDAO implements GameDAO, FileJournal.Participant {
+    /** Bytes per game record */
+    static final int RECORD_BYTES = 2048;
+    /** Longest game name or username a record can hold, in UTF-8 bytes */
+    static final int MAX_NAME_BYTES = 128;
+
+    private static final int RECORD = 7;
+    private static final int MOVES = 8;
+    private static final int CLEAR = 9;
+
+    //"CHSG"
+    private static final int MAGIC = 0x43485347;
+    private static final int FILE_VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int INITIAL_RECORDS = 64;
+    //One mapping can't be bigger than 2GB
+    private static final int MAX_RECORDS = (Integer.MAX_VALUE - HEADER_BYTES) / RECORD_BYTES;
+
+    //Record layout: used flag, status, snapshot ply, snapshot length, then name, white and black as a length
+    //(-1 for none) and UTF-8 bytes, then the snapshot
+    private static final int USED = 0;
+    private static final int STATUS = 1;
+    private static final int SNAPSHOT_PLY = 2;
+    private static final int SNAPSHOT_LENGTH = 6;
+    private static final int STRINGS = 8;
+
+    private static final GameStatus[] STATUSES = GameStatus.values();
+
+    private record Record(int gameID, String gameName, String whiteUsername, String blackUsername,
+                          GameStatus status, int snapshotPly, byte[] snapshot) {
+        GameSummary summary() {
+            return new GameSummary(gameID, whiteUsername, blackUsername, gameName, status);
+        }
+    }
+
+    private record Snapshot(byte[] bytes, int ply) {
+    }
+
+    private final Path path;
+    private final FileJournal journal;
+    //Reads hold the read lock, writes and growing the file hold the write lock
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private FileChannel channel;
+    private volatile MappedByteBuffer records;
+    private int capacity;
+    private int nextGameID = 1;
+    private final Set<String> gameNames = ConcurrentHashMap.newKeySet();
+    //gameID -> ply -> move, the move log
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, ChessMove>> moveLogs =
+            new ConcurrentHashMap<>();
+
+    FileGameDAO(Path path, FileJournal journal) {
+        this.path = path;
+        this.journal = journal;
+    }
+
+    @Override
+    public void open() throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        if (channel.size() == 0) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(FILE_VERSION)
+                    .putInt(RECORD_BYTES).flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+        map(Math.max(INITIAL_RECORDS, (int) ((channel.size() - HEADER_BYTES) / RECORD_BYTES)));
+        if (records.getInt(0) != MAGIC || records.getInt(4) != FILE_VERSION || records.getInt(8) != RECORD_BYTES) {
+            throw new IOException(path + " isn't a version " + FILE_VERSION + " game file");
+        }
+        for (int gameID = 1; gameID <= capacity; gameID++) {
+            if (used(gameID)) {
+                gameNames.add(read(gameID, false).gameName());
+                nextGameID = gameID + 1;
+            }
+        }
+    }
+
+    //Maps room for the records, growing the file if it's smaller
+    private void map(int recordCount) throws IOException {
+        records = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_BYTES + (long) recordCount * RECORD_BYTES);
+        capacity = recordCount;
+    }
+
+    private void ensureCapacity(int gameID) throws DataAccessException {
+        if (gameID <= capacity) {
+            return;
+        }
+        if (gameID > MAX_RECORDS) {
+            throw new DataAccessException("Error: the game file is full");
+        }
+        try {
+            map((int) Math.min(MAX_RECORDS, Math.max((long) capacity * 2, gameID)));
+        } catch (IOException e) {
+            throw new DataAccessException("Error growing " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static int offset(int gameID) {
+        return HEADER_BYTES + (gameID - 1) * RECORD_BYTES;
+    }
+
+    private boolean used(int gameID) {
+        return gameID >= 1 && gameID <= capacity && records.get(offset(gameID) + USED) != 0;
+    }
+
+    //Reads the record in place, the snapshot only if it's wanted
+    private Record read(int gameID, boolean withSnapshot) {
+        MappedByteBuffer buffer = records;
+        int offset = offset(gameID);
+        int position = offset + STRINGS;
+        String[] strings = new String[3];
+        for (int i = 0; i < strings.length; i++) {
+            short length = buffer.getShort(position);
+            position += 2;
+            if (length >= 0) {
+                byte[] bytes = new byte[length];
+                buffer.get(position, bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+                position += length;
+            }
+        }
+        byte[] snapshot = null;
+        if (withSnapshot) {
+            snapshot = new byte[buffer.getShort(offset + SNAPSHOT_LENGTH)];
+            buffer.get(position, snapshot);
+        }
+        return new Record(gameID, strings[0], strings[1], strings[2], STATUSES[buffer.get(offset + STATUS)],
+                buffer.getInt(offset + SNAPSHOT_PLY), snapshot);
+    }
+
+    //The record's bytes, or null if the names and snapshot don't fit
+    private static byte[] encode(Record record) {
+        byte[][] strings = {utf8(record.gameName()), utf8(record.whiteUsername()), utf8(record.blackUsername())};
+        int size = STRINGS + record.snapshot().length;
+        for (byte[] string : strings) {
+            size += 2 + (string == null ? 0 : string.length);
+        }
+        if (size > RECORD_BYTES) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.put((byte) 1).put((byte) record.status().ordinal()).putInt(record.snapshotPly())
+                .putShort((short) record.snapshot().length);
+        for (byte[] string : strings) {
+            if (string == null) {
+                buffer.putShort((short) -1);
+            } else {
+                buffer.putShort((short) string.length).put(string);
+            }
+        }
+        return buffer.put(record.snapshot()).array();
+    }
+
+    private static byte[] utf8(String value) {
+        return value == null ? null : value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void checkName(String name) throws DataAccessException {
+        if (name != null && utf8(name).length > MAX_NAME_BYTES) {
+            throw new DataAccessException("Error: names can be at most " + MAX_NAME_BYTES + " bytes");
+        }
+    }
+
+    /**
+     * Journals the records in one write, then writes each to its place in the mapped file. The caller holds
+     * the write lock.
+     */
+    private void write(List<Record> updates) throws DataAccessException {
+        List<byte[]> entries = new ArrayList<>(updates.size());
+        List<byte[]> encoded = new ArrayList<>(updates.size());
+        for (Record record : updates) {
+            byte[] bytes = encode(record);
+            if (bytes == null) {
+                throw new DataAccessException("Error: game " + record.gameID() + " doesn't fit in a record");
+            }
+            encoded.add(bytes);
+            entries.add(FileJournal.entry(RECORD, out -> {
+                out.writeInt(record.gameID());
+                out.writeShort(bytes.length);
+                out.write(bytes);
+            }));
+        }
+        journal.append(entries, () -> {
+            for (int i = 0; i < updates.size(); i++) {
+                put(updates.get(i).gameID(), encoded.get(i));
+            }
+        });
+    }
+
+    private void put(int gameID, byte[] bytes) throws DataAccessException {
+        ensureCapacity(gameID);
+        records.put(offset(gameID), bytes);
+        gameNames.add(read(gameID, false).gameName());
+        nextGameID = Math.max(nextGameID, gameID + 1);
+    }
+
+    @Override
+    public List<GameSummary> listGameSummaries(ListGamesRequest request, int maxRows) {
+        List<GameSummary> list = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            int first = request.after() == null ? 1 : Math.max(1, request.after() + 1);
+            for (int gameID = first; gameID < nextGameID; gameID++) {
+                if (!used(gameID)) {
+                    continue;
+                }
+                GameSummary summary = read(gameID, false).summary();
+                if (request.matches(summary)) {
+                    list.add(summary);
+                    if (list.size() == maxRows) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return list;
+    }
+
+    @Override
+    public GameData createGame(String gameName) throws DataAccessException {
+        checkName(gameName);
+        ChessGame newGame = new ChessGame();
+        lock.writeLock().lock();
+        try {
+            if (gameNames.contains(gameName)) {
+                throw new DataAccessException("Game with name '" + gameName + "' already exists.");
+            }
+            int gameID = nextGameID;
+            write(List.of(new Record(gameID, gameName, null, null, GameStatus.ACTIVE, 0, GameCodec.encode(newGame))));
+            return new GameData(gameID, null, null, gameName, newGame, GameStatus.ACTIVE);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        Record record;
+        lock.readLock().lock();
+        try {
+            if (!used(gameID)) {
+                throw new DataAccessException("Game with ID " + gameID + " not found.");
+            }
+            record = read(gameID, true);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return load(record);
+    }
+
+    //Decodes the snapshot and replays the moves logged after it
+    private GameData load(Record record) throws DataAccessException {
+        ChessGame game = GameCodec.decode(record.snapshot());
+        ConcurrentSkipListMap<Integer, ChessMove> log = moveLogs.get(record.gameID());
+        if (log != null) {
+            for (ChessMove move : log.tailMap(record.snapshotPly(), false).values()) {
+                try {
+                    game.makeMove(move);
+                } catch (InvalidMoveException e) {
+                    throw new DataAccessException("Game " + record.gameID() + " has a bad move in its history: "
+                            + e.getMessage());
+                }
+            }
+        }
+        return new GameData(record.gameID(), record.whiteUsername(), record.blackUsername(), record.gameName(),
+                game, record.status());
+    }
+
+    private static byte[] movesEntry(Collection<LoggedMove> moves) {
+        return FileJournal.entry(MOVES, out -> {
+            out.writeInt(moves.size());
+            for (LoggedMove move : moves) {
+                out.writeInt(move.gameID());
+                out.writeInt(move.ply());
+                out.writeShort(Move.encode(move.move()));
+            }
+        });
+    }
+
+    @Override
+    public void appendMoves(Collection<LoggedMove> moves) throws DataAccessException {
+        if (moves.isEmpty()) {
+            return;
+        }
+        journal.append(movesEntry(moves), () -> logMoves(moves));
+    }
+
+    private void logMoves(Collection<LoggedMove> moves) {
+        for (LoggedMove move : moves) {
+            moveLogs.computeIfAbsent(move.gameID(), id -> new ConcurrentSkipListMap<>())
+                    .putIfAbsent(move.ply(), move.move());
+        }
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        checkName(game.whiteUsername());
+        checkName(game.blackUsername());
+        Snapshot snapshot = snapshot(game.game());
+        lock.writeLock().lock();
+        try {
+            if (!used(game.gameID())) {
+                throw new DataAccessException("Game update failed: No game found with ID " + game.gameID());
+            }
+            Record stored = read(game.gameID(), true);
+            write(List.of(withSnapshot(new Record(stored.gameID(), stored.gameName(), game.whiteUsername(),
+                    game.blackUsername(), stored.status(), stored.snapshotPly(), stored.snapshot()), snapshot)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void updateChessGames(Collection<GameData> updates) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            List<Record> snapshotted = new ArrayList<>(updates.size());
+            for (GameData game : updates) {
+                if (used(game.gameID())) {
+                    snapshotted.add(withSnapshot(read(game.gameID(), true), snapshot(game.game())));
+                }
+            }
+            if (!snapshotted.isEmpty()) {
+                write(snapshotted);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //The record with the new snapshot, or as it was if the snapshot doesn't fit. The move log still has
+    //the moves, so nothing is lost, the game just takes longer to load.
+    private static Record withSnapshot(Record record, Snapshot snapshot) {
+        Record updated = new Record(record.gameID(), record.gameName(), record.whiteUsername(),
+                record.blackUsername(), record.status(), snapshot.ply(), snapshot.bytes());
+        return encode(updated) == null ? record : updated;
+    }
+
+    //Moves change a live game while holding its lock, so encode under it to never save half a move
+    private static Snapshot snapshot(ChessGame game) {
+        synchronized (game) {
+            return new Snapshot(GameCodec.encode(game), game.getMoveCount());
+        }
+    }
+
+    @Override
+    public void updateGameStatus(int gameID, GameStatus status) throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            if (!used(gameID)) {
+                throw new DataAccessException("Game status update failed: No game found with ID " + gameID);
+            }
+            Record stored = read(gameID, true);
+            write(List.of(new Record(gameID, stored.gameName(), stored.whiteUsername(), stored.blackUsername(),
+                    status, stored.snapshotPly(), stored.snapshot())));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        lock.writeLock().lock();
+        try {
+            journal.append(FileJournal.entry(CLEAR, out -> { }), this::erase);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Cuts the file back to its header and maps fresh, zeroed records
+    private void erase() throws DataAccessException {
+        try {
+            records = null;
+            channel.truncate(HEADER_BYTES);
+            map(INITIAL_RECORDS);
+        } catch (IOException e) {
+            throw new DataAccessException("Error clearing " + path + ": " + e.getMessage());
+        }
+        nextGameID = 1;
+        gameNames.clear();
+        moveLogs.clear();
+    }
+
+    @Override
+    public boolean replay(int type, DataInputStream in) throws IOException {
+        try {
+            switch (type) {
+                case RECORD -> {
+                    int gameID = in.readInt();
+                    byte[] bytes = new byte[in.readUnsignedShort()];
+                    in.readFully(bytes);
+                    put(gameID, bytes);
+                }
+                case MOVES -> {
+                    int count = in.readInt();
+                    List<LoggedMove> moves = new ArrayList<>(count);
+                    for (int i = 0; i < count; i++) {
+                        moves.add(new LoggedMove(in.readInt(), in.readInt(), Move.toChessMove(in.readShort())));
+                    }
+                    logMoves(moves);
+                }
+                case CLEAR -> erase();
+                default -> {
+                    return false;
+                }
+            }
+        } catch (DataAccessException e) {
+            throw new IOException(e.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public void checkpoint(List<byte[]> entries) {
+        //The records aren't in the compacted journal, so they must be on disk before it replaces the old one
+        records.force();
+        //Moves a game's snapshot already covers are on disk now too, so neither the journal nor memory
+        //needs them. No change is being applied while the journal compacts, so the records hold still.
+        moveLogs.entrySet().removeIf(log -> {
+            int gameID = log.getKey();
+            if (used(gameID)) {
+                log.getValue().headMap(records.getInt(offset(gameID) + SNAPSHOT_PLY), true).clear();
+            }
+            return log.getValue().isEmpty();
+        });
+        for (Map.Entry<Integer, ConcurrentSkipListMap<Integer, ChessMove>> log : moveLogs.entrySet()) {
+            List<LoggedMove> moves = new ArrayList<>();
+            log.getValue().forEach((ply, move) -> moves.add(new LoggedMove(log.getKey(), ply, move)));
+            entries.add(movesEntry(moves));
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            records.force();
+            records = null;
+            channel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package dataaccess;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.CRC32;
+
+/**
+ * The append-only log behind the file backend. Every change a file DAO makes is written here before it is
+ * applied, and opening the store replays the log, so whatever was written before a crash comes back.
+ * <p>
+ * An entry is its length, a CRC32 of the rest and a type byte, then the DAO's own fields. Replay stops at
+ * the first entry that is cut short or fails its checksum, the tail a crash mid-write leaves behind.
+ * <p>
+ * The log is rewritten from the DAOs' current state when the store opens and closes, and whenever it grows
+ * past the compaction size and to twice what the last rewrite left, so it holds one entry per live user,
+ * token and unsnapshotted move rather than every change ever made, and a large state isn't rewritten on
+ * every change.
+ */
+final class FileJournal {
+    /**
+     * A DAO that keeps its changes in the journal
+     */
+    interface Participant {
+        /**
+         * Called before the journal is replayed
+         */
+        default void open() throws IOException {
+        }
+
+        /**
+         * Applies an entry read back from the journal
+         *
+         * @return false if the entry type isn't this DAO's
+         */
+        boolean replay(int type, DataInputStream in) throws IOException;
+
+        /**
+         * Adds entries that rebuild the DAO's current state, for the compacted journal. Anything kept
+         * outside the journal must be on disk once this returns.
+         */
+        void checkpoint(List<byte[]> entries) throws IOException;
+
+        default void close() throws IOException {
+        }
+    }
+
+    /**
+     * A change to apply once its entry is written
+     */
+    interface Change {
+        void apply() throws DataAccessException;
+    }
+
+    /**
+     * Writes an entry's fields after its type byte
+     */
+    interface Fields {
+        void write(DataOutputStream out) throws IOException;
+    }
+
+    //length and CRC32
+    private static final int HEADER_BYTES = 8;
+
+    private final Path path;
+    private final boolean sync;
+    private final long compactBytes;
+    //Changes hold the read lock from writing their entry until they're applied, compaction takes the
+    //write lock so it never sees an entry that isn't applied yet
+    private final ReentrantReadWriteLock compaction = new ReentrantReadWriteLock();
+    private List<Participant> participants = List.of();
+    private FileChannel channel;
+    //Size of the journal the last compaction wrote
+    private volatile long compactedSize;
+
+    /**
+     * @param sync         force every write to the disk before the change is applied, so it survives a
+     *                     power cut and not just the server crashing
+     * @param compactBytes rewrite the journal once it grows past this size, and has at least doubled since
+     *                     it was last rewritten
+     */
+    FileJournal(Path path, boolean sync, long compactBytes) {
+        this.path = path;
+        this.sync = sync;
+        this.compactBytes = compactBytes;
+    }
+
+    /**
+     * @return an entry of the type with the fields written by {@code fields}
+     */
+    static byte[] entry(int type, Fields fields) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(type);
+            fields.write(out);
+        } catch (IOException e) {
+            //Writing to memory doesn't fail
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a string that may be null
+     */
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    /**
+     * Opens the participants, replays the journal into them and compacts it
+     */
+    void open(List<Participant> participants) throws IOException {
+        compaction.writeLock().lock();
+        try {
+            this.participants = List.copyOf(participants);
+            Files.createDirectories(path.toAbsolutePath().getParent());
+            for (Participant participant : participants) {
+                participant.open();
+            }
+            if (Files.exists(path)) {
+                replay();
+            }
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            compactLocked();
+        } finally {
+            compaction.writeLock().unlock();
+        }
+    }
+
+    private void replay() throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 crc = new CRC32();
+        int end = 0;
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int length = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (length < 1 || length > buffer.remaining()) {
+                break;
+            }
+            byte[] body = new byte[length];
+            buffer.get(body);
+            crc.reset();
+            crc.update(body);
+            if ((int) crc.getValue() != checksum) {
+                break;
+            }
+            apply(body);
+            end = buffer.position();
+        }
+        if (end < buffer.limit()) {
+            System.err.println("Ignoring " + (buffer.limit() - end) + " damaged bytes at the end of " + path);
+        }
+    }
+
+    private void apply(byte[] body) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(body, 1, body.length - 1));
+        for (Participant participant : participants) {
+            if (participant.replay(body[0], in)) {
+                return;
+            }
+        }
+        throw new IOException("Unknown journal entry type " + body[0] + " in " + path);
+    }
+
+    /**
+     * Writes the entries, then applies the change
+     *
+     * @throws DataAccessException if the entries couldn't be written, the change isn't applied then
+     */
+    void append(List<byte[]> entries, Change change) throws DataAccessException {
+        compaction.readLock().lock();
+        try {
+            write(entries);
+            change.apply();
+        } finally {
+            compaction.readLock().unlock();
+        }
+        compactIfLarge();
+    }
+
+    void append(byte[] entry, Change change) throws DataAccessException {
+        append(List.of(entry), change);
+    }
+
+    private void write(List<byte[]> entries) throws DataAccessException {
+        ByteBuffer buffer = frame(entries);
+        //Entries from different DAOs go out one batch at a time
+        synchronized (this) {
+            if (channel == null) {
+                throw new DataAccessException("Error: the file store isn't open");
+            }
+            long position = -1;
+            try {
+                position = channel.size();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer, position + buffer.position());
+                }
+                if (sync) {
+                    channel.force(false);
+                }
+            } catch (IOException e) {
+                //Half an entry would end the replay there, and hide everything written after it
+                truncate(position);
+                throw new DataAccessException("Error writing to " + path + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private void truncate(long size) {
+        if (size < 0) {
+            return;
+        }
+        try {
+            channel.truncate(size);
+        } catch (IOException e) {
+            System.err.println("Error truncating " + path + ": " + e.getMessage());
+        }
+    }
+
+    private static ByteBuffer frame(List<byte[]> entries) {
+        int size = 0;
+        for (byte[] entry : entries) {
+            size += HEADER_BYTES + entry.length;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        CRC32 crc = new CRC32();
+        for (byte[] entry : entries) {
+            crc.reset();
+            crc.update(entry);
+            buffer.putInt(entry.length).putInt((int) crc.getValue()).put(entry);
+        }
+        return buffer.flip();
+    }
+
+    private void compactIfLarge() {
+        synchronized (this) {
+            try {
+                if (channel == null || !needsCompaction()) {
+                    return;
+                }
+            } catch (IOException e) {
+                return;
+            }
+        }
+        //Another thread may already be compacting, the size is checked again once we have the lock
+        compaction.writeLock().lock();
+        try {
+            if (channel != null && needsCompaction()) {
+                compactLocked();
+            }
+        } catch (IOException e) {
+            //The old journal is still whole, the next write tries again
+            System.err.println("Error compacting " + path + ": " + e.getMessage());
+        } finally {
+            compaction.writeLock().unlock();
+        }
+    }
+
+    private boolean needsCompaction() throws IOException {
+        return channel.size() >= Math.max(compactBytes, 2 * compactedSize);
+    }
+
+    //Writes the participants' state to a new file and swaps it in, so a crash leaves one whole journal or the other
+    private void compactLocked() throws IOException {
+        List<byte[]> entries = new ArrayList<>();
+        for (Participant participant : participants) {
+            participant.checkpoint(entries);
+        }
+        Path compacted = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = frame(entries);
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+            compactedSize = buffer.limit();
+        }
+        synchronized (this) {
+            channel.close();
+            try {
+                Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            }
+        }
+    }
+
+    /**
+     * @return the journal's size on disk in bytes
+     */
+    synchronized long size() throws IOException {
+        return channel == null ? 0 : channel.size();
+    }
+
+    /**
+     * Compacts the journal and closes the participants
+     */
+    void close() throws IOException {
+        compaction.writeLock().lock();
+        try {
+            if (channel == null) {
+                return;
+            }
+            compactLocked();
+            synchronized (this) {
+                channel.close();
+                channel = null;
+            }
+            for (Participant participant : participants) {
+                participant.close();
+            }
+        } finally {
+            compaction.writeLock().unlock();
+        }
+    }
+}
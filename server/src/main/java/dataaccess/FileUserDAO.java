@@ -0,0 +1,85 @@
+package dataaccess;
+
+import model.UserData;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Users for the file backend: kept in memory like {@link MemoryUserDAO}, with every change written to the
+ * journal first.
+ */
+public class FileUserDAO extends MemoryUserDAO implements FileJournal.Participant {
+    private static final int CREATE = 1;
+    private static final int PASSWORD = 2;
+    private static final int CLEAR = 3;
+
+    private final FileJournal journal;
+
+    FileUserDAO(FileJournal journal) {
+        this.journal = journal;
+    }
+
+    private static byte[] createEntry(UserData user) {
+        return FileJournal.entry(CREATE, out -> {
+            out.writeUTF(user.username());
+            FileJournal.writeString(out, user.password());
+            FileJournal.writeString(out, user.email());
+        });
+    }
+
+    //Synchronized so the name can't be taken between the check and the journal write
+    @Override
+    public synchronized void createUser(UserData user) throws DataAccessException {
+        if (exists(user.username())) {
+            throw new DataAccessException("Username already taken");
+        }
+        journal.append(createEntry(user), () -> super.createUser(user));
+    }
+
+    @Override
+    public synchronized void updatePassword(String username, String passwordHash) throws DataAccessException {
+        if (!exists(username)) {
+            return;
+        }
+        journal.append(FileJournal.entry(PASSWORD, out -> {
+            out.writeUTF(username);
+            out.writeUTF(passwordHash);
+        }), () -> super.updatePassword(username, passwordHash));
+    }
+
+    @Override
+    public synchronized void clear() throws DataAccessException {
+        journal.append(FileJournal.entry(CLEAR, out -> { }), super::clear);
+    }
+
+    @Override
+    public boolean replay(int type, DataInputStream in) throws IOException {
+        try {
+            switch (type) {
+                case CREATE -> {
+                    UserData user = new UserData(in.readUTF(), FileJournal.readString(in), FileJournal.readString(in));
+                    if (!exists(user.username())) {
+                        super.createUser(user);
+                    }
+                }
+                case PASSWORD -> super.updatePassword(in.readUTF(), in.readUTF());
+                case CLEAR -> super.clear();
+                default -> {
+                    return false;
+                }
+            }
+        } catch (DataAccessException e) {
+            throw new IOException(e.getMessage());
+        }
+        return true;
+    }
+
+    @Override
+    public void checkpoint(List<byte[]> entries) {
+        for (UserData user : users()) {
+            entries.add(createEntry(user));
+        }
+    }
+}
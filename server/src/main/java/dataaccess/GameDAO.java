@@ -1,52 +1,68 @@
 package dataaccess;
 
-import chess.ChessGame;
+import chess.ChessMove;
 import model.GameData;
 import model.GameStatus;
-import java.util.*;
+import model.GameSummary;
+import model.ListGamesRequest;
 
-public class GameDAO {
-    private static final GameDAO INSTANCE = new GameDAO();
-    private final Map<Integer, GameData> games = new HashMap<>();
-    private int nextGameID = 1;
+import java.util.Collection;
+import java.util.List;
 
-    private GameDAO() {}
-
-    public static GameDAO getInstance() {
-        return INSTANCE;
+/**
+ * Stores games as a snapshot of the board plus a log of the moves made since, so a move can be saved
+ * without rewriting the whole game. Reading a game back replays its logged moves onto the snapshot.
+ * <p>
+ * Games being played go through {@link LiveGameRegistry}, which decides when to log moves and take
+ * snapshots.
+ */
+public interface GameDAO {
+    /**
+     * A move to add to the log: the {@code ply}th move made in the game
+     */
+    record LoggedMove(int gameID, int ply, ChessMove move) {
     }
 
-    public List<GameData> listGames() {
-        return new ArrayList<>(games.values());
-    }
+    /**
+     * Lists games for the lobby, in game ID order, without reading any boards
+     *
+     * @param maxRows most games to return, 0 for all that match
+     */
+    List<GameSummary> listGameSummaries(ListGamesRequest request, int maxRows) throws DataAccessException;
 
-    public GameData createGame(String gameName){
-        GameData newGame = new GameData(
-                nextGameID++,
-                null,
-                null,
-                gameName,
-                new ChessGame(),
-                GameStatus.ACTIVE
-        );
-        games.put(newGame.gameID(), newGame);
-        return newGame;
-    }
+    /**
+     * @throws DataAccessException if a game already has the name
+     */
+    GameData createGame(String gameName) throws DataAccessException;
 
-    public GameData getGame(int gameID){
-        return games.get(gameID);
-    }
+    /**
+     * @throws DataAccessException if there's no such game
+     */
+    GameData getGame(int gameID) throws DataAccessException;
 
-    public void updateGame(GameData game){
-        if (games.containsKey(game.gameID())) {
-            games.put(game.gameID(), game);
-        } else {
-            System.err.println("Warning: Attempted to update non-existent game with ID: " + game.gameID());
-        }
-    }
+    /**
+     * Appends moves to the move log. A move that is already logged is left as it is, so a batch can
+     * safely be retried.
+     */
+    void appendMoves(Collection<LoggedMove> moves) throws DataAccessException;
 
-    public void clear(){
-        games.clear();
-        nextGameID = 1;
-    }
+    /**
+     * Saves the players and a new snapshot of the game. Moves should be logged with appendMoves first, the
+     * snapshot doesn't replace them.
+     *
+     * @throws DataAccessException if there's no such game
+     */
+    void updateGame(GameData game) throws DataAccessException;
+
+    /**
+     * Writes new snapshots of several games, leaving players and status alone
+     */
+    void updateChessGames(Collection<GameData> games) throws DataAccessException;
+
+    /**
+     * @throws DataAccessException if there's no such game
+     */
+    void updateGameStatus(int gameID, GameStatus status) throws DataAccessException;
+
+    void clear() throws DataAccessException;
 }
@@ -0,0 +1,381 @@
+package dataaccess;
+
+import chess.ChessMove;
+import model.GameData;
+import model.GameStatus;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The in-memory copy of every game being played, which is what the server reads and changes. The database
+ * catches up behind it.
+ * <p>
+ * Moves are queued with {@link #recordMove}. Every {@code flushIntervalMillis} the queued moves of every
+ * game are appended to the move log in one batch, and games that are {@code snapshotInterval} or more moves
+ * past their last snapshot get a new one in a second batch. Changes that other requests need to see
+ * straight away (players joining or leaving, games ending) are written through immediately, along with any
+ * moves still waiting. Games that haven't been touched for {@code idleEvictMillis} are dropped from memory
+ * once they are saved.
+ * <p>
+ * Moves must change a game's {@code ChessGame} while synchronized on it, which is what the database writes
+ * lock on while they serialize it. Players change through {@link #updateGame}, which reads and replaces the
+ * game under the same per-game lock the database writes take, so a join over HTTP and a leave over WebSocket
+ * can't undo each other.
+ */
+public class LiveGameRegistry {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 200;
+    public static final long DEFAULT_IDLE_EVICT_MILLIS = 600_000;
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 20;
+
+    private static LiveGameRegistry instance;
+
+    private final GameDAO gameDAO;
+    private final long flushIntervalMillis;
+    private final long idleEvictMillis;
+    private final int snapshotInterval;
+    private final Map<Integer, LiveGame> games = new ConcurrentHashMap<>();
+    private final Map<Integer, LiveGame> dirty = new ConcurrentHashMap<>();
+    private ScheduledExecutorService flusher;
+
+    /**
+     * A change to a game's players, worked out from the game as it is right now
+     */
+    public interface GameUpdate {
+        /**
+         * @return the game with its new players, or null to leave it as it is. The board and status are
+         * always kept from {@code current}.
+         * @throws DataAccessException to turn the change down, nothing is saved then
+         */
+        GameData apply(GameData current) throws DataAccessException;
+    }
+
+    private static final class LiveGame {
+        //Orders the database writes of one game, so an older state is never written over a newer one
+        final ReentrantLock writeLock = new ReentrantLock();
+        //Moves not yet in the move log, guarded by synchronizing on the list
+        final List<GameDAO.LoggedMove> pendingMoves = new ArrayList<>();
+        volatile GameData data;
+        volatile long lastTouched = System.currentTimeMillis();
+        //Games loaded from the database count as freshly snapshotted, which at worst doubles the next replay
+        int snapshotPly;
+
+        LiveGame(GameData data) {
+            this.data = data;
+            this.snapshotPly = data.game().getMoveCount();
+        }
+
+        List<GameDAO.LoggedMove> takePendingMoves() {
+            synchronized (pendingMoves) {
+                List<GameDAO.LoggedMove> moves = new ArrayList<>(pendingMoves);
+                pendingMoves.clear();
+                return moves;
+            }
+        }
+
+        //Puts moves that failed to save back ahead of any made since
+        void restorePendingMoves(List<GameDAO.LoggedMove> moves) {
+            synchronized (pendingMoves) {
+                pendingMoves.addAll(0, moves);
+            }
+        }
+    }
+
+    public LiveGameRegistry(GameDAO gameDAO, long flushIntervalMillis, long idleEvictMillis,
+                            int snapshotInterval) {
+        this.gameDAO = gameDAO;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.idleEvictMillis = idleEvictMillis;
+        this.snapshotInterval = snapshotInterval;
+    }
+
+    /**
+     * @return the registry the server uses, over the MySQL games table, with the flush interval, idle
+     * timeout and snapshot interval from db.writeBehind.flushIntervalMillis, db.writeBehind.idleEvictMillis
+     * and db.moveLog.snapshotInterval in db.properties
+     */
+    public static synchronized LiveGameRegistry getInstance() {
+        if (instance == null) {
+            instance = new LiveGameRegistry(MySQLGameDAO.getInstance(),
+                    Long.parseLong(DbProperties.get("db.writeBehind.flushIntervalMillis",
+                            String.valueOf(DEFAULT_FLUSH_INTERVAL_MILLIS))),
+                    Long.parseLong(DbProperties.get("db.writeBehind.idleEvictMillis",
+                            String.valueOf(DEFAULT_IDLE_EVICT_MILLIS))),
+                    Integer.parseInt(DbProperties.get("db.moveLog.snapshotInterval",
+                            String.valueOf(DEFAULT_SNAPSHOT_INTERVAL))));
+        }
+        return instance;
+    }
+
+    /**
+     * @return the live game, loading it from the database if it isn't in memory
+     * @throws DataAccessException if the game doesn't exist or can't be loaded
+     */
+    public GameData getGame(int gameID) throws DataAccessException {
+        return load(gameID).data;
+    }
+
+    private LiveGame load(int gameID) throws DataAccessException {
+        LiveGame live = games.get(gameID);
+        if (live == null) {
+            LiveGame loaded = new LiveGame(gameDAO.getGame(gameID));
+            //Another thread may have loaded it at the same time, everyone has to share one copy
+            live = games.putIfAbsent(gameID, loaded);
+            if (live == null) {
+                live = loaded;
+            }
+        }
+        live.lastTouched = System.currentTimeMillis();
+        return live;
+    }
+
+    /**
+     * Queues a move made on the game to be saved on the next flush. The game's players and status are left
+     * as the registry has them, {@code game} only says which copy the move was made on.
+     *
+     * @param ply the game's move count after the move
+     * @throws DataAccessException if {@code game} isn't the live copy any more, like when the game finished
+     *                             or was dropped from memory since it was read
+     */
+    public void recordMove(GameData game, ChessMove move, int ply) throws DataAccessException {
+        LiveGame live = games.get(game.gameID());
+        if (live == null || live.data.game() != game.game() || live.data.status() != GameStatus.ACTIVE) {
+            throw new DataAccessException("Game " + game.gameID() + " is no longer being played");
+        }
+        live.lastTouched = System.currentTimeMillis();
+        synchronized (live.pendingMoves) {
+            live.pendingMoves.add(new GameDAO.LoggedMove(game.gameID(), ply, move));
+        }
+        dirty.put(game.gameID(), live);
+        startFlusher();
+    }
+
+    /**
+     * Changes the game's players and saves it straight away, including any moves that were waiting to be
+     * saved. The update sees the game as it is under the game's lock, so two changes never work from the
+     * same old players. A game that isn't in memory is loaded first, with its saved status.
+     *
+     * @return the game after the update
+     * @throws DataAccessException if the game doesn't exist, the update turned it down or it couldn't be saved
+     */
+    public GameData updateGame(int gameID, GameUpdate update) throws DataAccessException {
+        while (true) {
+            LiveGame live = load(gameID);
+            live.writeLock.lock();
+            try {
+                //Finished or dropped from memory while we waited for the lock, so work on the one there now
+                if (games.get(gameID) != live) {
+                    continue;
+                }
+                GameData current = live.data;
+                GameData changed = update.apply(current);
+                if (changed == null) {
+                    return current;
+                }
+                GameData game = new GameData(gameID, changed.whiteUsername(), changed.blackUsername(),
+                        current.gameName(), current.game(), current.status());
+                dirty.remove(gameID, live);
+                appendPendingMoves(live);
+                gameDAO.updateGame(game);
+                live.data = game;
+                live.lastTouched = System.currentTimeMillis();
+                live.snapshotPly = game.game().getMoveCount();
+                return game;
+            } finally {
+                live.writeLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Ends the game: saves its final position and status straight away and drops it from memory
+     */
+    public void finishGame(int gameID, GameStatus status) throws DataAccessException {
+        LiveGame live = games.get(gameID);
+        if (live == null) {
+            gameDAO.updateGameStatus(gameID, status);
+            return;
+        }
+        live.writeLock.lock();
+        try {
+            GameData game = live.data;
+            live.data = new GameData(game.gameID(), game.whiteUsername(), game.blackUsername(), game.gameName(),
+                    game.game(), status);
+            dirty.remove(gameID, live);
+            appendPendingMoves(live);
+            //The final position is what game lists and reloads will show, so it gets a snapshot
+            if (live.snapshotPly != game.game().getMoveCount()) {
+                gameDAO.updateChessGames(List.of(game));
+            }
+            gameDAO.updateGameStatus(gameID, status);
+            games.remove(gameID, live);
+        } finally {
+            live.writeLock.unlock();
+        }
+    }
+
+    //Called holding the game's write lock
+    private void appendPendingMoves(LiveGame live) throws DataAccessException {
+        List<GameDAO.LoggedMove> moves = live.takePendingMoves();
+        if (moves.isEmpty()) {
+            return;
+        }
+        try {
+            gameDAO.appendMoves(moves);
+        } catch (DataAccessException e) {
+            live.restorePendingMoves(moves);
+            dirty.putIfAbsent(live.data.gameID(), live);
+            throw e;
+        }
+    }
+
+    /**
+     * Appends every queued move to the move log in one batch, then snapshots the games that are due for it
+     * in another. Moves that fail to save stay queued and are tried again on the next flush.
+     */
+    public void flush() {
+        if (dirty.isEmpty()) {
+            evictIdle();
+            return;
+        }
+        //Lock in game ID order so two flushes can never wait on each other
+        List<LiveGame> batch = new ArrayList<>(dirty.values());
+        batch.sort(Comparator.comparingInt(live -> live.data.gameID()));
+        List<LiveGame> locked = new ArrayList<>(batch.size());
+        List<GameData> toWrite = new ArrayList<>(batch.size());
+        try {
+            List<GameDAO.LoggedMove> moves = new ArrayList<>();
+            for (LiveGame live : batch) {
+                live.writeLock.lock();
+                locked.add(live);
+                //Skip games a write-through already saved since the batch was collected
+                if (dirty.remove(live.data.gameID(), live)) {
+                    toWrite.add(live.data);
+                    moves.addAll(live.takePendingMoves());
+                }
+            }
+            if (toWrite.isEmpty()) {
+                return;
+            }
+            try {
+                gameDAO.appendMoves(moves);
+            } catch (DataAccessException e) {
+                System.err.println("Unable to save moves of " + toWrite.size() + " games, retrying on the next"
+                        + " flush: " + e.getMessage());
+                requeue(locked, moves);
+                return;
+            }
+
+            List<GameData> snapshots = new ArrayList<>();
+            for (GameData game : toWrite) {
+                LiveGame live = games.get(game.gameID());
+                if (live != null && game.game().getMoveCount() - live.snapshotPly >= snapshotInterval) {
+                    snapshots.add(game);
+                }
+            }
+            if (!snapshots.isEmpty()) {
+                try {
+                    gameDAO.updateChessGames(snapshots);
+                    for (GameData game : snapshots) {
+                        LiveGame live = games.get(game.gameID());
+                        if (live != null) {
+                            live.snapshotPly = game.game().getMoveCount();
+                        }
+                    }
+                } catch (DataAccessException e) {
+                    //The moves are logged, so the game is safe, it just takes a longer replay to load
+                    System.err.println("Unable to snapshot " + snapshots.size() + " games: " + e.getMessage());
+                }
+            }
+        } finally {
+            for (LiveGame live : locked) {
+                live.writeLock.unlock();
+            }
+        }
+        evictIdle();
+    }
+
+    //Puts moves from a failed batch back in their games' queues and marks those games dirty again
+    private void requeue(List<LiveGame> batch, List<GameDAO.LoggedMove> moves) {
+        for (LiveGame live : batch) {
+            int gameID = live.data.gameID();
+            List<GameDAO.LoggedMove> ownMoves = moves.stream().filter(move -> move.gameID() == gameID).toList();
+            if (!ownMoves.isEmpty()) {
+                live.restorePendingMoves(ownMoves);
+                dirty.putIfAbsent(gameID, live);
+            }
+        }
+    }
+
+    //Drops saved games nobody has touched for a while, a later getGame loads them again
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleEvictMillis;
+        games.entrySet().removeIf(entry -> entry.getValue().lastTouched < cutoff
+                && !dirty.containsKey(entry.getKey()));
+    }
+
+    /**
+     * @return how many games have moves waiting to be saved
+     */
+    public int pendingWrites() {
+        return dirty.size();
+    }
+
+    private synchronized void startFlusher() {
+        if (flusher == null) {
+            flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "game-write-behind");
+                thread.setDaemon(true);
+                return thread;
+            });
+            flusher.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMillis, flushIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    //An exception escaping a scheduled task would cancel it, so no flush would ever run again
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            System.err.println("Error saving games: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops the background flushes and saves everything still waiting. Recording another move starts the
+     * flushes again.
+     */
+    public void shutdown() {
+        ScheduledExecutorService stopping;
+        synchronized (this) {
+            stopping = flusher;
+            flusher = null;
+        }
+        if (stopping != null) {
+            stopping.shutdown();
+            try {
+                stopping.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    /**
+     * Forgets every game without saving, for when the database is being cleared
+     */
+    public void clear() {
+        dirty.clear();
+        games.clear();
+    }
+}
@@ -0,0 +1,59 @@
+package dataaccess;
+
+import model.AuthData;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Auth tokens kept in memory, for running without MySQL. Lookups are already as fast as the MySQL DAO's
+ * cache, so there's no cache in front.
+ */
+public class MemoryAuthDAO implements AuthDAO {
+    private final ConcurrentHashMap<String, AuthData> tokens = new ConcurrentHashMap<>();
+
+    @Override
+    public AuthData createAuth(String username) throws DataAccessException {
+        AuthData authData = newToken(username);
+        put(authData);
+        return authData;
+    }
+
+    static AuthData newToken(String username) {
+        return new AuthData(UUID.randomUUID().toString(), username);
+    }
+
+    @Override
+    public AuthData getAuthToken(String token) throws DataAccessException {
+        AuthData authData = token == null ? null : tokens.get(token);
+        if (authData == null) {
+            throw new DataAccessException("Error: unauthorized");
+        }
+        return authData;
+    }
+
+    @Override
+    public void deleteAuth(String token) throws DataAccessException {
+        if (token == null || tokens.remove(token) == null) {
+            throw new DataAccessException("Auth token not found");
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        tokens.clear();
+    }
+
+    void put(AuthData authData) {
+        tokens.put(authData.authToken(), authData);
+    }
+
+    boolean exists(String token) {
+        return token != null && tokens.containsKey(token);
+    }
+
+    Collection<AuthData> tokens() {
+        return tokens.values();
+    }
+}
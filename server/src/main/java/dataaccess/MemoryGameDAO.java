@@ -0,0 +1,154 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.GameCodec;
+import chess.InvalidMoveException;
+import model.GameData;
+import model.GameStatus;
+import model.GameSummary;
+import model.ListGamesRequest;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Games kept in memory, for running without MySQL. Everything is lost when the server stops.
+ * <p>
+ * It keeps the same snapshot and move log as the MySQL DAO, with the snapshot in {@link GameCodec}'s binary
+ * form, so a game read back is a copy that moves made on another copy don't change. Games are kept in ID
+ * order, so a page of the game list starts where the cursor left off instead of sorting every game.
+ */
+public class MemoryGameDAO implements GameDAO {
+    //A stored game never changes, an update swaps in a new one
+    private record StoredGame(int gameID, String whiteUsername, String blackUsername, String gameName,
+                              byte[] snapshot, int snapshotPly, GameStatus status) {
+        GameSummary summary() {
+            return new GameSummary(gameID, whiteUsername, blackUsername, gameName, status);
+        }
+    }
+
+    private record Snapshot(byte[] bytes, int ply) {
+    }
+
+    private final ConcurrentSkipListMap<Integer, StoredGame> games = new ConcurrentSkipListMap<>();
+    //gameID -> ply -> move, the move log
+    private final ConcurrentHashMap<Integer, ConcurrentSkipListMap<Integer, ChessMove>> moveLogs =
+            new ConcurrentHashMap<>();
+    private final Set<String> gameNames = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger nextGameID = new AtomicInteger(1);
+
+    @Override
+    public List<GameSummary> listGameSummaries(ListGamesRequest request, int maxRows) {
+        Collection<StoredGame> candidates = request.after() == null ? games.values()
+                : games.tailMap(request.after(), false).values();
+        List<GameSummary> list = new ArrayList<>();
+        for (StoredGame stored : candidates) {
+            GameSummary summary = stored.summary();
+            if (request.matches(summary)) {
+                list.add(summary);
+                if (list.size() == maxRows) {
+                    break;
+                }
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public GameData createGame(String gameName) throws DataAccessException {
+        if (!gameNames.add(gameName)) {
+            throw new DataAccessException("Game with name '" + gameName + "' already exists.");
+        }
+        ChessGame newGame = new ChessGame();
+        int gameID = nextGameID.getAndIncrement();
+        games.put(gameID, new StoredGame(gameID, null, null, gameName, GameCodec.encode(newGame), 0,
+                GameStatus.ACTIVE));
+        return new GameData(gameID, null, null, gameName, newGame, GameStatus.ACTIVE);
+    }
+
+    @Override
+    public GameData getGame(int gameID) throws DataAccessException {
+        StoredGame stored = games.get(gameID);
+        if (stored == null) {
+            throw new DataAccessException("Game with ID " + gameID + " not found.");
+        }
+        return load(stored);
+    }
+
+    //Decodes the snapshot and replays the moves logged after it
+    private GameData load(StoredGame stored) throws DataAccessException {
+        ChessGame game = GameCodec.decode(stored.snapshot());
+        ConcurrentSkipListMap<Integer, ChessMove> log = moveLogs.get(stored.gameID());
+        if (log != null) {
+            for (ChessMove move : log.tailMap(stored.snapshotPly(), false).values()) {
+                try {
+                    game.makeMove(move);
+                } catch (InvalidMoveException e) {
+                    throw new DataAccessException("Game " + stored.gameID() + " has a bad move in its history: "
+                            + e.getMessage());
+                }
+            }
+        }
+        return new GameData(stored.gameID(), stored.whiteUsername(), stored.blackUsername(), stored.gameName(),
+                game, stored.status());
+    }
+
+    @Override
+    public void appendMoves(Collection<LoggedMove> moves) {
+        for (LoggedMove move : moves) {
+            moveLogs.computeIfAbsent(move.gameID(), id -> new ConcurrentSkipListMap<>())
+                    .putIfAbsent(move.ply(), move.move());
+        }
+    }
+
+    @Override
+    public void updateGame(GameData game) throws DataAccessException {
+        Snapshot snapshot = snapshot(game.game());
+        StoredGame updated = games.computeIfPresent(game.gameID(), (id, stored) -> new StoredGame(id,
+                game.whiteUsername(), game.blackUsername(), stored.gameName(), snapshot.bytes(), snapshot.ply(),
+                stored.status()));
+        if (updated == null) {
+            throw new DataAccessException("Game update failed: No game found with ID " + game.gameID());
+        }
+    }
+
+    @Override
+    public void updateChessGames(Collection<GameData> updates) {
+        for (GameData game : updates) {
+            Snapshot snapshot = snapshot(game.game());
+            games.computeIfPresent(game.gameID(), (id, stored) -> new StoredGame(id, stored.whiteUsername(),
+                    stored.blackUsername(), stored.gameName(), snapshot.bytes(), snapshot.ply(), stored.status()));
+        }
+    }
+
+    //Moves change a live game while holding its lock, so encode under it to never save half a move
+    private static Snapshot snapshot(ChessGame game) {
+        synchronized (game) {
+            return new Snapshot(GameCodec.encode(game), game.getMoveCount());
+        }
+    }
+
+    @Override
+    public void updateGameStatus(int gameID, GameStatus status) throws DataAccessException {
+        StoredGame updated = games.computeIfPresent(gameID, (id, stored) -> new StoredGame(id,
+                stored.whiteUsername(), stored.blackUsername(), stored.gameName(), stored.snapshot(),
+                stored.snapshotPly(), status));
+        if (updated == null) {
+            throw new DataAccessException("Game status update failed: No game found with ID " + gameID);
+        }
+    }
+
+    @Override
+    public void clear() {
+        games.clear();
+        moveLogs.clear();
+        gameNames.clear();
+        nextGameID.set(1);
+    }
+}
@@ -0,0 +1,47 @@
+package dataaccess;
+
+import model.UserData;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Users kept in memory, for running without MySQL. Everything is lost when the server stops.
+ */
+public class MemoryUserDAO implements UserDAO {
+    private final ConcurrentHashMap<String, UserData> users = new ConcurrentHashMap<>();
+
+    @Override
+    public void createUser(UserData user) throws DataAccessException {
+        if (users.putIfAbsent(user.username(), user) != null) {
+            throw new DataAccessException("Username already taken");
+        }
+    }
+
+    @Override
+    public UserData getUser(String username) throws DataAccessException {
+        UserData user = username == null ? null : users.get(username);
+        if (user == null) {
+            throw new DataAccessException("Error: unauthorized");
+        }
+        return user;
+    }
+
+    @Override
+    public void updatePassword(String username, String passwordHash) throws DataAccessException {
+        users.computeIfPresent(username, (name, user) -> new UserData(name, passwordHash, user.email()));
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        users.clear();
+    }
+
+    boolean exists(String username) {
+        return users.containsKey(username);
+    }
+
+    Collection<UserData> users() {
+        return users.values();
+    }
+}
@@ -4,14 +4,27 @@ import model.AuthData;
 import java.sql.*;
 import java.util.UUID;
 
-public class MySQLAuthDAO {
+/**
+ * Auth tokens in MySQL, with lookups served from an {@link AuthTokenCache} when possible. Use the shared
+ * instance, a token deleted through one instance stays in the cache of any other.
+ */
+public class MySQLAuthDAO implements AuthDAO {
     private static final MySQLAuthDAO INSTANCE = new MySQLAuthDAO();
-    public MySQLAuthDAO() {};
+    private final AuthTokenCache cache;
+
+    public MySQLAuthDAO() {
+        this(new AuthTokenCache(DatabaseManager.authCacheConfig()));
+    }
+
+    MySQLAuthDAO(AuthTokenCache cache) {
+        this.cache = cache;
+    }
 
     public static  MySQLAuthDAO getInstance(){
         return INSTANCE;
     }
 
+    @Override
     public AuthData createAuth(String username) throws DataAccessException {
         String sqlString = "INSERT INTO auth_tokens (token, username) VALUES (?, ?)";
         String token = UUID.randomUUID().toString();
@@ -26,10 +39,22 @@ public class MySQLAuthDAO {
         } catch (SQLException e){
             throw new DataAccessException("Error inserting authToken: " + e.getMessage());
         }
+        //The client uses a new token straight away, so the first request it makes is a cache hit
+        cache.put(authData);
         return authData;
     }
 
+    @Override
     public AuthData getAuthToken(String token) throws DataAccessException {
+        AuthData authData = cache.get(token, this::loadAuthToken);
+        if (authData == null) {
+            throw new DataAccessException("Error: unauthorized");
+        }
+        return authData;
+    }
+
+    //Returns null if there's no such token, so the cache can remember that
+    private AuthData loadAuthToken(String token) throws DataAccessException {
         String sqlString = "SELECT token, username FROM auth_tokens WHERE token = ?";
 
         try(Connection conn = DatabaseManager.getConnection();
@@ -41,13 +66,14 @@ public class MySQLAuthDAO {
             if(rs.next()){
                 return new AuthData(rs.getString("token"), rs.getString("username"));
             } else {
-                throw new DataAccessException("Error: unauthorized");
+                return null;
             }
         } catch (SQLException e){
             throw new DataAccessException("Error retrieving authToken: " + e.getMessage());
         }
     }
 
+    @Override
     public void deleteAuth(String token) throws DataAccessException {
         String sql = "DELETE FROM auth_tokens WHERE token = ?";
 
@@ -63,7 +89,33 @@ public class MySQLAuthDAO {
 
         } catch (SQLException e) {
             throw new DataAccessException("Error deleting auth token: " + e.getMessage());
+        } finally {
+            //Even if the delete failed, the next lookup should see what the database says
+            cache.invalidate(token);
         }
     }
 
+    @Override
+    public void clear() throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM auth_tokens");
+        } catch (SQLException e) {
+            throw new DataAccessException("Error clearing auth tokens: " + e.getMessage());
+        } finally {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * Forgets every cached token, for when the auth_tokens table is cleared
+     */
+    void invalidateCache() {
+        cache.invalidateAll();
+    }
+
+    public AuthTokenCache.Stats cacheStats() {
+        return cache.stats();
+    }
+
 }
@@ -1,16 +1,26 @@
 package dataaccess;
 
 import chess.ChessGame;
+import chess.InvalidMoveException;
+import chess.Move;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 import model.GameData;
 import model.GameStatus;
+import model.GameSummary;
+import model.ListGamesRequest;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
-public class MySQLGameDAO {
+/**
+ * Games are stored as a snapshot of the ChessGame in games.chess_game, taken after snapshot_ply moves, plus
+ * every move in game_moves. Loading a game replays the moves made after its snapshot, so saving a move only
+ * needs its few bytes appended, and the snapshot is rewritten now and then to keep replays short.
+ */
+public class MySQLGameDAO implements GameDAO {
     private static final MySQLGameDAO INSTANCE = new MySQLGameDAO();
     private static final Gson GSON = new GsonBuilder().create();
 
@@ -20,16 +30,48 @@ public class MySQLGameDAO {
         return INSTANCE;
     }
 
-    public List<GameData> listGames() throws DataAccessException {
-        List<GameData> games = new ArrayList<>();
-        String sql = "SELECT game_id, white_player, black_player, game_name, chess_game, status FROM games";
+    /**
+     * Lists games for the lobby, in game ID order, without reading any boards
+     *
+     * @param maxRows most games to return, 0 for all that match
+     */
+    @Override
+    public List<GameSummary> listGameSummaries(ListGamesRequest request, int maxRows) throws DataAccessException {
+        StringBuilder sql = new StringBuilder(
+                "SELECT game_id, white_player, black_player, game_name, status FROM games WHERE game_id > ?");
+        List<Object> params = new ArrayList<>();
+        params.add(request.after() == null ? 0 : request.after());
+        if (request.status() != null) {
+            sql.append(" AND status = ?");
+            params.add(request.status().name());
+        }
+        if (request.openSeat() != null) {
+            sql.append(request.openSeat() ? " AND (white_player IS NULL OR black_player IS NULL)"
+                    : " AND white_player IS NOT NULL AND black_player IS NOT NULL");
+        }
+        if (request.player() != null) {
+            sql.append(" AND (white_player = ? OR black_player = ?)");
+            params.add(request.player());
+            params.add(request.player());
+        }
+        sql.append(" ORDER BY game_id");
+        if (maxRows > 0) {
+            sql.append(" LIMIT ?");
+            params.add(maxRows);
+        }
 
+        List<GameSummary> games = new ArrayList<>();
         try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-
-            while (rs.next()) {
-                games.add(extractGame(rs));
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < params.size(); i++) {
+                stmt.setObject(i + 1, params.get(i));
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    games.add(new GameSummary(rs.getInt("game_id"), rs.getString("white_player"),
+                            rs.getString("black_player"), rs.getString("game_name"),
+                            GameStatus.valueOf(rs.getString("status").toUpperCase())));
+                }
             }
         } catch (SQLException e) {
             throw new DataAccessException("Error retrieving game list: " + e.getMessage());
@@ -37,6 +79,7 @@ public class MySQLGameDAO {
         return games;
     }
 
+    @Override
     public GameData createGame(String gameName) throws DataAccessException {
         String checkSql = "SELECT COUNT(*) FROM games WHERE game_name = ?";
         String insertSql = "INSERT INTO games (game_name, chess_game, status) VALUES (?, ?, ?)"; // <-- Added status
@@ -83,36 +126,89 @@ public class MySQLGameDAO {
 
 
 
+    @Override
     public GameData getGame(int gameID) throws DataAccessException {
         String sql = "SELECT game_id, white_player, black_player, game_name, chess_game," +
-                " status FROM games WHERE game_id = ?";
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+                " snapshot_ply, status FROM games WHERE game_id = ?";
+        String movesSql = "SELECT move FROM game_moves WHERE game_id = ? AND ply > ? ORDER BY ply";
+        try (Connection conn = DatabaseManager.getConnection()) {
+            GameData game;
+            int snapshotPly;
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setInt(1, gameID);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new DataAccessException("Game with ID " + gameID + " not found.");
+                    }
+                    game = extractGame(rs);
+                    snapshotPly = rs.getInt("snapshot_ply");
+                }
+            }
 
-            stmt.setInt(1, gameID);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return extractGame(rs);
-                } else {
-                    throw new DataAccessException("Game with ID " + gameID + " not found.");
+            try (PreparedStatement stmt = conn.prepareStatement(movesSql)) {
+                stmt.setInt(1, gameID);
+                stmt.setInt(2, snapshotPly);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        replay(gameID, game.game(), rs.getInt("move"));
+                    }
                 }
             }
+            return game;
         } catch (SQLException e) {
             throw new DataAccessException("Error retrieving game: " + e.getMessage());
         }
     }
 
+    private static void replay(int gameID, ChessGame game, int move) throws DataAccessException {
+        try {
+            game.makeMove(Move.toChessMove(move));
+        } catch (InvalidMoveException e) {
+            throw new DataAccessException("Game " + gameID + " has a bad move in its history: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Appends moves to the move log in one JDBC batch. A move that is already logged is left as it is,
+     * so a batch can safely be retried.
+     */
+    @Override
+    public void appendMoves(Collection<LoggedMove> moves) throws DataAccessException {
+        String sql = "INSERT IGNORE INTO game_moves (game_id, ply, move) VALUES (?, ?, ?)";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (LoggedMove move : moves) {
+                stmt.setInt(1, move.gameID());
+                stmt.setInt(2, move.ply());
+                stmt.setShort(3, (short) Move.encode(move.move()));
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error saving moves: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Saves the players and a new snapshot of the game. Moves should be logged with appendMoves first, the
+     * snapshot doesn't replace them.
+     */
+    @Override
     public void updateGame(GameData game) throws DataAccessException {
-        String sql = "UPDATE games SET white_player = ?, black_player = ?, chess_game = ? WHERE game_id = ?";
-        String gameStateJson = GSON.toJson(game.game());
+        String sql = "UPDATE games SET white_player = ?, black_player = ?, chess_game = ?, snapshot_ply = ?" +
+                " WHERE game_id = ?";
+        Snapshot snapshot = snapshot(game.game());
 
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(sql)) {
 
             stmt.setString(1, game.whiteUsername());
             stmt.setString(2, game.blackUsername());
-            stmt.setString(3, gameStateJson);
-            stmt.setInt(4, game.gameID());
+            stmt.setString(3, snapshot.json());
+            stmt.setInt(4, snapshot.ply());
+            stmt.setInt(5, game.gameID());
 
             int rowsAffected = stmt.executeUpdate();
             if (rowsAffected == 0) {
@@ -123,6 +219,40 @@ public class MySQLGameDAO {
         }
     }
 
+    /**
+     * Writes new snapshots of several games in one JDBC batch, leaving players and status alone
+     */
+    @Override
+    public void updateChessGames(Collection<GameData> games) throws DataAccessException {
+        String sql = "UPDATE games SET chess_game = ?, snapshot_ply = ? WHERE game_id = ?";
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+
+            for (GameData game : games) {
+                Snapshot snapshot = snapshot(game.game());
+                stmt.setString(1, snapshot.json());
+                stmt.setInt(2, snapshot.ply());
+                stmt.setInt(3, game.gameID());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating games: " + e.getMessage());
+        }
+    }
+
+    private record Snapshot(String json, int ply) {
+    }
+
+    //Moves change a live game while holding its lock, so serialize under it to never save half a move
+    private static Snapshot snapshot(ChessGame game) {
+        synchronized (game) {
+            return new Snapshot(GSON.toJson(game), game.getMoveCount());
+        }
+    }
+
+    @Override
     public void updateGameStatus(int gameID, GameStatus status) throws DataAccessException {
         String sql = "UPDATE games SET status = ? WHERE game_id = ?";
         try (Connection conn = DatabaseManager.getConnection();
@@ -140,6 +270,18 @@ public class MySQLGameDAO {
         }
     }
 
+    @Override
+    public void clear() throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM game_moves");
+            stmt.executeUpdate("DELETE FROM games");
+            stmt.executeUpdate("ALTER TABLE games AUTO_INCREMENT = 1");
+        } catch (SQLException e) {
+            throw new DataAccessException("Error clearing games: " + e.getMessage());
+        }
+    }
+
     private GameData extractGame(ResultSet rs) throws SQLException {
         int gameID = rs.getInt("game_id");
         String whitePlayer = rs.getString("white_player");
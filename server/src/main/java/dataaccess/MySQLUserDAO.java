@@ -4,7 +4,7 @@ import model.UserData;
 
 import java.sql.*;
 
-public class MySQLUserDAO {
+public class MySQLUserDAO implements UserDAO {
     private static final MySQLUserDAO INSTANCE = new MySQLUserDAO();
 
     private MySQLUserDAO() {};
@@ -13,6 +13,7 @@ public class MySQLUserDAO {
         return INSTANCE;
     }
 
+    @Override
     public void createUser(UserData user) throws DataAccessException{
         String checkUserSql = "SELECT COUNT(*) FROM users WHERE username = ?";
         String insertUserSql = "INSERT INTO users (username, password_hash, email) VALUES (?, ?, ?)";
@@ -39,6 +40,34 @@ public class MySQLUserDAO {
         }
     }
 
+    /**
+     * Replaces the user's stored password hash, for when it is rehashed with a new cost
+     */
+    @Override
+    public void updatePassword(String username, String passwordHash) throws DataAccessException {
+        String sql = "UPDATE users SET password_hash = ? WHERE username = ?";
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, passwordHash);
+            stmt.setString(2, username);
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            throw new DataAccessException("Error updating password: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void clear() throws DataAccessException {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM users");
+            stmt.executeUpdate("ALTER TABLE users AUTO_INCREMENT = 1");
+        } catch (SQLException e) {
+            throw new DataAccessException("Error clearing users: " + e.getMessage());
+        }
+    }
+
+    @Override
     public UserData getUser(String username) throws DataAccessException{
         String sqlString = "SELECT username, password_hash, email FROM users WHERE username = ?";
         try(Connection conn = DatabaseManager.getConnection();
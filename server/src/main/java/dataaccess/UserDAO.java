@@ -1,32 +1,25 @@
 package dataaccess;
 
 import model.UserData;
-import java.util.HashMap;
-import java.util.Map;
 
-public class UserDAO {
-    private static final UserDAO INSTANCE = new UserDAO(); //makes only one instance of UserDAO
-    private final Map<String, UserData> users = new HashMap<>();
+/**
+ * Stores registered users and their password hashes
+ */
+public interface UserDAO {
+    /**
+     * @throws DataAccessException "Username already taken" if the username is in use
+     */
+    void createUser(UserData user) throws DataAccessException;
 
-    private UserDAO() {}  //private constructor to prevent external instantiation
-    public static UserDAO getInstance() {
-        return INSTANCE;
-    }
+    /**
+     * @throws DataAccessException "Error: unauthorized" if there's no such user
+     */
+    UserData getUser(String username) throws DataAccessException;
 
-    public void createUser(UserData user) throws DataAccessException {
-        if(users.containsKey(user.username())){
-            throw new DataAccessException("Username already taken");
-        }
-        users.put(user.username(), user);
-    }
-    public UserData getUser(String username) throws DataAccessException {
-        if(!users.containsKey(username)) {
-            throw new DataAccessException("Unauthorized");
-        }
-        return users.get(username);
-    }
+    /**
+     * Replaces the user's stored password hash, for when it is rehashed with a new cost
+     */
+    void updatePassword(String username, String passwordHash) throws DataAccessException;
 
-    public void clear(){
-        users.clear();
-    }
+    void clear() throws DataAccessException;
 }
@@ -7,9 +7,13 @@ import spark.Response;
 import spark.Route;
 
 public class ClearHandler implements Route{
-    private final ClearService clearService = new ClearService();
+    private final ClearService clearService;
     private final Gson gson = new Gson();
 
+    public ClearHandler(ClearService clearService) {
+        this.clearService = clearService;
+    }
+
     @Override
     public Object handle(Request request, Response result) {
         try {
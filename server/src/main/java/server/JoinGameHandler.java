@@ -11,9 +11,13 @@ import spark.Route;
 import java.util.Objects;
 
 public class JoinGameHandler implements Route{
-    private final GameService gameService = new GameService();
+    private final GameService gameService;
     private final Gson gson = new Gson();
 
+    public JoinGameHandler(GameService gameService) {
+        this.gameService = gameService;
+    }
+
     @Override
     public Object handle(Request request, Response response){
         try{
@@ -1,27 +1,84 @@
 package server;
 
 import com.google.gson.Gson;
+import dataaccess.DataAccessException;
+import model.GameStatus;
+import model.ListGamesRequest;
 import model.ListGamesResult;
 import service.GameService;
 import spark.Request;
 import spark.Response;
 import spark.Route;
 
+/**
+ * GET /game, optionally with query parameters limit, after, status, openSeat and player (see
+ * ListGamesRequest). Without any it lists every game.
+ */
 public class ListGamesHandler implements Route{
-    private final GameService gameService = new GameService();
+    private final GameService gameService;
     private final Gson gson = new Gson();
 
+    public ListGamesHandler(GameService gameService) {
+        this.gameService = gameService;
+    }
+
     @Override
     public Object handle(Request request, Response response){
+        String authToken = request.headers("authorization");
+        //Checked before the query, so a caller who isn't logged in hears that and not what's wrong with it
+        try {
+            gameService.validateAuthToken(authToken);
+        } catch (DataAccessException e) {
+            return unauthorized(response);
+        }
+
+        ListGamesRequest listRequest;
+        try {
+            listRequest = parseRequest(request);
+        } catch (IllegalArgumentException e) {
+            response.status(400);
+            return gson.toJson(new ErrorMessage("Error: bad request"));
+        }
+
         try{
-            String authToken = request.headers("authorization");
-            ListGamesResult result = new ListGamesResult(gameService.listGames(authToken));
+            ListGamesResult result = gameService.listGames(authToken, listRequest);
             response.status(200);
             return gson.toJson(result);
-        } catch (Exception e){
-            response.status(401);
-            return gson.toJson(new ErrorMessage("Error: Unauthorized"));
+        } catch (DataAccessException e){
+            if ("bad request".equals(e.getMessage())) {
+                response.status(400);
+                return gson.toJson(new ErrorMessage("Error: bad request"));
+            }
+            //Logged out since the check above
+            if ("unauthorized".equals(e.getMessage())) {
+                return unauthorized(response);
+            }
+            response.status(500);
+            return gson.toJson(new ErrorMessage("Error: " + e.getMessage()));
+        }
+    }
+
+    private String unauthorized(Response response) {
+        response.status(401);
+        return gson.toJson(new ErrorMessage("Error: Unauthorized"));
+    }
+
+    //Throws IllegalArgumentException (NumberFormatException included) for values that don't parse
+    private static ListGamesRequest parseRequest(Request request) {
+        String limit = request.queryParams("limit");
+        String after = request.queryParams("after");
+        String status = request.queryParams("status");
+        String openSeat = request.queryParams("openSeat");
+        if (openSeat != null && !openSeat.equalsIgnoreCase("true") && !openSeat.equalsIgnoreCase("false")) {
+            throw new IllegalArgumentException("openSeat must be true or false");
         }
+        String player = request.queryParams("player");
+        return new ListGamesRequest(
+                limit == null ? null : Integer.valueOf(limit),
+                after == null ? null : Integer.valueOf(after),
+                status == null ? null : GameStatus.valueOf(status.toUpperCase()),
+                openSeat == null ? null : Boolean.valueOf(openSeat),
+                player == null || player.isBlank() ? null : player);
     }
 
     private record ErrorMessage(String message) {}
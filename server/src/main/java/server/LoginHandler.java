@@ -1,6 +1,7 @@
 package server;
 
 import com.google.gson.Gson;
+import exception.ResponseException;
 import model.LoginRequest;
 import model.LoginResult;
 import service.UserService;
@@ -11,9 +12,13 @@ import spark.Route;
 import java.util.Objects;
 
 public class LoginHandler implements Route {
-    private final UserService userService = new UserService();
+    private final UserService userService;
     private final Gson gson = new Gson();
 
+    public LoginHandler(UserService userService) {
+        this.userService = userService;
+    }
+
     @Override
     public Object handle(Request request, Response result) {
         try {
@@ -22,6 +27,11 @@ public class LoginHandler implements Route {
 
             result.status(200);
             return gson.toJson(loginResult);
+        } catch (ResponseException e) {
+            //Too busy to check the password, the client can try again in a moment
+            result.status(e.statusCode());
+            result.header("Retry-After", "1");
+            return gson.toJson(new ErrorMessage(e.getMessage()));
         } catch (Exception e){
             if(Objects.equals(e.getMessage(), "Error: unauthorized")){
                 result.status(401);
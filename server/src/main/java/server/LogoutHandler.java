@@ -7,9 +7,13 @@ import spark.Response;
 import spark.Route;
 
 public class LogoutHandler implements Route{
-    private final UserService userService = new UserService();
+    private final UserService userService;
     private final Gson gson = new Gson();
 
+    public LogoutHandler(UserService userService) {
+        this.userService = userService;
+    }
+
     @Override
     public Object handle(Request request, Response response) {
         try{
@@ -3,6 +3,7 @@ package server;
 import com.google.gson.Gson;
 import dataaccess.DataAccessException;
 import dataaccess.DatabaseManager;
+import exception.ResponseException;
 import model.*;
 import service.UserService;
 import spark.Request;
@@ -12,9 +13,13 @@ import spark.Route;
 import java.util.Objects;
 
 public class RegisterHandler implements Route{
-    private final UserService userService = new UserService();
+    private final UserService userService;
     private final Gson gson = new Gson();
 
+    public RegisterHandler(UserService userService) {
+        this.userService = userService;
+    }
+
     @Override
     public Object handle(Request request, Response result) {
         try {
@@ -31,6 +36,11 @@ public class RegisterHandler implements Route{
             }
             result.status(400);
             return gson.toJson(new RegisterHandler.ErrorMessage("Error: " + e.getMessage()));
+        } catch (ResponseException e) {
+            //Too busy to hash the password, the client can try again in a moment
+            result.status(e.statusCode());
+            result.header("Retry-After", "1");
+            return gson.toJson(new RegisterHandler.ErrorMessage(e.getMessage()));
         }
     }
 
@@ -1,27 +1,67 @@
 package server;
 
-import dataaccess.DatabaseManager;
+import dataaccess.DataAccess;
+import server.websocket.GameCommandExecutor;
 import server.websocket.WebSocketHandler;
+import service.ClearService;
+import service.GameService;
+import service.PasswordHasher;
+import service.UserService;
 import spark.*;
+import spark.embeddedserver.EmbeddedServers;
+import spark.embeddedserver.jetty.EmbeddedJettyFactory;
 
 public class Server {
+    /**
+     * System property that, when true, runs HTTP requests and WebSocket commands on virtual threads instead
+     * of fixed pools of platform threads
+     */
+    public static final String VIRTUAL_THREADS_PROPERTY = "chess.server.virtualThreads";
+
+    private final DataAccess dataAccess;
+    private WebSocketHandler webSocketHandler;
+    private UserService userService;
+
+    /**
+     * Stores data in the backend named by the chess.storage system property, or when that isn't set by
+     * db.storage in db.properties, MySQL by default (see {@link DataAccess#fromConfig})
+     */
+    public Server() {
+        this(DataAccess.fromConfig());
+    }
+
+    public Server(DataAccess dataAccess) {
+        this.dataAccess = dataAccess;
+    }
 
     public int run(int desiredPort) {
-        DatabaseManager.initializeDatabase();
+        dataAccess.start();
 
+        boolean virtualThreads = Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY);
+        //Set every time, so a server started without the property doesn't keep an earlier run's pool
+        EmbeddedServers.add(EmbeddedServers.Identifiers.JETTY, virtualThreads
+                ? new EmbeddedJettyFactory().withThreadPool(new VirtualThreadPool("http"))
+                : new EmbeddedJettyFactory());
         Spark.port(desiredPort);
         Spark.staticFiles.location("web");
 
-        Spark.webSocket("/ws", new WebSocketHandler());
+        webSocketHandler = new WebSocketHandler(dataAccess.authDAO(), dataAccess.liveGames(),
+                virtualThreads ? GameCommandExecutor.createVirtual() : GameCommandExecutor.create());
+        Spark.webSocket("/ws", webSocketHandler);
+
+        userService = new UserService(dataAccess.userDAO(), dataAccess.authDAO());
+        GameService gameService = new GameService(dataAccess.gameDAO(), dataAccess.authDAO(), dataAccess.liveGames());
+        ClearService clearService = new ClearService(dataAccess.userDAO(), dataAccess.authDAO(), dataAccess.gameDAO(),
+                dataAccess.liveGames());
 
         // Register your endpoints and handle exceptions here.
-        Spark.post("/session", new LoginHandler());
-        Spark.post("/user", new RegisterHandler());
-        Spark.delete("/db", new ClearHandler());
-        Spark.delete("/session", new LogoutHandler());
-        Spark.get("/game", new ListGamesHandler());
-        Spark.post("/game", new CreateGameHandler());
-        Spark.put("/game", new JoinGameHandler());
+        Spark.post("/session", new LoginHandler(userService));
+        Spark.post("/user", new RegisterHandler(userService));
+        Spark.delete("/db", new ClearHandler(clearService));
+        Spark.delete("/session", new LogoutHandler(userService));
+        Spark.get("/game", new ListGamesHandler(gameService));
+        Spark.post("/game", new CreateGameHandler(gameService));
+        Spark.put("/game", new JoinGameHandler(gameService));
 
 
         Spark.awaitInitialization();
@@ -31,5 +71,18 @@ public class Server {
     public void stop() {
         Spark.stop();
         Spark.awaitStop();
+        if (webSocketHandler != null) {
+            //Let commands already queued finish before their moves are saved below
+            webSocketHandler.shutdown();
+        }
+        //Save any moves still waiting before the connections close
+        dataAccess.shutdown();
+        if (userService != null) {
+            PasswordHasher.Stats stats = userService.hashingStats();
+            System.out.printf("Password hashing: %d hashes, %d checks, %d rehashes, %d turned away, %.1f ms average, "
+                            + "%.1f ms max, %.1f ms average wait%n", stats.hashes(), stats.verifications(),
+                    stats.rehashes(), stats.rejected(), stats.averageHashMillis(), stats.maxHashNanos() / 1e6,
+                    stats.averageQueueMillis());
+        }
     }
 }
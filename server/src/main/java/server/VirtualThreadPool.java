@@ -0,0 +1,99 @@
+package server;
+
+import org.eclipse.jetty.util.component.AbstractLifeCycle;
+import org.eclipse.jetty.util.thread.ThreadPool;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Jetty thread pool that runs every task on its own virtual thread, so a burst of slow requests can't use
+ * up a fixed number of platform threads and leave the rest queued.
+ * <p>
+ * A handler waiting for a pooled connection, for a MySQL reply or for a BCrypt hash unmounts its virtual
+ * thread and frees the carrier. That holds because the connection pool and the password hasher wait on
+ * java.util.concurrent locks and queues, and Connector/J 9 guards its socket I/O with ReentrantLock.
+ * The old mysql-connector-java 8.0 driver did that I/O inside synchronized blocks, which on JDK 21 pins the
+ * carrier for the whole call. Code that blocks while holding a monitor still pins, like the file backend's
+ * journal writes, but those are short local disk writes.
+ * <p>
+ * There is no limit on threads. What bounds the load is the database connection pool, whose borrowers
+ * wait in line for a connection.
+ */
+public class VirtualThreadPool extends AbstractLifeCycle implements ThreadPool {
+    private final String name;
+    private final AtomicInteger running = new AtomicInteger();
+    private volatile ExecutorService executor;
+
+    /**
+     * @param name prefix for the threads' names
+     */
+    public VirtualThreadPool(String name) {
+        this.name = name;
+    }
+
+    @Override
+    protected void doStart() throws Exception {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+        super.doStart();
+    }
+
+    @Override
+    protected void doStop() throws Exception {
+        super.doStop();
+        ExecutorService stopping = executor;
+        executor = null;
+        if (stopping != null) {
+            stopping.shutdown();
+            if (!stopping.awaitTermination(5, TimeUnit.SECONDS)) {
+                stopping.shutdownNow();
+            }
+        }
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        ExecutorService current = executor;
+        if (current == null) {
+            throw new RejectedExecutionException("Thread pool " + name + " is not running");
+        }
+        current.execute(() -> {
+            running.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                running.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public void join() throws InterruptedException {
+        ExecutorService current = executor;
+        if (current != null) {
+            current.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * @return the tasks running right now, each on its own thread
+     */
+    @Override
+    public int getThreads() {
+        return running.get();
+    }
+
+    //Threads are made for each task and never wait around for work
+    @Override
+    public int getIdleThreads() {
+        return 0;
+    }
+
+    @Override
+    public boolean isLowOnThreads() {
+        return false;
+    }
+}
@@ -2,20 +2,36 @@ package server.websocket;
 
 import org.eclipse.jetty.websocket.api.Session;
 
-import java.io.IOException;
-
 public class Connection {
     public String visitorName;
     public int gameID;
     public Session session;
+    //Whether the client takes MOVE_APPLIED after a move instead of the whole game
+    public final boolean moveDeltas;
+    //Shared by every connection on the session, so its messages stay in order across games
+    private final OutboundQueue outbound;
 
-    public Connection(String visitorName, int gameID, Session session) {
+    Connection(String visitorName, int gameID, Session session, boolean moveDeltas, OutboundQueue outbound) {
         this.visitorName = visitorName;
         this.session = session;
         this.gameID = gameID;
+        this.moveDeltas = moveDeltas;
+        this.outbound = outbound;
+    }
+
+    /**
+     * Queues a message for the session without waiting for it to be sent
+     *
+     * @return false if the session is closed, or was closed for falling too far behind
+     */
+    public boolean send(String msg) {
+        return outbound.enqueue(msg, null);
     }
 
-    public void send(String msg) throws IOException {
-        session.getRemote().sendString(msg);
+    /**
+     * Queues this game's latest state, replacing any earlier state of it still waiting to be sent
+     */
+    public boolean sendGameState(String msg) {
+        return outbound.enqueue(msg, gameID);
     }
 }
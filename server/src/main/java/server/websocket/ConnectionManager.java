@@ -3,37 +3,181 @@ package server.websocket;
 import org.eclipse.jetty.websocket.api.Session;
 import websocket.messages.*;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
 
+/**
+ * The WebSocket sessions connected to each game. Every game with someone connected has a room, so a
+ * broadcast only visits the sessions in that game. A user can have several sessions, in the same game or in
+ * different ones, and each is tracked on its own.
+ * <p>
+ * Sends don't block: each session has an {@link OutboundQueue} of at most {@code queueCapacity} messages,
+ * and a client too slow to drain it is disconnected rather than holding up everyone else in the game.
+ */
 public class ConnectionManager {
-    public final ConcurrentHashMap<String, Connection> connections = new ConcurrentHashMap<>();
+    /** System property for the most messages a session can have waiting */
+    public static final String QUEUE_CAPACITY_PROPERTY = "chess.ws.sendQueueSize";
+    public static final int DEFAULT_QUEUE_CAPACITY = 64;
+
+    //gameID -> the game's room, session -> connection
+    private final ConcurrentHashMap<Integer, Map<Session, Connection>> rooms = new ConcurrentHashMap<>();
+    //session -> the games it is connected to, so a closed session can be removed from all its rooms
+    private final ConcurrentHashMap<Session, Set<Integer>> sessionGames = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Session, OutboundQueue> outbound = new ConcurrentHashMap<>();
+    private final int queueCapacity;
+
+    /**
+     * Uses the queue capacity from the chess.ws.sendQueueSize system property
+     */
+    public ConnectionManager() {
+        this(Integer.getInteger(QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY));
+    }
+
+    public ConnectionManager(int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    private OutboundQueue queue(Session session) {
+        return outbound.computeIfAbsent(session, s -> new OutboundQueue(s, queueCapacity));
+    }
+
+    /**
+     * Registers a session that just opened, so it can be answered before it joins a game
+     */
+    public void open(Session session) {
+        queue(session);
+    }
 
     public void add(String playerName, int gameID, Session session){
-        var connection = new Connection(playerName, gameID, session);
-        connections.put(playerName, connection);
+        add(playerName, gameID, session, false);
     }
 
-    public void remove(String visitorName) {
-        connections.remove(visitorName);
+    /**
+     * @param moveDeltas whether the session takes MOVE_APPLIED after each move instead of the whole game
+     */
+    public void add(String playerName, int gameID, Session session, boolean moveDeltas){
+        var connection = new Connection(playerName, gameID, session, moveDeltas, queue(session));
+        sessionGames.computeIfAbsent(session, s -> ConcurrentHashMap.newKeySet()).add(gameID);
+        //compute, so this can't race with the last session leaving and the room being dropped as empty
+        rooms.compute(gameID, (id, room) -> {
+            if (room == null) {
+                room = new ConcurrentHashMap<>();
+            }
+            room.put(session, connection);
+            return room;
+        });
+    }
+
+    /**
+     * Takes the session out of the game's room, for when it leaves the game
+     */
+    public void remove(int gameID, Session session) {
+        removeFromRoom(gameID, session);
+        sessionGames.computeIfPresent(session, (s, games) -> {
+            games.remove(gameID);
+            return games.isEmpty() ? null : games;
+        });
+    }
+
+    /**
+     * Takes the session out of every room, for when it closes
+     */
+    public void removeSession(Session session) {
+        OutboundQueue queue = outbound.remove(session);
+        if (queue != null) {
+            queue.close();
+        }
+        Set<Integer> games = sessionGames.remove(session);
+        if (games != null) {
+            for (int gameID : games) {
+                removeFromRoom(gameID, session);
+            }
+        }
+    }
+
+    private void removeFromRoom(int gameID, Session session) {
+        rooms.computeIfPresent(gameID, (id, room) -> {
+            room.remove(session);
+            return room.isEmpty() ? null : room;
+        });
+    }
+
+    /**
+     * @return the connections in the game's room
+     */
+    public Set<Connection> connections(int gameID) {
+        Map<Session, Connection> room = rooms.get(gameID);
+        return room == null ? Collections.emptySet() : Set.copyOf(room.values());
+    }
+
+    /**
+     * Queues a message for one session, whether or not it is in a game. The message is dropped if the
+     * session has already been removed, like a reply to a command that ran after the socket closed.
+     */
+    public void send(Session session, ServerMessage serverMessage) {
+        //Looked up rather than created, a queue made here would never be removed
+        OutboundQueue queue = outbound.get(session);
+        if (queue != null && !queue.enqueue(serverMessage.toString(), null)) {
+            removeSession(session);
+        }
+    }
+
+    public void broadcast(int gameID, String excludePlayerName, ServerMessage serverMessage) {
+        if (rooms.containsKey(gameID)) {
+            broadcastEncoded(gameID, excludePlayerName, serverMessage.toString(),
+                    serverMessage.getServerMessageType() == ServerMessage.ServerMessageType.LOAD_GAME);
+        }
+    }
+
+    /**
+     * Sends an already encoded message to everyone in the game's room but the excluded player. Every
+     * session gets the same string, so a message is encoded once however many are watching.
+     *
+     * @param gameState whether the message is the game's full state, which a newer state can replace
+     */
+    public void broadcastEncoded(int gameID, String excludePlayerName, String json, boolean gameState) {
+        Map<Session, Connection> room = rooms.get(gameID);
+        if (room != null) {
+            deliver(room.values(), c -> c.visitorName.equals(excludePlayerName)
+                    || (gameState ? c.sendGameState(json) : c.send(json)));
+        }
+    }
+
+    /**
+     * Sends everyone in the game's room the move just made: the move alone to sessions that asked for
+     * moves, and the whole game to the rest. Each form is encoded only if someone in the room needs it.
+     */
+    public void broadcastMove(int gameID, LoadGameMessage state, MoveAppliedMessage move) {
+        Map<Session, Connection> room = rooms.get(gameID);
+        if (room == null) {
+            return;
+        }
+        //A copy, so someone joining part way through can't be sent a form that wasn't encoded
+        List<Connection> members = List.copyOf(room.values());
+        String stateJson = members.stream().allMatch(c -> c.moveDeltas) ? null : state.toString();
+        String moveJson = members.stream().noneMatch(c -> c.moveDeltas) ? null : move.toString();
+        //Moves all have to arrive, so unlike the game state a queued one is never replaced
+        deliver(members, c -> c.moveDeltas ? c.send(moveJson) : c.sendGameState(stateJson));
     }
 
-    public void broadcast(int gameID, String excludePlayerName, ServerMessage serverMessage) throws IOException {
+    //Sends to each open session in the room, send returning false for the ones that couldn't take it
+    private void deliver(Collection<Connection> members, Predicate<Connection> send) {
         var removeList = new ArrayList<Connection>();
-        for (var c : connections.values()) {
-            if (c.session.isOpen()) {
-                if (!c.visitorName.equals(excludePlayerName) && c.gameID == gameID) {
-                    c.send(serverMessage.toString());
-                }
-            } else {
+        for (var c : members) {
+            if (!c.session.isOpen() || !send.test(c)) {
                 removeList.add(c);
             }
         }
 
-        // Clean up any connections that were left open.
+        // Clean up any sessions that closed without us hearing about it, or that we closed for being too slow.
         for (var c : removeList) {
-            connections.remove(c.visitorName);
+            removeSession(c.session);
         }
     }
 }
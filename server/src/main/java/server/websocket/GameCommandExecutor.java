@@ -0,0 +1,97 @@
+package server.websocket;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs WebSocket commands one game at a time: commands for the same game run in the order they were
+ * submitted, never two at once, while commands for different games run in parallel on a shared pool.
+ * <p>
+ * Each game with commands waiting has a mailbox, the future of its last submitted command. A new command is
+ * chained onto it, and the mailbox is dropped once the chain runs dry, so idle games cost nothing.
+ */
+public class GameCommandExecutor {
+    /** System property for the number of worker threads */
+    public static final String THREADS_PROPERTY = "chess.ws.workerThreads";
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final ExecutorService workers;
+    private final Map<Integer, CompletableFuture<Void>> mailboxes = new ConcurrentHashMap<>();
+
+    public GameCommandExecutor(ExecutorService workers) {
+        this.workers = workers;
+    }
+
+    /**
+     * @return an executor with the number of worker threads from the chess.ws.workerThreads system property,
+     * by default two per core since commands spend part of their time waiting on the database
+     */
+    public static GameCommandExecutor create() {
+        int threads = Integer.getInteger(THREADS_PROPERTY, Math.max(4, 2 * Runtime.getRuntime().availableProcessors()));
+        AtomicInteger count = new AtomicInteger();
+        return new GameCommandExecutor(Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "ws-game-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }));
+    }
+
+    /**
+     * @return an executor that runs each command on its own virtual thread, so commands waiting on the
+     * database don't need a worker thread each. Commands for one game still run one at a time.
+     */
+    public static GameCommandExecutor createVirtual() {
+        return new GameCommandExecutor(Executors.newThreadPerTaskExecutor(
+                Thread.ofVirtual().name("ws-game-worker-", 1).factory()));
+    }
+
+    /**
+     * Queues a command behind the game's earlier ones. A command that throws is logged, it doesn't stop the
+     * ones after it.
+     */
+    public void execute(int gameID, Runnable command) {
+        //A rejected command (after shutdown) fails its future, the ones after it still have to run
+        CompletableFuture<Void> next = mailboxes.compute(gameID, (id, last) -> (last == null ? IDLE
+                : last.exceptionally(error -> null)).thenRunAsync(() -> runQuietly(command), workers));
+        //Only the last command's future can clear the mailbox, a newer one may have been chained on since.
+        //Registered outside compute, since it runs right here if the command has already finished
+        next.whenComplete((ignored, error) -> mailboxes.remove(gameID, next));
+    }
+
+    private static void runQuietly(Runnable command) {
+        try {
+            command.run();
+        } catch (RuntimeException e) {
+            System.err.println("Error running game command: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * @return how many games have commands queued or running
+     */
+    public int activeGames() {
+        return mailboxes.size();
+    }
+
+    /**
+     * Stops taking commands and waits briefly for the queued ones to finish
+     */
+    public void shutdown() {
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package server.websocket;
+
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.StatusCode;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The messages waiting to go out on one WebSocket session. Messages are sent asynchronously, one at a time
+ * in the order they were queued, so whoever queues one never waits on the client.
+ * <p>
+ * A client that reads slower than messages arrive is handled in two steps. A queued game state (LOAD_GAME)
+ * is replaced by a newer one for the same game, since only the latest state matters. If the queue still
+ * fills up, the client can't keep up at all, and the session is closed.
+ */
+class OutboundQueue implements WriteCallback {
+    //gameID is set for game states, which a newer state of the same game replaces
+    private record Frame(String json, Integer gameID) {
+    }
+
+    private final Session session;
+    private final int capacity;
+    private final List<Frame> pending = new ArrayList<>();
+    private boolean sending;
+    private boolean closed;
+    private long replaced;
+
+    OutboundQueue(Session session, int capacity) {
+        this.session = session;
+        this.capacity = capacity;
+    }
+
+    /**
+     * Queues a message for the session
+     *
+     * @param gameID the game whose state the message carries, or null for messages that must all arrive
+     * @return false if the session is closed, or was just closed because its queue overflowed
+     */
+    boolean enqueue(String json, Integer gameID) {
+        Frame toSend = null;
+        boolean overflowed = false;
+        synchronized (this) {
+            if (closed) {
+                return false;
+            }
+            if (gameID != null && replaceState(json, gameID)) {
+                return true;
+            }
+            if (pending.size() >= capacity) {
+                closed = true;
+                overflowed = true;
+                pending.clear();
+            } else {
+                pending.add(new Frame(json, gameID));
+                if (!sending) {
+                    sending = true;
+                    toSend = pending.remove(0);
+                }
+            }
+        }
+        if (overflowed) {
+            System.err.println("Closing WebSocket session that fell " + capacity + " messages behind");
+            session.close(StatusCode.POLICY_VIOLATION, "Too slow, outbound queue full");
+            return false;
+        }
+        if (toSend != null) {
+            write(toSend);
+        }
+        return true;
+    }
+
+    //Called holding the lock
+    private boolean replaceState(String json, int gameID) {
+        for (int i = 0; i < pending.size(); i++) {
+            if (pending.get(i).gameID() != null && pending.get(i).gameID() == gameID) {
+                pending.set(i, new Frame(json, gameID));
+                replaced++;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void write(Frame frame) {
+        try {
+            session.getRemote().sendString(frame.json(), this);
+        } catch (RuntimeException e) {
+            writeFailed(e);
+        }
+    }
+
+    @Override
+    public void writeSuccess() {
+        Frame next;
+        synchronized (this) {
+            if (closed || pending.isEmpty()) {
+                sending = false;
+                return;
+            }
+            next = pending.remove(0);
+        }
+        write(next);
+    }
+
+    @Override
+    public void writeFailed(Throwable error) {
+        synchronized (this) {
+            closed = true;
+            sending = false;
+            pending.clear();
+        }
+        System.err.println("Error sending WebSocket message, dropping the session's queue: " + error.getMessage());
+    }
+
+    /**
+     * Drops everything still queued, for when the session has closed
+     */
+    synchronized void close() {
+        closed = true;
+        pending.clear();
+    }
+
+    /**
+     * @return how many messages are waiting, not counting one being sent
+     */
+    synchronized int size() {
+        return pending.size();
+    }
+
+    /**
+     * @return how many game states were replaced by newer ones before they were sent
+     */
+    synchronized long replaced() {
+        return replaced;
+    }
+}
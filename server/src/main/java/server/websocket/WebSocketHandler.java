@@ -6,38 +6,65 @@ import com.google.gson.Gson;
 import dataaccess.*;
 import model.*;
 import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketClose;
+import org.eclipse.jetty.websocket.api.annotations.OnWebSocketConnect;
 import org.eclipse.jetty.websocket.api.annotations.OnWebSocketMessage;
 import org.eclipse.jetty.websocket.api.annotations.WebSocket;
 import websocket.commands.*;
 import websocket.messages.*;
 import chess.ChessGame;
+import chess.GameOutcome;
 
-import java.io.IOException;
 import java.util.Objects;
 
 @WebSocket
 public class WebSocketHandler {
 
-    private final MySQLAuthDAO authDAO;
-    private final MySQLGameDAO gameDAO;
+    private final AuthDAO authDAO;
+    private final LiveGameRegistry liveGames;
     private final ConnectionManager connectionManager;
+    //Commands for one game run one at a time, in the order they arrived
+    private final GameCommandExecutor gameCommands;
     private final Gson gson = new Gson();
 
     //private final ConnectionManager connections = new ConnectionManager();
 
-    public WebSocketHandler(){
-        this.authDAO = new MySQLAuthDAO();
-        this.gameDAO = new MySQLGameDAO();
+    /**
+     * @param authDAO      the same one the HTTP handlers use, so logouts are seen here
+     * @param liveGames    the same registry the HTTP handlers use, so everyone shares one copy of a game
+     * @param gameCommands runs each game's commands in order, the handler shuts it down with {@link #shutdown}
+     */
+    public WebSocketHandler(AuthDAO authDAO, LiveGameRegistry liveGames, GameCommandExecutor gameCommands){
+        this.authDAO = authDAO;
+        this.liveGames = liveGames;
         // this.gameService = new GameService(gameDAO, authDAO);
         this.connectionManager = new ConnectionManager();
+        this.gameCommands = gameCommands;
+    }
+
+    /**
+     * Stops running commands, for when the server stops
+     */
+    public void shutdown() {
+        gameCommands.shutdown();
     }
 
 
+    @OnWebSocketConnect
+    public void onConnect(Session session) {
+        connectionManager.open(session);
+    }
+
+    @OnWebSocketClose
+    public void onClose(Session session, int statusCode, String reason) {
+        connectionManager.removeSession(session);
+    }
+
     @OnWebSocketMessage
-    public void onMessage(Session session, String messageJson) throws IOException {
+    public void onMessage(Session session, String messageJson) {
         UserGameCommand command = null;
         try {
-            command = new Gson().fromJson(messageJson, UserGameCommand.class);
+            command = gson.fromJson(messageJson, UserGameCommand.class);
         } catch (Exception e) {
             wsSessionError(session, "Error: Invalid command format.");
             return;
@@ -66,20 +93,31 @@ public class WebSocketHandler {
             return;
         }
 
+        //Commands without a game are errors anyway, there's nothing to order them against
+        Integer gameID = command.getGameID();
+        if (gameID == null) {
+            runCommand(command, username, messageJson, session);
+            return;
+        }
+        UserGameCommand queued = command;
+        String queuedUsername = username;
+        gameCommands.execute(gameID, () -> runCommand(queued, queuedUsername, messageJson, session));
+    }
+
+    private void runCommand(UserGameCommand command, String username, String messageJson, Session session) {
         try {
             switch (command.getCommandType()) {
                 case CONNECT -> connectUser(username, messageJson, session);
                 case MAKE_MOVE -> makeMoveHandler(username, messageJson, session);
                 case LEAVE -> leaveHandler(username, messageJson, session);
                 case RESIGN -> handleResign(username, messageJson, session);
+                case RESYNC -> resyncHandler(messageJson, session);
                 default -> wsSessionError(session, "Error: Unknown command type received: " + command.getCommandType());
             }
         } catch (DataAccessException e) {
             wsSessionError(session, "Error: Database error during command execution: " + e.getMessage());
         } catch (InvalidMoveException e) {
             wsSessionError(session, "Error: Invalid move - " + e.getMessage());
-        } catch (IOException e) {
-            System.err.println("IOException sending message for user " + username + ": " + e.getMessage());
         } catch (Exception e) {
             wsSessionError(session, "Error: Unexpected server error during command execution: " + e.getMessage());
             e.printStackTrace();
@@ -87,8 +125,8 @@ public class WebSocketHandler {
     }
 
 
-    private void connectUser(String playerName, String messageJson, Session session) throws IOException, DataAccessException{
-        UserGameCommand connectCommand = new Gson().fromJson(messageJson, UserGameCommand.class);
+    private void connectUser(String playerName, String messageJson, Session session) throws DataAccessException{
+        ConnectCommand connectCommand = gson.fromJson(messageJson, ConnectCommand.class);
         //String authToken = connectCommand.authToken();
         Integer gameID = connectCommand.getGameID();
 
@@ -96,7 +134,7 @@ public class WebSocketHandler {
             wsSessionError(session, "Error: Game ID is required to execute CONNECT ws command");
             return;
         }
-        GameData gameData = gameDAO.getGame(gameID);
+        GameData gameData = liveGames.getGame(gameID);
         if (gameData == null){
             wsSessionError(session, "Error: Game " + gameID + " does not exist!");
             return;
@@ -110,11 +148,11 @@ public class WebSocketHandler {
             userRole = "observer";
         }
 
-        connectionManager.add(playerName, gameID, session);
+        connectionManager.add(playerName, gameID, session, connectCommand.wantsMoveDeltas());
 
         //Sending LOAD_GAME ws message to ROOT CLIENT ONLY
         LoadGameMessage loadGameMessage = new LoadGameMessage(gameData.game());
-        session.getRemote().sendString(gson.toJson(loadGameMessage));
+        connectionManager.send(session, loadGameMessage);
 
         //Sending NOTIFICATION to all other clients in that chess game
         String notifString = String.format("%s joined the game as %s", playerName, userRole);
@@ -122,8 +160,8 @@ public class WebSocketHandler {
         connectionManager.broadcast(gameID, playerName, notification);
     }
 
-    private void makeMoveHandler(String playerName, String messageJson, Session session) throws IOException,
-            DataAccessException, InvalidMoveException {
+    private void makeMoveHandler(String playerName, String messageJson, Session session) throws DataAccessException,
+            InvalidMoveException {
 
         MakeMoveCommand moveCommand = gson.fromJson(messageJson, MakeMoveCommand.class);
         Integer gameID = moveCommand.getGameID();
@@ -134,7 +172,7 @@ public class WebSocketHandler {
             return;
         }
 
-        GameData gameData = gameDAO.getGame(gameID);
+        GameData gameData = liveGames.getGame(gameID);
         if (gameData == null) {
             wsSessionError(session, "Error: Game " + gameID + " does not exist");
             return;
@@ -151,56 +189,56 @@ public class WebSocketHandler {
             return;
         }
 
+        //The game is the live copy other commands and the database writer share, so change it under its lock
         ChessGame currentGame = gameData.game();
-        if (currentGame.getTeamTurn() != playerColor) {
-            wsSessionError(session, "It is not your turn. Please wait.");
-            return;
+        GameOutcome outcome;
+        int ply;
+        long positionKey;
+        synchronized (currentGame) {
+            if (currentGame.getTeamTurn() != playerColor) {
+                wsSessionError(session, "It is not your turn. Please wait.");
+                return;
+            }
+
+            currentGame.makeMove(move);
+            //One pass over the opponent's moves tells us check, mate and stalemate together
+            outcome = currentGame.evaluate();
+            ply = currentGame.getMoveCount();
+            positionKey = currentGame.getPositionKey();
         }
 
-        currentGame.makeMove(move);
-
-        //Update game in DAO
-        GameData updatedGameData = new GameData(
-                gameData.gameID(),
-                gameData.whiteUsername(),
-                gameData.blackUsername(),
-                gameData.gameName(),
-                currentGame,
-                gameData.status()
-        );
-        gameDAO.updateGame(updatedGameData);
-
-        boolean gameEnded = false;
-        String endMessage = null;
+        //Saved in the background, the game end below saves it straight away
+        liveGames.recordMove(gameData, move, ply);
+
         ChessGame.TeamColor opponentColor = (playerColor == ChessGame.TeamColor.WHITE) ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE;
 
-        if (currentGame.isInCheckmate(opponentColor)) {
-            gameEnded = true;
-            endMessage = String.format("Checkmate! %s (%s) wins.", playerName, playerColor);
-            gameDAO.updateGameStatus(gameID, GameStatus.FINISHED);
-        } else if (currentGame.isInStalemate(opponentColor)) {
-            gameEnded = true;
-            endMessage = "Stalemate! The game is a draw.";
-            gameDAO.updateGameStatus(gameID, GameStatus.FINISHED);
-        } else if (currentGame.isInCheck(opponentColor)) {
+        String endMessage = switch (outcome) {
+            case CHECKMATE -> String.format("Checkmate! %s (%s) wins.", playerName, playerColor);
+            case STALEMATE -> "Stalemate! The game is a draw.";
+            case DRAW_BY_REPETITION -> "Threefold repetition! The game is a draw.";
+            case DRAW_BY_FIFTY_MOVE_RULE -> "Fifty moves without a capture or pawn move! The game is a draw.";
+            case CHECK, ONGOING -> null;
+        };
+        if (outcome.isGameOver()) {
+            liveGames.finishGame(gameID, GameStatus.FINISHED);
+        } else if (outcome == GameOutcome.CHECK) {
             // Send check notification if game didn't end
             String checkMessage = String.format("%s is now in check!", opponentColor);
             broadcastNotification(gameID, null, checkMessage); // Notify everyone
         }
 
-
         //Broadcast game state
-        broadcastGameUpdate(gameID, currentGame);
+        broadcastGameUpdate(gameID, currentGame, new MoveAppliedMessage(move, ply, positionKey));
 
         String moveNotification = String.format("%s made move %s.", playerName, move.toString()); // Use ChessMove.toString()
         broadcastNotification(gameID, playerName, moveNotification);
 
-        if (gameEnded && endMessage != null) {
+        if (endMessage != null) {
             broadcastNotification(gameID, null, endMessage);
         }
     }
 
-    private void leaveHandler(String playerName, String messageJson, Session session) throws DataAccessException, IOException {
+    private void leaveHandler(String playerName, String messageJson, Session session) throws DataAccessException {
         LeaveCommand leaveCmd = gson.fromJson(messageJson, LeaveCommand.class);
         Integer gameID = leaveCmd.getGameID();
 
@@ -210,39 +248,48 @@ public class WebSocketHandler {
         }
 
         try {
-            GameData gameData = gameDAO.getGame(gameID);
-
-            if (gameData != null) {
-                GameData updatedGameData = null;
-                boolean playerLeft = false;
-
-
+            //Read and changed under the game's lock, so a join over HTTP at the same time isn't lost
+            liveGames.updateGame(gameID, gameData -> {
                 if (Objects.equals(playerName, gameData.whiteUsername())) {
-                    updatedGameData = new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(), gameData.game(), gameData.status());
-                    playerLeft = true;
+                    System.out.println("Updated game ID " + gameID + " - removed player " + playerName);
+                    return new GameData(gameID, null, gameData.blackUsername(), gameData.gameName(), gameData.game(), gameData.status());
                 } else if (Objects.equals(playerName, gameData.blackUsername())) {
-                    updatedGameData = new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(), gameData.game(), gameData.status());
-                    playerLeft = true;
-                }
-
-                if (playerLeft && updatedGameData != null) {
-                    gameDAO.updateGame(updatedGameData);
                     System.out.println("Updated game ID " + gameID + " - removed player " + playerName);
+                    return new GameData(gameID, gameData.whiteUsername(), null, gameData.gameName(), gameData.game(), gameData.status());
                 }
-            }
+                return null;
+            });
         } catch (DataAccessException e) {
             System.err.println("Database error trying to update game during leave for user " + playerName + " game "
                     + gameID + ": " + e.getMessage());
         }
 
-        connectionManager.remove(playerName);
+        connectionManager.remove(gameID, session);
 
         String notificationText = String.format("%s left the game.", playerName);
         NotificationMessage notification = new NotificationMessage(notificationText);
         connectionManager.broadcast(gameID, playerName, notification);
     }
 
-    private void handleResign(String username, String messageJson, Session session) throws DataAccessException, IOException {
+    //Sends the whole game to a client whose copy went out of step with the server's
+    private void resyncHandler(String messageJson, Session session) throws DataAccessException {
+        ResyncCommand resyncCmd = gson.fromJson(messageJson, ResyncCommand.class);
+        Integer gameID = resyncCmd.getGameID();
+
+        if (gameID == null) {
+            wsSessionError(session, "Error: Game ID missing for RESYNC command.");
+            return;
+        }
+
+        GameData gameData = liveGames.getGame(gameID);
+        if (gameData == null) {
+            wsSessionError(session, "Error: Game not found (ID: " + gameID + ").");
+            return;
+        }
+        connectionManager.send(session, new LoadGameMessage(gameData.game()));
+    }
+
+    private void handleResign(String username, String messageJson, Session session) throws DataAccessException {
         ResignCommand resignCmd = gson.fromJson(messageJson, ResignCommand.class);
         Integer gameID = resignCmd.getGameID();
 
@@ -251,7 +298,7 @@ public class WebSocketHandler {
             return;
         }
 
-        GameData gameData = gameDAO.getGame(gameID);
+        GameData gameData = liveGames.getGame(gameID);
         if (gameData == null) {
             wsSessionError(session, "Error: Game not found (ID: " + gameID + ").");
             return;
@@ -268,7 +315,7 @@ public class WebSocketHandler {
             return;
         }
 
-        gameDAO.updateGameStatus(gameID, GameStatus.FINISHED);
+        liveGames.finishGame(gameID, GameStatus.FINISHED);
         System.out.println("Game ID " + gameID + " marked as finished due to resignation by " + username);
 
         String notificationText = String.format("%s (%s) has resigned. The game is over.", username, resigningColor);
@@ -287,12 +334,11 @@ public class WebSocketHandler {
         return null;
     }
 
-    private void broadcastGameUpdate(Integer gameID, ChessGame game) throws IOException {
-        LoadGameMessage loadGameMsg = new LoadGameMessage(game);
-        connectionManager.broadcast(gameID, null, loadGameMsg);
+    private void broadcastGameUpdate(Integer gameID, ChessGame game, MoveAppliedMessage move) {
+        connectionManager.broadcastMove(gameID, new LoadGameMessage(game), move);
     }
 
-    private void broadcastNotification(Integer gameID, String excludePlayer, String messageText) throws IOException {
+    private void broadcastNotification(Integer gameID, String excludePlayer, String messageText) {
         NotificationMessage notification = new NotificationMessage(messageText);
         connectionManager.broadcast(gameID, excludePlayer, notification);
     }
@@ -301,9 +347,8 @@ public class WebSocketHandler {
     private void wsSessionError(Session session, String errorMessage) {
         try {
             if (session != null && session.isOpen()) {
-                ErrorMessage errorMsg = new ErrorMessage(errorMessage);
-                String errorJsonString = gson.toJson(errorMsg);
-                session.getRemote().sendString(errorJsonString);
+                //Through the session's queue, so it can't overtake or collide with messages already going out
+                connectionManager.send(session, new ErrorMessage(errorMessage));
             } else {
                 System.err.println("Attempted to send error to closed/null session: " + errorMessage);
             }
@@ -1,11 +1,29 @@
 package service;
 
-import dataaccess.DatabaseManager;
-import dataaccess.DataAccessException;
+import dataaccess.*;
 
 public class ClearService {
+    private final UserDAO userDAO;
+    private final AuthDAO authDAO;
+    private final GameDAO gameDAO;
+    private final LiveGameRegistry liveGames;
+
+    /**
+     * @param liveGames the registry in front of gameDAO
+     */
+    public ClearService(UserDAO userDAO, AuthDAO authDAO, GameDAO gameDAO, LiveGameRegistry liveGames) {
+        this.userDAO = userDAO;
+        this.authDAO = authDAO;
+        this.gameDAO = gameDAO;
+        this.liveGames = liveGames;
+    }
 
     public void clear() throws DataAccessException{
-        DatabaseManager.clear();
+        //Forget live games first so none of them get written back over the cleared tables
+        liveGames.clear();
+        //Tokens and games refer to users, so they go first
+        authDAO.clear();
+        gameDAO.clear();
+        userDAO.clear();
     }
 }
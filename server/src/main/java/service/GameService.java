@@ -5,20 +5,50 @@ import dataaccess.*;
 import model.AuthData;
 import model.GameData;
 import model.GameStatus;
-
-import javax.xml.crypto.Data;
+import model.GameSummary;
+import model.ListGamesRequest;
+import model.ListGamesResult;
 import java.util.List;
 import java.util.Objects;
 
 public class GameService {
-//    private final GameDAO gameDAO = GameDAO.getInstance();
-//    private final AuthDAO authDAO = AuthDAO.getInstance();
-    private final MySQLGameDAO mySQLGameDAO = MySQLGameDAO.getInstance();
-    private final MySQLAuthDAO mySQLAuthDAO = MySQLAuthDAO.getInstance();
+    /** Most games one page of the game list can ask for */
+    public static final int MAX_PAGE_SIZE = 100;
+
+    private final GameDAO gameDAO;
+    private final AuthDAO authDAO;
+    //Games being played live in memory ahead of the database, reads and writes of them go through here
+    private final LiveGameRegistry liveGames;
+
+    /**
+     * @param liveGames the registry in front of gameDAO
+     */
+    public GameService(GameDAO gameDAO, AuthDAO authDAO, LiveGameRegistry liveGames) {
+        this.gameDAO = gameDAO;
+        this.authDAO = authDAO;
+        this.liveGames = liveGames;
+    }
 
-    public List<GameData> listGames(String authToken) throws DataAccessException{
+    /**
+     * Lists games for the lobby from the database's summary columns, filtered and paged by the request
+     */
+    public ListGamesResult listGames(String authToken, ListGamesRequest request) throws DataAccessException {
         validateAuthToken(authToken);
-        return mySQLGameDAO.listGames();
+        Integer limit = request.limit();
+        if ((limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) || (request.after() != null && request.after() < 0)) {
+            throw new DataAccessException("bad request");
+        }
+        if (limit == null) {
+            return new ListGamesResult(gameDAO.listGameSummaries(request, 0), null);
+        }
+
+        //One extra row tells us whether there's another page without counting the rest
+        List<GameSummary> games = gameDAO.listGameSummaries(request, limit + 1);
+        if (games.size() <= limit) {
+            return new ListGamesResult(games, null);
+        }
+        List<GameSummary> page = games.subList(0, limit);
+        return new ListGamesResult(page, page.get(limit - 1).gameID());
     }
 
     public GameData createGame(String authToken, String gameName) throws DataAccessException{
@@ -26,7 +56,7 @@ public class GameService {
         if(gameName == null || gameName.isBlank()){
             throw new DataAccessException("bad Request");
         }
-        return mySQLGameDAO.createGame(gameName);
+        return gameDAO.createGame(gameName);
     }
 
     public void joinGame(String authToken, int gameID, String playerColor) throws DataAccessException {
@@ -36,40 +66,37 @@ public class GameService {
             throw new DataAccessException("bad request");
         }
 
-        GameData game = mySQLGameDAO.getGame(gameID);
-        if (game == null) {
-            throw new DataAccessException("bad request");
-        }
-
-        if (playerColor == null || playerColor.isBlank()) {
-            throw new DataAccessException("bad request");
-        }
-
-        GameStatus currentStatus = game.status();
-        GameData updatedGame;
-
-        if ("WHITE".equalsIgnoreCase(playerColor)) {
-            if (game.whiteUsername() != null && !game.whiteUsername().equals(authData.username())) {
-                throw new DataAccessException("already taken");
+        //Checked and saved under the game's lock, so two players can't both take the same seat
+        liveGames.updateGame(gameID, game -> {
+            if (playerColor == null || playerColor.isBlank()) {
+                throw new DataAccessException("bad request");
             }
-            updatedGame = new GameData(game.gameID(), authData.username(), game.blackUsername(), game.gameName(), game.game(), currentStatus);
-        } else if ("BLACK".equalsIgnoreCase(playerColor)) {
-            if (game.blackUsername() != null && !game.blackUsername().equals(authData.username())) {
-                throw new DataAccessException("already taken");
-            }
-            updatedGame = new GameData(game.gameID(), game.whiteUsername(), authData.username(), game.gameName(), game.game(), currentStatus);
-        } else {
-            throw new DataAccessException("bad request");
-        }
 
-        mySQLGameDAO.updateGame(updatedGame);
+            if ("WHITE".equalsIgnoreCase(playerColor)) {
+                if (game.whiteUsername() != null && !game.whiteUsername().equals(authData.username())) {
+                    throw new DataAccessException("already taken");
+                }
+                return new GameData(game.gameID(), authData.username(), game.blackUsername(), game.gameName(), game.game(), game.status());
+            } else if ("BLACK".equalsIgnoreCase(playerColor)) {
+                if (game.blackUsername() != null && !game.blackUsername().equals(authData.username())) {
+                    throw new DataAccessException("already taken");
+                }
+                return new GameData(game.gameID(), game.whiteUsername(), authData.username(), game.gameName(), game.game(), game.status());
+            } else {
+                throw new DataAccessException("bad request");
+            }
+        });
     }
 
 
 
-    private AuthData validateAuthToken(String authToken) throws DataAccessException {
+    /**
+     * @return the token's user
+     * @throws DataAccessException with the message "unauthorized" if the token isn't valid
+     */
+    public AuthData validateAuthToken(String authToken) throws DataAccessException {
         try {
-            return mySQLAuthDAO.getAuthToken(authToken);
+            return authDAO.getAuthToken(authToken);
         } catch (DataAccessException e) {
             throw new DataAccessException("unauthorized");
         }
@@ -0,0 +1,270 @@
+package service;
+
+import exception.ResponseException;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Hashes and checks passwords with BCrypt on a small pool of its own, one thread per core by default. Request
+ * threads hand the work over and wait for the answer, so a burst of logins can't tie up every server thread
+ * on hashing.
+ * <p>
+ * The pool only takes as much work as it can get through: when its queue is full, or a request waits too
+ * long for its turn, the caller gets a 503 and should try again later. One user can only have a few
+ * password checks going at once, more get a 429, so a single account being hammered can't crowd out
+ * everyone else's logins.
+ */
+public class PasswordHasher {
+    /** System property for the BCrypt work factor (log2 of the rounds) new hashes use */
+    public static final String COST_PROPERTY = "chess.bcrypt.cost";
+    /** System property for the number of hashing threads */
+    public static final String THREADS_PROPERTY = "chess.bcrypt.threads";
+    /** System property for the most hashes that can wait for a thread */
+    public static final String QUEUE_SIZE_PROPERTY = "chess.bcrypt.queueSize";
+    /** System property for how long a request waits for its hash before giving up */
+    public static final String MAX_WAIT_PROPERTY = "chess.bcrypt.maxWaitMillis";
+    /** System property for the most password checks one user can have going at once */
+    public static final String MAX_PER_USER_PROPERTY = "chess.bcrypt.maxPerUser";
+
+    /**
+     * Hashing settings, read from system properties with {@link #fromSystemProperties}
+     *
+     * @param cost          BCrypt work factor for new hashes, each step up doubles the time a hash takes
+     * @param threads       threads hashing at once
+     * @param queueSize     hashes that can wait for a thread, more are turned away with a 503
+     * @param maxWaitMillis how long a caller waits for its hash, queueing included, before a 503
+     * @param maxPerUser    password checks one user can have queued or running, more get a 429
+     */
+    public record Config(int cost, int threads, int queueSize, long maxWaitMillis, int maxPerUser) {
+        public static final Config DEFAULT = new Config(10, Runtime.getRuntime().availableProcessors(),
+                8 * Runtime.getRuntime().availableProcessors(), 5_000, 2);
+
+        public Config {
+            //The range BCrypt.gensalt accepts
+            if (cost < 4 || cost > 31) {
+                throw new IllegalArgumentException("BCrypt cost must be between 4 and 31, got " + cost);
+            }
+            if (threads < 1 || queueSize < 1 || maxPerUser < 1) {
+                throw new IllegalArgumentException("Hashing threads, queue size and per-user limit must be at least 1");
+            }
+        }
+
+        /**
+         * Reads the {@code chess.bcrypt.*} system properties, using {@link #DEFAULT} for any that are missing
+         */
+        public static Config fromSystemProperties() {
+            return new Config(
+                    Integer.getInteger(COST_PROPERTY, DEFAULT.cost),
+                    Integer.getInteger(THREADS_PROPERTY, DEFAULT.threads),
+                    Integer.getInteger(QUEUE_SIZE_PROPERTY, DEFAULT.queueSize),
+                    Long.getLong(MAX_WAIT_PROPERTY, DEFAULT.maxWaitMillis),
+                    Integer.getInteger(MAX_PER_USER_PROPERTY, DEFAULT.maxPerUser));
+        }
+    }
+
+    /**
+     * A snapshot of the hasher's counters, for sizing the pool
+     *
+     * @param hashes          new hashes made, rehashes included
+     * @param verifications   passwords checked
+     * @param rehashes        stored hashes replaced because they used an old cost
+     * @param rejected        requests turned away with a 503 or 429
+     * @param queued          hashes waiting for a thread right now
+     * @param totalHashNanos  time spent hashing and checking
+     * @param maxHashNanos    the longest single hash or check
+     * @param totalQueueNanos time hashes spent waiting for a thread
+     */
+    public record Stats(long hashes, long verifications, long rehashes, long rejected, int queued,
+                        long totalHashNanos, long maxHashNanos, long totalQueueNanos) {
+        public double averageHashMillis() {
+            long total = hashes + verifications;
+            return total == 0 ? 0 : totalHashNanos / 1e6 / total;
+        }
+
+        public double averageQueueMillis() {
+            long total = hashes + verifications;
+            return total == 0 ? 0 : totalQueueNanos / 1e6 / total;
+        }
+    }
+
+    private static PasswordHasher instance;
+
+    private final Config config;
+    private final ThreadPoolExecutor workers;
+    //username -> password checks queued or running for it
+    private final ConcurrentHashMap<String, Integer> perUser = new ConcurrentHashMap<>();
+    private final LongAdder hashes = new LongAdder();
+    private final LongAdder verifications = new LongAdder();
+    private final LongAdder rehashes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder totalHashNanos = new LongAdder();
+    private final AtomicLong maxHashNanos = new AtomicLong();
+    private final LongAdder totalQueueNanos = new LongAdder();
+
+    public PasswordHasher(Config config) {
+        this(config, newWorkers(config));
+    }
+
+    //The workers' queue must be bounded, rejecting work is how the hasher knows it is overloaded
+    PasswordHasher(Config config, ThreadPoolExecutor workers) {
+        this.config = config;
+        this.workers = workers;
+    }
+
+    private static ThreadPoolExecutor newWorkers(Config config) {
+        AtomicInteger count = new AtomicInteger();
+        return new ThreadPoolExecutor(config.threads(), config.threads(), 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(config.queueSize()), runnable -> {
+                    Thread thread = new Thread(runnable, "bcrypt-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * @return the shared hasher, with the settings from the chess.bcrypt.* system properties
+     */
+    public static synchronized PasswordHasher getInstance() {
+        if (instance == null) {
+            instance = new PasswordHasher(Config.fromSystemProperties());
+        }
+        return instance;
+    }
+
+    /**
+     * Hashes a new password with the configured cost
+     *
+     * @throws ResponseException with status 503 if the hasher is too busy to take it
+     */
+    public String hash(String password) throws ResponseException {
+        String hashed = run(() -> BCrypt.hashpw(password, BCrypt.gensalt(config.cost())));
+        hashes.increment();
+        return hashed;
+    }
+
+    /**
+     * Checks a password against the user's stored hash
+     *
+     * @throws ResponseException with status 429 if the user already has too many checks going, or 503 if
+     *                           the hasher is too busy to take it
+     */
+    public boolean verify(String username, String password, String hashed) throws ResponseException {
+        if (perUser.merge(username, 1, Integer::sum) > config.maxPerUser()) {
+            leave(username);
+            rejected.increment();
+            throw new ResponseException(429, "Error: too many login attempts, try again shortly");
+        }
+        try {
+            boolean matches = run(() -> BCrypt.checkpw(password, hashed));
+            verifications.increment();
+            return matches;
+        } finally {
+            leave(username);
+        }
+    }
+
+    private void leave(String username) {
+        perUser.computeIfPresent(username, (name, count) -> count == 1 ? null : count - 1);
+    }
+
+    /**
+     * @return whether the hash was made with a different cost than new hashes use
+     */
+    public boolean needsRehash(String hashed) {
+        return costOf(hashed) != config.cost();
+    }
+
+    //A BCrypt hash looks like $2a$10$..., the two digits being the cost. -1 if it doesn't look like one
+    static int costOf(String hashed) {
+        if (hashed == null || hashed.length() < 7 || hashed.charAt(0) != '$' || hashed.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hashed.substring(4, 6));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Hashes the password again with the configured cost in the background, then hands the new hash to save.
+     * Skipped if the hasher is busy, the next login will try again.
+     */
+    public void rehashLater(String password, Consumer<String> save) {
+        long queuedAt = System.nanoTime();
+        try {
+            workers.execute(() -> {
+                try {
+                    String hashed = timed(() -> BCrypt.hashpw(password, BCrypt.gensalt(config.cost())), queuedAt);
+                    hashes.increment();
+                    rehashes.increment();
+                    save.accept(hashed);
+                } catch (Exception e) {
+                    System.err.println("Error rehashing password: " + e.getMessage());
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //Logging in worked, there's no need to fail it over this
+        }
+    }
+
+    private <T> T run(Callable<T> work) throws ResponseException {
+        long queuedAt = System.nanoTime();
+        Future<T> result;
+        try {
+            result = workers.submit(() -> timed(work, queuedAt));
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw new ResponseException(503, "Error: server is busy, try again shortly");
+        }
+        try {
+            return result.get(config.maxWaitMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            result.cancel(true);
+            //A cancelled task stays queued until a thread gets to it, holding a slot someone else could use
+            workers.remove((Runnable) result);
+            rejected.increment();
+            throw new ResponseException(503, "Error: server is busy, try again shortly");
+        } catch (InterruptedException e) {
+            result.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ResponseException(503, "Error: interrupted waiting for the password check");
+        } catch (ExecutionException e) {
+            //BCrypt only throws for a malformed hash or salt
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private <T> T timed(Callable<T> work, long queuedAt) throws Exception {
+        long start = System.nanoTime();
+        totalQueueNanos.add(start - queuedAt);
+        try {
+            return work.call();
+        } finally {
+            long took = System.nanoTime() - start;
+            totalHashNanos.add(took);
+            maxHashNanos.accumulateAndGet(took, Math::max);
+        }
+    }
+
+    public Stats stats() {
+        return new Stats(hashes.sum(), verifications.sum(), rehashes.sum(), rejected.sum(), workers.getQueue().size(),
+                totalHashNanos.sum(), maxHashNanos.get(), totalQueueNanos.sum());
+    }
+}
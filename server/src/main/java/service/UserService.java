@@ -1,28 +1,49 @@
 package service;
 
 import dataaccess.*;
+import exception.ResponseException;
 import model.*;
-import org.mindrot.jbcrypt.BCrypt;
 
 public class UserService {
-//    private final UserDAO userDAO = UserDAO.getInstance();
-//    private final AuthDAO authDAO = AuthDAO.getInstance();
-    private final MySQLUserDAO mySQLUserDAO = MySQLUserDAO.getInstance();
-    private final MySQLAuthDAO mySQLAuthDAO = MySQLAuthDAO.getInstance();
+    private final UserDAO userDAO;
+    private final AuthDAO authDAO;
+    //Shared by every handler, so its limits hold across the whole server
+    private final PasswordHasher hasher = PasswordHasher.getInstance();
+
+    public UserService(UserDAO userDAO, AuthDAO authDAO) {
+        this.userDAO = userDAO;
+        this.authDAO = authDAO;
+    }
 
 
-    public LoginResult login(LoginRequest loginRequest) throws DataAccessException {
-        UserData user = mySQLUserDAO.getUser(loginRequest.username());
+    /**
+     * @throws ResponseException with status 503 or 429 if the password can't be checked right now
+     */
+    public LoginResult login(LoginRequest loginRequest) throws DataAccessException, ResponseException {
+        UserData user = userDAO.getUser(loginRequest.username());
 
-        if(!verifyPass(loginRequest.password(), user.password())) {
+        if(!hasher.verify(user.username(), loginRequest.password(), user.password())) {
             throw new DataAccessException("Error: unauthorized");
         }
+        //The password is only known here, so this is the one chance to move the hash to a changed cost
+        if (hasher.needsRehash(user.password())) {
+            hasher.rehashLater(loginRequest.password(), hashed -> {
+                try {
+                    userDAO.updatePassword(user.username(), hashed);
+                } catch (DataAccessException e) {
+                    System.err.println("Error saving rehashed password for " + user.username() + ": " + e.getMessage());
+                }
+            });
+        }
 
-        AuthData authData = mySQLAuthDAO.createAuth(loginRequest.username());
+        AuthData authData = authDAO.createAuth(loginRequest.username());
         return new LoginResult(authData.username(), authData.authToken());
     }
 
-    public RegisterResult register(RegisterRequest registerRequest) throws DataAccessException {
+    /**
+     * @throws ResponseException with status 503 if the password can't be hashed right now
+     */
+    public RegisterResult register(RegisterRequest registerRequest) throws DataAccessException, ResponseException {
         //validate
         if (registerRequest.username() == null || registerRequest.password() == null || registerRequest.email() == null ||
                 registerRequest.username().isBlank() || registerRequest.password().isBlank() || registerRequest.email().isBlank()) {
@@ -30,23 +51,23 @@ public class UserService {
         }
 
         //create new user
-        String hashedPassword = passHash(registerRequest.password());
+        String hashedPassword = hasher.hash(registerRequest.password());
         UserData newUserData = new UserData(registerRequest.username(), hashedPassword, registerRequest.email());
-        mySQLUserDAO.createUser(newUserData);
+        userDAO.createUser(newUserData);
 
-        AuthData authData = mySQLAuthDAO.createAuth(newUserData.username());
+        AuthData authData = authDAO.createAuth(newUserData.username());
         return new RegisterResult(newUserData.username(), authData.authToken());
     }
 
     public void logout(String token) throws DataAccessException {
-        mySQLAuthDAO.deleteAuth(token);
+        authDAO.deleteAuth(token);
     }
 
-    public String passHash(String clearTextPassword){
-        return BCrypt.hashpw(clearTextPassword, BCrypt.gensalt());
-    }
-    public boolean verifyPass(String clearTextPassword, String hashedPassword){
-        return BCrypt.checkpw(clearTextPassword, hashedPassword);
+    /**
+     * @return the password hasher's timings and counters
+     */
+    public PasswordHasher.Stats hashingStats() {
+        return hasher.stats();
     }
 
 
@@ -0,0 +1,153 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthTokenCacheTest {
+    private final AtomicLong now = new AtomicLong();
+    //Stands in for the auth_tokens table, counting the queries
+    private final Map<String, AuthData> table = new HashMap<>();
+    private int loads;
+    private AuthTokenCache cache;
+
+    private AuthData load(String token) {
+        loads++;
+        return table.get(token);
+    }
+
+    private void advanceMillis(long millis) {
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    @BeforeEach
+    void setUp() {
+        cache = new AuthTokenCache(new AuthTokenCache.Config(3, 1_000, 100), now::get);
+        table.put("token", new AuthData("token", "user"));
+    }
+
+    @Test
+    void testValidTokenIsCached() throws DataAccessException {
+        assertEquals("user", cache.get("token", this::load).username());
+        assertEquals("user", cache.get("token", this::load).username());
+
+        assertEquals(1, loads);
+        assertEquals(1, cache.stats().hits());
+        assertEquals(1, cache.stats().misses());
+    }
+
+    @Test
+    void testValidTokenExpires() throws DataAccessException {
+        cache.get("token", this::load);
+        advanceMillis(1_000);
+        table.remove("token");
+
+        assertNull(cache.get("token", this::load));
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void testBadTokenIsCachedForLess() throws DataAccessException {
+        assertNull(cache.get("bad", this::load));
+        assertNull(cache.get("bad", this::load));
+        assertEquals(1, loads);
+        assertEquals(1, cache.stats().negativeHits());
+
+        advanceMillis(100);
+        assertNull(cache.get("bad", this::load));
+        assertEquals(2, loads);
+    }
+
+    @Test
+    void testInvalidateDropsToken() throws DataAccessException {
+        cache.get("token", this::load);
+        table.remove("token");
+
+        cache.invalidate("token");
+
+        assertNull(cache.get("token", this::load));
+    }
+
+    @Test
+    void testInvalidateAllDropsEverything() throws DataAccessException {
+        cache.get("token", this::load);
+        cache.get("bad", this::load);
+
+        cache.invalidateAll();
+
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void testLookupRacingInvalidationIsNotCached() throws DataAccessException {
+        //The token is deleted after the database read but before the result is cached
+        assertNotNull(cache.get("token", token -> {
+            AuthData auth = load(token);
+            cache.invalidate(token);
+            return auth;
+        }));
+
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void testPutCachesNewToken() throws DataAccessException {
+        cache.put(new AuthData("fresh", "someone"));
+
+        assertEquals("someone", cache.get("fresh", this::load).username());
+        assertEquals(0, loads);
+    }
+
+    @Test
+    void testLeastRecentlyUsedIsEvicted() throws DataAccessException {
+        cache.put(new AuthData("a", "a"));
+        cache.put(new AuthData("b", "b"));
+        cache.put(new AuthData("c", "c"));
+        cache.get("a", this::load);
+
+        cache.put(new AuthData("d", "d"));
+
+        assertEquals(3, cache.stats().size());
+        assertEquals(1, cache.stats().evictions());
+        assertNull(cache.get("b", this::load));
+        assertEquals("a", cache.get("a", this::load).username());
+    }
+
+    @Test
+    void testFailedLoadIsNotCached() {
+        assertThrows(DataAccessException.class, () -> cache.get("token", token -> {
+            throw new DataAccessException("Database unavailable");
+        }));
+
+        assertEquals(0, cache.stats().size());
+    }
+
+    @Test
+    void testZeroSizeCachesNothing() throws DataAccessException {
+        cache = new AuthTokenCache(new AuthTokenCache.Config(0, 1_000, 100), now::get);
+
+        cache.get("token", this::load);
+        cache.get("token", this::load);
+
+        assertEquals(2, loads);
+        assertEquals(0, cache.stats().evictions());
+    }
+
+    @Test
+    void testConfigFromProperties() {
+        Properties props = new Properties();
+        props.setProperty("db.authCache.ttlMillis", "250");
+
+        AuthTokenCache.Config config = AuthTokenCache.Config.fromProperties(props);
+
+        assertEquals(250, config.ttlMillis());
+        assertEquals(AuthTokenCache.Config.DEFAULT.maxSize(), config.maxSize());
+    }
+}
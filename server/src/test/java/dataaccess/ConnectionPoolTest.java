@@ -0,0 +1,291 @@
+package dataaccess;
+
+import org.junit.jupiter.api.*;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Collections;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionPoolTest {
+    private final List<FakeConnection> opened = new ArrayList<>();
+    private ConnectionPool pool;
+
+    //Stands in for a MySQL connection, so the pool can be tested without a database
+    private static class FakeConnection {
+        final AtomicBoolean closed = new AtomicBoolean();
+        final AtomicBoolean valid = new AtomicBoolean(true);
+        final Connection connection = (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "close" -> {
+                        closed.set(true);
+                        yield null;
+                    }
+                    case "isClosed" -> closed.get();
+                    case "isValid" -> valid.get() && !closed.get();
+                    case "getAutoCommit" -> true;
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+    }
+
+    private ConnectionPool newPool(ConnectionPool.Config config) {
+        pool = new ConnectionPool(() -> {
+            FakeConnection fake = new FakeConnection();
+            synchronized (opened) {
+                opened.add(fake);
+            }
+            return fake.connection;
+        }, config);
+        return pool;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pool != null) {
+            pool.close();
+        }
+    }
+
+    @Test
+    void testClosedConnectionIsReused() throws DataAccessException, SQLException {
+        newPool(new ConnectionPool.Config(0, 2, 100, 60_000, 60_000, 0));
+
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+        try (Connection conn = pool.getConnection()) {
+            assertFalse(conn.isClosed());
+        }
+
+        assertEquals(1, opened.size());
+        assertFalse(opened.get(0).closed.get());
+        ConnectionPool.Stats stats = pool.stats();
+        assertEquals(1, stats.open());
+        assertEquals(1, stats.idle());
+        assertEquals(0, stats.inUse());
+        assertEquals(2, stats.borrowed());
+    }
+
+    @Test
+    void testReturnedConnectionCannotBeUsed() throws DataAccessException, SQLException {
+        newPool(new ConnectionPool.Config(0, 1, 100, 60_000, 60_000, 0));
+
+        Connection conn = pool.getConnection();
+        conn.close();
+
+        assertTrue(conn.isClosed());
+        assertThrows(SQLException.class, conn::createStatement);
+        //Closing twice doesn't return the connection twice
+        conn.close();
+        assertEquals(1, pool.stats().idle());
+    }
+
+    @Test
+    void testRacingClosesReturnConnectionOnce() throws Exception {
+        newPool(new ConnectionPool.Config(0, 1, 50, 60_000, 60_000, 0));
+
+        for (int round = 0; round < 20; round++) {
+            Connection conn = pool.getConnection();
+            List<Thread> closers = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                closers.add(new Thread(() -> {
+                    try {
+                        conn.close();
+                    } catch (SQLException e) {
+                        throw new RuntimeException(e);
+                    }
+                }));
+            }
+            closers.forEach(Thread::start);
+            for (Thread closer : closers) {
+                closer.join();
+            }
+            assertEquals(1, pool.stats().idle());
+        }
+
+        //A second release would have freed a permit the pool doesn't have
+        try (Connection ignored = pool.getConnection()) {
+            assertThrows(DataAccessException.class, () -> pool.getConnection());
+        }
+    }
+
+    @Test
+    void testTimesOutWhenPoolIsFull() throws DataAccessException, SQLException {
+        newPool(new ConnectionPool.Config(0, 1, 50, 60_000, 60_000, 0));
+
+        try (Connection ignored = pool.getConnection()) {
+            DataAccessException e = assertThrows(DataAccessException.class, () -> pool.getConnection());
+            assertTrue(e.getMessage().contains("Timed out"));
+        }
+        assertEquals(1, pool.stats().timeouts());
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void testWaiterGetsReturnedConnection() throws Exception {
+        newPool(new ConnectionPool.Config(0, 1, 5_000, 60_000, 60_000, 0));
+        Connection first = pool.getConnection();
+
+        Thread returner = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+                first.close();
+            } catch (InterruptedException | SQLException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        returner.start();
+
+        try (Connection second = pool.getConnection()) {
+            assertFalse(second.isClosed());
+        }
+        returner.join();
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void testInvalidIdleConnectionIsReplaced() throws DataAccessException, SQLException {
+        newPool(new ConnectionPool.Config(0, 1, 100, 60_000, 0, 0));
+
+        pool.getConnection().close();
+        opened.get(0).valid.set(false);
+
+        try (Connection ignored = pool.getConnection()) {
+            assertEquals(2, opened.size());
+        }
+        assertTrue(opened.get(0).closed.get());
+        assertEquals(1, pool.stats().destroyed());
+    }
+
+    @Test
+    void testMaintenanceEvictsIdleAndKeepsMinimum() throws DataAccessException, SQLException {
+        newPool(new ConnectionPool.Config(1, 3, 100, 0, 60_000, 0));
+        Connection a = pool.getConnection();
+        Connection b = pool.getConnection();
+        Connection c = pool.getConnection();
+        a.close();
+        b.close();
+        c.close();
+
+        pool.maintain();
+
+        assertEquals(1, pool.stats().open());
+        assertEquals(2, opened.stream().filter(fake -> fake.closed.get()).count());
+    }
+
+    @Test
+    void testMaintenanceOpensMinimum() {
+        newPool(new ConnectionPool.Config(2, 3, 100, 60_000, 60_000, 0));
+
+        pool.maintain();
+
+        assertEquals(2, pool.stats().open());
+        assertEquals(2, pool.stats().idle());
+    }
+
+    @Test
+    void testLeakIsReportedOnce() throws Exception {
+        newPool(new ConnectionPool.Config(0, 1, 100, 60_000, 60_000, 1));
+        Connection leaked = pool.getConnection();
+        Thread.sleep(5);
+
+        pool.maintain();
+        pool.maintain();
+
+        assertEquals(1, pool.stats().leaks());
+        leaked.close();
+    }
+
+    @Test
+    void testShutdownClosesIdleConnections() throws DataAccessException, SQLException {
+        newPool(new ConnectionPool.Config(0, 2, 100, 60_000, 60_000, 0));
+        pool.getConnection().close();
+
+        pool.close();
+
+        assertTrue(opened.get(0).closed.get());
+        assertThrows(DataAccessException.class, () -> pool.getConnection());
+    }
+
+    @Test
+    void testConfigFromProperties() {
+        Properties props = new Properties();
+        props.setProperty("db.pool.minSize", "1");
+        props.setProperty("db.pool.maxSize", "4");
+
+        ConnectionPool.Config config = ConnectionPool.Config.fromProperties(props);
+
+        assertEquals(1, config.minSize());
+        assertEquals(4, config.maxSize());
+        assertEquals(ConnectionPool.Config.DEFAULT.maxWaitMillis(), config.maxWaitMillis());
+    }
+
+    @Test
+    void testConfigRejectsMinOverMax() {
+        assertThrows(IllegalArgumentException.class, () -> new ConnectionPool.Config(5, 2, 100, 0, 0, 0));
+    }
+
+    @Test
+    void testWaitersAreServedInArrivalOrder() throws Exception {
+        newPool(new ConnectionPool.Config(0, 1, 5_000, 60_000, 60_000, 0));
+        Connection held = pool.getConnection();
+        List<Integer> served = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> waiters = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            int waiter = i;
+            Thread thread = Thread.ofVirtual().start(() -> {
+                try (Connection ignored = pool.getConnection()) {
+                    served.add(waiter);
+                } catch (DataAccessException | SQLException e) {
+                    throw new RuntimeException(e);
+                }
+            });
+            waiters.add(thread);
+            //Each one queued before the next arrives
+            while (pool.stats().waiting() < i + 1) {
+                Thread.sleep(1);
+            }
+        }
+
+        held.close();
+        for (Thread thread : waiters) {
+            thread.join();
+        }
+
+        assertEquals(List.of(0, 1, 2), served);
+        assertEquals(1, opened.size());
+    }
+
+    @Test
+    void testShutdownWakesWaiters() throws Exception {
+        newPool(new ConnectionPool.Config(0, 1, 60_000, 60_000, 60_000, 0));
+        Connection held = pool.getConnection();
+        List<Exception> failures = Collections.synchronizedList(new ArrayList<>());
+        Thread waiter = Thread.ofVirtual().start(() -> {
+            try {
+                pool.getConnection();
+            } catch (DataAccessException e) {
+                failures.add(e);
+            }
+        });
+        while (pool.stats().waiting() < 1) {
+            Thread.sleep(1);
+        }
+
+        pool.close();
+        waiter.join(5_000);
+
+        assertFalse(waiter.isAlive());
+        assertEquals(1, failures.size());
+        assertTrue(failures.get(0).getMessage().contains("shut down"));
+        held.close();
+    }
+}
@@ -0,0 +1,127 @@
+package dataaccess;
+
+import model.AuthData;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileAuthDAOTest {
+    @TempDir
+    Path directory;
+
+    private final List<DataAccess> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (DataAccess dataAccess : opened) {
+            dataAccess.shutdown();
+        }
+    }
+
+    private DataAccess open(long compactBytes) {
+        DataAccess dataAccess = DataAccess.files(directory, false, compactBytes);
+        dataAccess.start();
+        opened.add(dataAccess);
+        return dataAccess;
+    }
+
+    private DataAccess open() {
+        return open(DataAccess.DEFAULT_COMPACT_BYTES);
+    }
+
+    private Path journal() {
+        return directory.resolve("journal.log");
+    }
+
+    //Opens the store again with the journal as it was before shutdown compacted it, as a crash leaves it
+    private DataAccess crash(DataAccess dataAccess) throws IOException {
+        byte[] uncompacted = Files.readAllBytes(journal());
+        opened.remove(dataAccess);
+        dataAccess.shutdown();
+        Files.write(journal(), uncompacted);
+        return open();
+    }
+
+    @Test
+    void testTokensAreReplayed() throws Exception {
+        DataAccess dataAccess = open();
+        AuthData loggedOut = dataAccess.authDAO().createAuth("bob");
+        AuthData kept = dataAccess.authDAO().createAuth("alice");
+        dataAccess.authDAO().deleteAuth(loggedOut.authToken());
+
+        AuthDAO tokens = crash(dataAccess).authDAO();
+
+        assertEquals("alice", tokens.getAuthToken(kept.authToken()).username());
+        assertThrows(DataAccessException.class, () -> tokens.getAuthToken(loggedOut.authToken()));
+    }
+
+    @Test
+    void testClearIsReplayed() throws Exception {
+        DataAccess dataAccess = open();
+        AuthData cleared = dataAccess.authDAO().createAuth("bob");
+        dataAccess.authDAO().clear();
+        AuthData kept = dataAccess.authDAO().createAuth("bob");
+
+        AuthDAO tokens = crash(dataAccess).authDAO();
+
+        assertThrows(DataAccessException.class, () -> tokens.getAuthToken(cleared.authToken()));
+        assertEquals("bob", tokens.getAuthToken(kept.authToken()).username());
+    }
+
+    @Test
+    void testBadLogoutIsNotJournaled() throws Exception {
+        DataAccess dataAccess = open();
+        dataAccess.authDAO().createAuth("bob");
+        long size = Files.size(journal());
+
+        assertThrows(DataAccessException.class, () -> dataAccess.authDAO().deleteAuth("notAToken"));
+
+        assertEquals(size, Files.size(journal()));
+    }
+
+    @Test
+    void testCompactedJournalDropsLoggedOutTokens() throws Exception {
+        DataAccess dataAccess = open(4096);
+        AuthData kept = dataAccess.authDAO().createAuth("bob");
+        List<String> loggedOut = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            AuthData token = dataAccess.authDAO().createAuth("bob");
+            dataAccess.authDAO().deleteAuth(token.authToken());
+            loggedOut.add(token.authToken());
+        }
+
+        assertTrue(Files.size(journal()) < 4096);
+        AuthDAO tokens = crash(dataAccess).authDAO();
+        assertEquals("bob", tokens.getAuthToken(kept.authToken()).username());
+        for (String token : loggedOut) {
+            assertThrows(DataAccessException.class, () -> tokens.getAuthToken(token));
+        }
+    }
+
+    @Test
+    void testLargeJournalIsNotRewrittenOnEveryChange() throws Exception {
+        DataAccess dataAccess = open(256);
+        List<AuthData> tokens = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            tokens.add(dataAccess.authDAO().createAuth("bob"));
+        }
+
+        //Already past the compaction size, but not twice what the last compaction left, so logouts are
+        //appended instead of the journal being rewritten without them
+        for (int i = 0; i < 10; i++) {
+            long size = Files.size(journal());
+            dataAccess.authDAO().deleteAuth(tokens.get(i).authToken());
+            assertTrue(Files.size(journal()) > size);
+        }
+        AuthDAO reopened = crash(dataAccess).authDAO();
+        assertThrows(DataAccessException.class, () -> reopened.getAuthToken(tokens.get(0).authToken()));
+        assertEquals("bob", reopened.getAuthToken(tokens.get(10).authToken()).username());
+    }
+}
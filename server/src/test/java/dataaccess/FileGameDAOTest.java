@@ -0,0 +1,221 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.GameDAO.LoggedMove;
+import model.AuthData;
+import model.GameData;
+import model.GameStatus;
+import model.GameSummary;
+import model.ListGamesRequest;
+import model.UserData;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileGameDAOTest {
+    @TempDir
+    Path directory;
+
+    private final List<DataAccess> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (DataAccess dataAccess : opened) {
+            dataAccess.shutdown();
+        }
+    }
+
+    private DataAccess open(long compactBytes) {
+        DataAccess dataAccess = DataAccess.files(directory, false, compactBytes);
+        dataAccess.start();
+        opened.add(dataAccess);
+        return dataAccess;
+    }
+
+    private DataAccess open() {
+        return open(DataAccess.DEFAULT_COMPACT_BYTES);
+    }
+
+    //Shuts the store down cleanly and opens it again
+    private DataAccess reopen(DataAccess dataAccess) {
+        opened.remove(dataAccess);
+        dataAccess.shutdown();
+        return open();
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(new ChessPosition(from.charAt(1) - '0', from.charAt(0) - 'a' + 1),
+                new ChessPosition(to.charAt(1) - '0', to.charAt(0) - 'a' + 1), null);
+    }
+
+    @Test
+    void testCreateGamePositive() throws DataAccessException {
+        GameDAO games = open().gameDAO();
+        GameData game = games.createGame("Chess Match");
+
+        GameData retrievedGame = games.getGame(game.gameID());
+        assertEquals("Chess Match", retrievedGame.gameName());
+        assertNull(retrievedGame.whiteUsername());
+        assertEquals(GameStatus.ACTIVE, retrievedGame.status());
+    }
+
+    @Test
+    void testCreateGameDuplicateName() throws DataAccessException {
+        GameDAO games = open().gameDAO();
+        games.createGame("Chess Match");
+        assertThrows(DataAccessException.class, () -> games.createGame("Chess Match"));
+    }
+
+    @Test
+    void testGetGameInvalidGameID() {
+        GameDAO games = open().gameDAO();
+        assertThrows(DataAccessException.class, () -> games.getGame(9999));
+    }
+
+    @Test
+    void testNameTooLong() {
+        GameDAO games = open().gameDAO();
+        assertThrows(DataAccessException.class, () -> games.createGame("x".repeat(FileGameDAO.MAX_NAME_BYTES + 1)));
+    }
+
+    @Test
+    void testEverythingSurvivesRestart() throws Exception {
+        DataAccess dataAccess = open();
+        dataAccess.userDAO().createUser(new UserData("bob", "hash", "bob@example.com"));
+        AuthData token = dataAccess.authDAO().createAuth("bob");
+        GameData game = dataAccess.gameDAO().createGame("Game1");
+        dataAccess.gameDAO().updateGame(new GameData(game.gameID(), "bob", null, "Game1", game.game(),
+                GameStatus.ACTIVE));
+        dataAccess.gameDAO().appendMoves(List.of(new LoggedMove(game.gameID(), 1, move("e2", "e4"))));
+
+        dataAccess = reopen(dataAccess);
+
+        assertEquals("bob@example.com", dataAccess.userDAO().getUser("bob").email());
+        assertEquals("bob", dataAccess.authDAO().getAuthToken(token.authToken()).username());
+        GameData loaded = dataAccess.gameDAO().getGame(game.gameID());
+        assertEquals("bob", loaded.whiteUsername());
+        assertEquals(ChessGame.TeamColor.BLACK, loaded.game().getTeamTurn());
+        //The next game doesn't reuse an ID
+        assertEquals(game.gameID() + 1, dataAccess.gameDAO().createGame("Game2").gameID());
+    }
+
+    @Test
+    void testLostRecordIsReplayedFromJournal() throws Exception {
+        GameDAO games = open().gameDAO();
+        GameData game = games.createGame("Game1");
+        games.updateGameStatus(game.gameID(), GameStatus.FINISHED);
+
+        //As if the server died before the page holding the record reached the disk
+        try (FileChannel file = FileChannel.open(directory.resolve("games.dat"), StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.allocate(FileGameDAO.RECORD_BYTES), 64);
+        }
+        GameDAO recovered = open().gameDAO();
+
+        assertEquals(GameStatus.FINISHED, recovered.getGame(game.gameID()).status());
+    }
+
+    @Test
+    void testDamagedJournalTailIsIgnored() throws Exception {
+        DataAccess dataAccess = open();
+        dataAccess.userDAO().createUser(new UserData("bob", "hash", "bob@example.com"));
+        opened.remove(dataAccess);
+        dataAccess.shutdown();
+        //Half an entry, as a crash in the middle of a write leaves it
+        Files.write(directory.resolve("journal.log"), new byte[]{0, 0, 0, 40, 1, 2, 3},
+                StandardOpenOption.APPEND);
+
+        DataAccess recovered = open();
+
+        assertEquals("hash", recovered.userDAO().getUser("bob").password());
+        recovered.userDAO().createUser(new UserData("alice", "hash", "alice@example.com"));
+        assertEquals("hash", reopen(recovered).userDAO().getUser("alice").password());
+    }
+
+    @Test
+    void testJournalIsCompacted() throws Exception {
+        DataAccess dataAccess = open(4096);
+        AuthData kept = dataAccess.authDAO().createAuth("bob");
+        for (int i = 0; i < 200; i++) {
+            AuthData token = dataAccess.authDAO().createAuth("bob");
+            dataAccess.authDAO().deleteAuth(token.authToken());
+        }
+
+        assertTrue(Files.size(directory.resolve("journal.log")) < 4096);
+        assertEquals("bob", reopen(dataAccess).authDAO().getAuthToken(kept.authToken()).username());
+    }
+
+    @Test
+    void testCompactionDropsSnapshottedMoves() throws Exception {
+        DataAccess dataAccess = open(1024);
+        GameDAO games = dataAccess.gameDAO();
+        GameData game = games.createGame("Game1");
+        ChessGame chess = game.game();
+        List<ChessMove> shuffle = List.of(move("g1", "f3"), move("g8", "f6"), move("f3", "g1"), move("f6", "g8"));
+        for (int ply = 1; ply <= 200; ply++) {
+            ChessMove next = shuffle.get((ply - 1) % shuffle.size());
+            chess.makeMove(next);
+            games.appendMoves(List.of(new LoggedMove(game.gameID(), ply, next)));
+            if (ply % 20 == 0) {
+                games.updateChessGames(List.of(game));
+            }
+        }
+
+        //Compacted with all 200 moves kept it would be over 2000 bytes
+        assertTrue(Files.size(directory.resolve("journal.log")) < 1024);
+        GameData loaded = reopen(dataAccess).gameDAO().getGame(game.gameID());
+        assertEquals(chess.getPositionKey(), loaded.game().getPositionKey());
+        assertEquals(200, loaded.game().getMoveCount());
+    }
+
+    @Test
+    void testListGameSummariesPages() throws DataAccessException {
+        GameDAO games = open().gameDAO();
+        for (int i = 1; i <= 5; i++) {
+            games.createGame("Game" + i);
+        }
+
+        List<GameSummary> first = games.listGameSummaries(ListGamesRequest.ALL, 2);
+        List<GameSummary> second = games.listGameSummaries(new ListGamesRequest(2, 2, null, null, null), 2);
+
+        assertEquals(List.of(1, 2), first.stream().map(GameSummary::gameID).toList());
+        assertEquals(List.of(3, 4), second.stream().map(GameSummary::gameID).toList());
+    }
+
+    @Test
+    void testFileGrows() throws DataAccessException {
+        DataAccess dataAccess = open();
+        for (int i = 1; i <= 100; i++) {
+            dataAccess.gameDAO().createGame("Game" + i);
+        }
+
+        assertEquals(100, dataAccess.gameDAO().listGameSummaries(ListGamesRequest.ALL, 0).size());
+        assertEquals(100, reopen(dataAccess).gameDAO().listGameSummaries(ListGamesRequest.ALL, 0).size());
+    }
+
+    @Test
+    void testClearSurvivesRestart() throws DataAccessException {
+        DataAccess dataAccess = open();
+        dataAccess.gameDAO().createGame("Game1");
+        dataAccess.userDAO().createUser(new UserData("bob", "hash", "bob@example.com"));
+
+        dataAccess.gameDAO().clear();
+        dataAccess.userDAO().clear();
+        dataAccess = reopen(dataAccess);
+
+        assertTrue(dataAccess.gameDAO().listGameSummaries(ListGamesRequest.ALL, 0).isEmpty());
+        UserDAO users = dataAccess.userDAO();
+        assertThrows(DataAccessException.class, () -> users.getUser("bob"));
+        assertEquals(1, dataAccess.gameDAO().createGame("Game1").gameID());
+    }
+}
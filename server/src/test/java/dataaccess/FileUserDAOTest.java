@@ -0,0 +1,107 @@
+package dataaccess;
+
+import model.UserData;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileUserDAOTest {
+    @TempDir
+    Path directory;
+
+    private final List<DataAccess> opened = new ArrayList<>();
+
+    @AfterEach
+    void tearDown() {
+        for (DataAccess dataAccess : opened) {
+            dataAccess.shutdown();
+        }
+    }
+
+    private DataAccess open(long compactBytes) {
+        DataAccess dataAccess = DataAccess.files(directory, false, compactBytes);
+        dataAccess.start();
+        opened.add(dataAccess);
+        return dataAccess;
+    }
+
+    private DataAccess open() {
+        return open(DataAccess.DEFAULT_COMPACT_BYTES);
+    }
+
+    private Path journal() {
+        return directory.resolve("journal.log");
+    }
+
+    //Opens the store again with the journal as it was before shutdown compacted it, as a crash leaves it
+    private DataAccess crash(DataAccess dataAccess) throws IOException {
+        byte[] uncompacted = Files.readAllBytes(journal());
+        opened.remove(dataAccess);
+        dataAccess.shutdown();
+        Files.write(journal(), uncompacted);
+        return open();
+    }
+
+    @Test
+    void testUsersAreReplayed() throws Exception {
+        DataAccess dataAccess = open();
+        dataAccess.userDAO().createUser(new UserData("bob", "hash", "bob@example.com"));
+        dataAccess.userDAO().createUser(new UserData("alice", "hash", null));
+        dataAccess.userDAO().updatePassword("bob", "newHash");
+
+        UserDAO users = crash(dataAccess).userDAO();
+
+        assertEquals("newHash", users.getUser("bob").password());
+        assertEquals("bob@example.com", users.getUser("bob").email());
+        assertNull(users.getUser("alice").email());
+        assertThrows(DataAccessException.class, () -> users.createUser(new UserData("bob", "hash", null)));
+    }
+
+    @Test
+    void testClearIsReplayed() throws Exception {
+        DataAccess dataAccess = open();
+        dataAccess.userDAO().createUser(new UserData("bob", "hash", "bob@example.com"));
+        dataAccess.userDAO().clear();
+        dataAccess.userDAO().createUser(new UserData("alice", "hash", "alice@example.com"));
+
+        UserDAO users = crash(dataAccess).userDAO();
+
+        assertThrows(DataAccessException.class, () -> users.getUser("bob"));
+        assertEquals("alice@example.com", users.getUser("alice").email());
+    }
+
+    @Test
+    void testRejectedChangesAreNotJournaled() throws Exception {
+        DataAccess dataAccess = open();
+        dataAccess.userDAO().createUser(new UserData("bob", "hash", "bob@example.com"));
+        long size = Files.size(journal());
+
+        assertThrows(DataAccessException.class,
+                () -> dataAccess.userDAO().createUser(new UserData("bob", "other", null)));
+        dataAccess.userDAO().updatePassword("nobody", "hash");
+
+        assertEquals(size, Files.size(journal()));
+        assertEquals("hash", crash(dataAccess).userDAO().getUser("bob").password());
+    }
+
+    @Test
+    void testCompactedJournalKeepsLatestPassword() throws Exception {
+        DataAccess dataAccess = open(4096);
+        dataAccess.userDAO().createUser(new UserData("bob", "hash0", "bob@example.com"));
+        for (int i = 1; i <= 200; i++) {
+            dataAccess.userDAO().updatePassword("bob", "hash" + i);
+        }
+
+        assertTrue(Files.size(journal()) < 4096);
+        UserData bob = crash(dataAccess).userDAO().getUser("bob");
+        assertEquals("hash200", bob.password());
+        assertEquals("bob@example.com", bob.email());
+    }
+}
@@ -0,0 +1,265 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import chess.InvalidMoveException;
+import dataaccess.GameDAO.LoggedMove;
+import model.GameData;
+import model.GameStatus;
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LiveGameRegistryTest {
+    private RecordingGameDAO gameDAO;
+    private LiveGameRegistry registry;
+
+    //Keeps games in a map and counts the writes, so the registry can be tested without a database
+    private static class RecordingGameDAO extends MySQLGameDAO {
+        final Map<Integer, GameData> stored = new HashMap<>();
+        final List<List<Integer>> batches = new ArrayList<>();
+        final List<List<LoggedMove>> moveBatches = new ArrayList<>();
+        int loads;
+        int fullUpdates;
+        int statusUpdates;
+        boolean failWrites;
+
+        @Override
+        public GameData getGame(int gameID) throws DataAccessException {
+            loads++;
+            GameData game = stored.get(gameID);
+            if (game == null) {
+                throw new DataAccessException("Game with ID " + gameID + " not found.");
+            }
+            return game;
+        }
+
+        @Override
+        public void updateGame(GameData game) {
+            fullUpdates++;
+            stored.put(game.gameID(), game);
+        }
+
+        @Override
+        public void updateChessGames(Collection<GameData> games) throws DataAccessException {
+            if (failWrites) {
+                throw new DataAccessException("Database unavailable");
+            }
+            batches.add(games.stream().map(GameData::gameID).toList());
+        }
+
+        @Override
+        public void appendMoves(Collection<LoggedMove> moves) throws DataAccessException {
+            if (failWrites) {
+                throw new DataAccessException("Database unavailable");
+            }
+            moveBatches.add(List.copyOf(moves));
+        }
+
+        @Override
+        public void updateGameStatus(int gameID, GameStatus status) {
+            statusUpdates++;
+            GameData game = stored.get(gameID);
+            stored.put(gameID, new GameData(gameID, game.whiteUsername(), game.blackUsername(), game.gameName(),
+                    game.game(), status));
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        gameDAO = new RecordingGameDAO();
+        for (int id = 1; id <= 3; id++) {
+            gameDAO.stored.put(id, new GameData(id, "white", "black", "game" + id, new ChessGame(), GameStatus.ACTIVE));
+        }
+        //A long interval so the tests decide when flushes happen
+        registry = new LiveGameRegistry(gameDAO, 60_000, 60_000, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        registry.shutdown();
+    }
+
+    //Makes the move and records it, the way the WebSocket handler does
+    private void move(GameData game, String from, String to) throws InvalidMoveException, DataAccessException {
+        ChessMove move = new ChessMove(new ChessPosition(from.charAt(1) - '0', from.charAt(0) - 'a' + 1),
+                new ChessPosition(to.charAt(1) - '0', to.charAt(0) - 'a' + 1), null);
+        game.game().makeMove(move);
+        registry.recordMove(game, move, game.game().getMoveCount());
+    }
+
+    private static List<Integer> plies(List<LoggedMove> moves) {
+        return moves.stream().map(LoggedMove::ply).toList();
+    }
+
+    @Test
+    void testGetGameLoadsOnce() throws DataAccessException {
+        GameData first = registry.getGame(1);
+        GameData second = registry.getGame(1);
+
+        assertSame(first, second);
+        assertEquals(1, gameDAO.loads);
+    }
+
+    @Test
+    void testGetGameMissing() {
+        assertThrows(DataAccessException.class, () -> registry.getGame(99));
+    }
+
+    @Test
+    void testMovesAreLoggedInOneBatch() throws Exception {
+        GameData one = registry.getGame(1);
+        GameData two = registry.getGame(2);
+        move(one, "e2", "e4");
+        move(one, "e7", "e5");
+        move(two, "d2", "d4");
+
+        assertTrue(gameDAO.moveBatches.isEmpty());
+        assertEquals(2, registry.pendingWrites());
+
+        registry.flush();
+
+        assertEquals(1, gameDAO.moveBatches.size());
+        List<LoggedMove> logged = gameDAO.moveBatches.get(0);
+        assertEquals(List.of(1, 2), plies(logged.stream().filter(move -> move.gameID() == 1).toList()));
+        assertEquals(List.of(1), plies(logged.stream().filter(move -> move.gameID() == 2).toList()));
+        //Only game 1 reached the snapshot interval
+        assertEquals(List.of(List.of(1)), gameDAO.batches);
+        assertEquals(0, registry.pendingWrites());
+    }
+
+    @Test
+    void testSnapshotEveryInterval() throws Exception {
+        GameData one = registry.getGame(1);
+        move(one, "e2", "e4");
+        registry.flush();
+        move(one, "e7", "e5");
+        registry.flush();
+        move(one, "g1", "f3");
+        registry.flush();
+
+        assertEquals(3, gameDAO.moveBatches.size());
+        assertEquals(List.of(List.of(1)), gameDAO.batches);
+    }
+
+    @Test
+    void testFailedFlushIsRetried() throws Exception {
+        GameData one = registry.getGame(1);
+        move(one, "e2", "e4");
+
+        gameDAO.failWrites = true;
+        registry.flush();
+        assertEquals(1, registry.pendingWrites());
+
+        move(one, "e7", "e5");
+        gameDAO.failWrites = false;
+        registry.flush();
+        //The failed move goes out ahead of the one made since
+        assertEquals(1, gameDAO.moveBatches.size());
+        assertEquals(List.of(1, 2), plies(gameDAO.moveBatches.get(0)));
+        assertEquals(0, registry.pendingWrites());
+    }
+
+    @Test
+    void testUpdateGameWritesThrough() throws Exception {
+        GameData one = registry.getGame(1);
+        move(one, "e2", "e4");
+
+        GameData left = registry.updateGame(1, game -> new GameData(1, null, game.blackUsername(), game.gameName(),
+                game.game(), game.status()));
+
+        assertEquals(1, gameDAO.fullUpdates);
+        assertEquals(List.of(1), plies(gameDAO.moveBatches.get(0)));
+        assertNull(gameDAO.stored.get(1).whiteUsername());
+        //The move was logged with the full write, so there's nothing left for the next flush
+        assertEquals(0, registry.pendingWrites());
+        assertSame(left, registry.getGame(1));
+        assertSame(one.game(), left.game());
+    }
+
+    @Test
+    void testFinishGameSavesAndEvicts() throws Exception {
+        GameData one = registry.getGame(1);
+        move(one, "e2", "e4");
+
+        registry.finishGame(1, GameStatus.FINISHED);
+
+        assertEquals(List.of(1), plies(gameDAO.moveBatches.get(0)));
+        //The final position is snapshotted even though it's short of the interval
+        assertEquals(List.of(List.of(1)), gameDAO.batches);
+        assertEquals(1, gameDAO.statusUpdates);
+        assertEquals(0, registry.pendingWrites());
+        assertEquals(GameStatus.FINISHED, registry.getGame(1).status());
+        assertEquals(2, gameDAO.loads);
+    }
+
+    @Test
+    void testMoveDoesNotUndoJoin() throws Exception {
+        //Read by a move before the white player changes
+        GameData stale = registry.getGame(1);
+        registry.updateGame(1, game -> new GameData(1, "newWhite", game.blackUsername(), game.gameName(),
+                game.game(), game.status()));
+
+        move(stale, "e2", "e4");
+        registry.updateGame(1, game -> new GameData(1, game.whiteUsername(), null, game.gameName(), game.game(),
+                game.status()));
+
+        assertEquals("newWhite", registry.getGame(1).whiteUsername());
+        assertEquals("newWhite", gameDAO.stored.get(1).whiteUsername());
+        assertNull(gameDAO.stored.get(1).blackUsername());
+    }
+
+    @Test
+    void testUpdateCanBeTurnedDown() throws Exception {
+        GameData one = registry.getGame(1);
+
+        assertThrows(DataAccessException.class, () -> registry.updateGame(1, game -> {
+            throw new DataAccessException("already taken");
+        }));
+        assertSame(one, registry.updateGame(1, game -> null));
+        assertEquals(0, gameDAO.fullUpdates);
+    }
+
+    @Test
+    void testFinishedGameIsNotBroughtBack() throws Exception {
+        GameData stale = registry.getGame(1);
+        registry.finishGame(1, GameStatus.FINISHED);
+
+        assertThrows(DataAccessException.class, () -> move(stale, "e2", "e4"));
+        GameData left = registry.updateGame(1, game -> new GameData(1, null, game.blackUsername(), game.gameName(),
+                game.game(), game.status()));
+
+        //The late leave works on the saved game, it doesn't put the old active copy back
+        assertEquals(GameStatus.FINISHED, left.status());
+        assertEquals(GameStatus.FINISHED, registry.getGame(1).status());
+        assertEquals(0, registry.pendingWrites());
+    }
+
+    @Test
+    void testShutdownFlushes() throws Exception {
+        GameData three = registry.getGame(3);
+        move(three, "g1", "f3");
+
+        registry.shutdown();
+
+        assertEquals(List.of(1), plies(gameDAO.moveBatches.get(0)));
+    }
+
+    @Test
+    void testClearForgetsPendingMoves() throws Exception {
+        GameData one = registry.getGame(1);
+        move(one, "e2", "e4");
+
+        registry.clear();
+        registry.flush();
+
+        assertTrue(gameDAO.moveBatches.isEmpty());
+    }
+}
@@ -0,0 +1,132 @@
+package dataaccess;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import dataaccess.GameDAO.LoggedMove;
+import model.GameData;
+import model.GameStatus;
+import model.GameSummary;
+import model.ListGamesRequest;
+import org.junit.jupiter.api.*;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MemoryGameDAOTest {
+    private MemoryGameDAO gameDAO;
+
+    @BeforeEach
+    void setUp() {
+        gameDAO = new MemoryGameDAO();
+    }
+
+    private static ChessMove move(String from, String to) {
+        return new ChessMove(new ChessPosition(from.charAt(1) - '0', from.charAt(0) - 'a' + 1),
+                new ChessPosition(to.charAt(1) - '0', to.charAt(0) - 'a' + 1), null);
+    }
+
+    @Test
+    void testCreateGamePositive() throws DataAccessException {
+        GameData game = gameDAO.createGame("Chess Match");
+
+        GameData retrievedGame = gameDAO.getGame(game.gameID());
+        assertEquals("Chess Match", retrievedGame.gameName());
+        assertEquals(GameStatus.ACTIVE, retrievedGame.status());
+    }
+
+    @Test
+    void testCreateGameDuplicateName() throws DataAccessException {
+        gameDAO.createGame("Chess Match");
+        assertThrows(DataAccessException.class, () -> gameDAO.createGame("Chess Match"));
+    }
+
+    @Test
+    void testGetGameInvalidGameID() {
+        assertThrows(DataAccessException.class, () -> gameDAO.getGame(9999));
+    }
+
+    @Test
+    void testGetGameIsACopy() throws Exception {
+        GameData game = gameDAO.createGame("Chess Match");
+        gameDAO.getGame(game.gameID()).game().makeMove(move("e2", "e4"));
+
+        assertEquals(new ChessGame().getPositionKey(), gameDAO.getGame(game.gameID()).game().getPositionKey());
+    }
+
+    @Test
+    void testUpdateGameInvalidGameID() {
+        GameData fakeGame = new GameData(9999, "FakeWhite", "FakeBlack", "Fake Game", new ChessGame(), GameStatus.ACTIVE);
+        assertThrows(DataAccessException.class, () -> gameDAO.updateGame(fakeGame));
+    }
+
+    @Test
+    void testLoggedMovesAreReplayed() throws Exception {
+        GameData game = gameDAO.createGame("Chess Match");
+        ChessGame expected = new ChessGame();
+        expected.makeMove(move("e2", "e4"));
+        expected.makeMove(move("e7", "e5"));
+
+        gameDAO.appendMoves(List.of(new LoggedMove(game.gameID(), 1, move("e2", "e4")),
+                new LoggedMove(game.gameID(), 2, move("e7", "e5"))));
+
+        assertEquals(expected.getPositionKey(), gameDAO.getGame(game.gameID()).game().getPositionKey());
+    }
+
+    @Test
+    void testSnapshotSkipsMovesItCovers() throws Exception {
+        GameData game = gameDAO.createGame("Chess Match");
+        gameDAO.appendMoves(List.of(new LoggedMove(game.gameID(), 1, move("e2", "e4"))));
+        game.game().makeMove(move("e2", "e4"));
+        gameDAO.updateChessGames(List.of(game));
+        gameDAO.appendMoves(List.of(new LoggedMove(game.gameID(), 2, move("e7", "e5"))));
+
+        ChessGame expected = new ChessGame();
+        expected.makeMove(move("e2", "e4"));
+        expected.makeMove(move("e7", "e5"));
+        assertEquals(expected.getPositionKey(), gameDAO.getGame(game.gameID()).game().getPositionKey());
+    }
+
+    @Test
+    void testListGameSummariesPages() throws DataAccessException {
+        for (int i = 1; i <= 5; i++) {
+            gameDAO.createGame("Game" + i);
+        }
+
+        List<GameSummary> first = gameDAO.listGameSummaries(ListGamesRequest.ALL, 2);
+        List<GameSummary> second = gameDAO.listGameSummaries(new ListGamesRequest(2, 2, null, null, null), 2);
+
+        assertEquals(List.of(1, 2), first.stream().map(GameSummary::gameID).toList());
+        assertEquals(List.of(3, 4), second.stream().map(GameSummary::gameID).toList());
+    }
+
+    @Test
+    void testListGameSummariesFilters() throws DataAccessException {
+        GameData joined = gameDAO.createGame("Game1");
+        gameDAO.createGame("Game2");
+        gameDAO.updateGame(new GameData(joined.gameID(), "white", "black", "Game1", joined.game(), GameStatus.ACTIVE));
+        gameDAO.updateGameStatus(joined.gameID(), GameStatus.FINISHED);
+
+        List<GameSummary> finished = gameDAO.listGameSummaries(
+                new ListGamesRequest(null, null, GameStatus.FINISHED, null, "black"), 10);
+        List<GameSummary> open = gameDAO.listGameSummaries(new ListGamesRequest(null, null, null, true, null), 10);
+
+        assertEquals(List.of(joined.gameID()), finished.stream().map(GameSummary::gameID).toList());
+        assertEquals(List.of("Game2"), open.stream().map(GameSummary::gameName).toList());
+    }
+
+    @Test
+    void testClearEmptiesEverything() throws DataAccessException {
+        GameData game = gameDAO.createGame("Game1");
+        gameDAO.appendMoves(List.of(new LoggedMove(game.gameID(), 1, move("e2", "e4"))));
+
+        gameDAO.clear();
+
+        assertTrue(gameDAO.listGameSummaries(ListGamesRequest.ALL, 0).isEmpty());
+        GameData recreated = gameDAO.createGame("Game1");
+        assertEquals("Game1", recreated.gameName());
+        //The old game's moves aren't replayed onto the new one
+        assertEquals(new ChessGame().getPositionKey(), gameDAO.getGame(recreated.gameID()).game().getPositionKey());
+    }
+}
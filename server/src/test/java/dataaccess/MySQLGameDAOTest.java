@@ -3,6 +3,8 @@ package dataaccess;
 import chess.ChessGame;
 import model.GameData;
 import model.GameStatus;
+import model.GameSummary;
+import model.ListGamesRequest;
 import org.junit.jupiter.api.*;
 
 import java.util.List;
@@ -51,7 +53,7 @@ class MySQLGameDAOTest {
 
     @Test
     void testListGamesEmptyDatabase() throws DataAccessException {
-        List<GameData> games = GAME_DAO.listGames();
+        List<GameSummary> games = GAME_DAO.listGameSummaries(ListGamesRequest.ALL, 0);
         assertTrue(games.isEmpty());
     }
 
@@ -60,7 +62,7 @@ class MySQLGameDAOTest {
         GAME_DAO.createGame("Game1");
         GAME_DAO.createGame("Game2");
 
-        List<GameData> games = GAME_DAO.listGames();
+        List<GameSummary> games = GAME_DAO.listGameSummaries(ListGamesRequest.ALL, 0);
         assertEquals(2, games.size());
     }
 }
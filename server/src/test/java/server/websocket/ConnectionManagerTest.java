@@ -0,0 +1,284 @@
+package server.websocket;
+
+import chess.ChessGame;
+import chess.ChessMove;
+import chess.ChessPosition;
+import org.eclipse.jetty.websocket.api.RemoteEndpoint;
+import org.eclipse.jetty.websocket.api.Session;
+import org.eclipse.jetty.websocket.api.WriteCallback;
+import org.junit.jupiter.api.*;
+import websocket.messages.LoadGameMessage;
+import websocket.messages.MoveAppliedMessage;
+import websocket.messages.NotificationMessage;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConnectionManagerTest {
+    private ConnectionManager connections;
+
+    //Stands in for a Jetty session, keeping what was sent to it. A stalled session never finishes a send,
+    //like a client that stopped reading
+    private static class FakeSession {
+        final List<String> sent = new ArrayList<>();
+        final AtomicBoolean open = new AtomicBoolean(true);
+        final AtomicBoolean stalled = new AtomicBoolean();
+        WriteCallback inFlight;
+        final RemoteEndpoint remote = (RemoteEndpoint) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{RemoteEndpoint.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("sendString")) {
+                        sent.add((String) args[0]);
+                        inFlight = (WriteCallback) args[1];
+                        if (!stalled.get()) {
+                            inFlight.writeSuccess();
+                        }
+                    }
+                    return null;
+                });
+        final Session session = (Session) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{Session.class}, (proxy, method, args) -> switch (method.getName()) {
+                    case "isOpen" -> open.get();
+                    case "getRemote" -> remote;
+                    case "close" -> {
+                        open.set(false);
+                        yield null;
+                    }
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> null;
+                });
+
+        //Lets the stalled client catch up
+        void resume() {
+            stalled.set(false);
+            inFlight.writeSuccess();
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        connections = new ConnectionManager(3);
+    }
+
+    private void notify(int gameID, String exclude) {
+        connections.broadcast(gameID, exclude, new NotificationMessage("hello"));
+    }
+
+    @Test
+    void testBroadcastOnlyReachesTheRoom() {
+        FakeSession inGame = new FakeSession();
+        FakeSession elsewhere = new FakeSession();
+        connections.add("alice", 1, inGame.session);
+        connections.add("bob", 2, elsewhere.session);
+
+        notify(1, null);
+
+        assertEquals(1, inGame.sent.size());
+        assertTrue(elsewhere.sent.isEmpty());
+    }
+
+    @Test
+    void testUserCanHaveSeveralSessions() {
+        FakeSession laptop = new FakeSession();
+        FakeSession phone = new FakeSession();
+        FakeSession otherGame = new FakeSession();
+        connections.add("alice", 1, laptop.session);
+        connections.add("alice", 1, phone.session);
+        connections.add("alice", 2, otherGame.session);
+
+        notify(1, null);
+        notify(2, null);
+
+        assertEquals(1, laptop.sent.size());
+        assertEquals(1, phone.sent.size());
+        assertEquals(1, otherGame.sent.size());
+        assertEquals(2, connections.connections(1).size());
+    }
+
+    @Test
+    void testExcludedPlayerGetsNothing() {
+        FakeSession alice = new FakeSession();
+        FakeSession bob = new FakeSession();
+        connections.add("alice", 1, alice.session);
+        connections.add("bob", 1, bob.session);
+
+        notify(1, "alice");
+
+        assertTrue(alice.sent.isEmpty());
+        assertEquals(1, bob.sent.size());
+    }
+
+    @Test
+    void testRemoveLeavesOtherGames() {
+        FakeSession session = new FakeSession();
+        connections.add("alice", 1, session.session);
+        connections.add("alice", 2, session.session);
+
+        connections.remove(1, session.session);
+        notify(1, null);
+        notify(2, null);
+
+        assertEquals(1, session.sent.size());
+        assertTrue(connections.connections(1).isEmpty());
+    }
+
+    @Test
+    void testClosedSessionLeavesEveryRoom() {
+        FakeSession session = new FakeSession();
+        connections.add("alice", 1, session.session);
+        connections.add("alice", 2, session.session);
+
+        connections.removeSession(session.session);
+
+        assertTrue(connections.connections(1).isEmpty());
+        assertTrue(connections.connections(2).isEmpty());
+    }
+
+    @Test
+    void testOpenSessionCanBeAnsweredBeforeJoining() {
+        FakeSession session = new FakeSession();
+        connections.open(session.session);
+
+        connections.send(session.session, new NotificationMessage("hello"));
+
+        assertEquals(1, session.sent.size());
+    }
+
+    @Test
+    void testSendAfterRemoveIsDropped() {
+        FakeSession session = new FakeSession();
+        connections.add("alice", 1, session.session);
+        connections.removeSession(session.session);
+
+        //A reply from a command that was still running when the socket closed
+        connections.send(session.session, new NotificationMessage("hello"));
+
+        assertTrue(session.sent.isEmpty());
+    }
+
+    @Test
+    void testBroadcastDropsDeadSessions() {
+        FakeSession dead = new FakeSession();
+        FakeSession alive = new FakeSession();
+        connections.add("alice", 1, dead.session);
+        connections.add("alice", 2, dead.session);
+        connections.add("bob", 1, alive.session);
+        dead.open.set(false);
+
+        notify(1, null);
+
+        assertTrue(dead.sent.isEmpty());
+        assertEquals(1, alive.sent.size());
+        assertEquals(1, connections.connections(1).size());
+        assertTrue(connections.connections(2).isEmpty());
+    }
+
+    @Test
+    void testMessageIsEncodedOnce() {
+        FakeSession alice = new FakeSession();
+        FakeSession bob = new FakeSession();
+        connections.add("alice", 1, alice.session);
+        connections.add("bob", 1, bob.session);
+
+        notify(1, null);
+
+        assertSame(alice.sent.get(0), bob.sent.get(0));
+    }
+
+    @Test
+    void testSlowSessionDoesNotHoldUpOthers() {
+        FakeSession slow = new FakeSession();
+        FakeSession fast = new FakeSession();
+        connections.add("slow", 1, slow.session);
+        connections.add("fast", 1, fast.session);
+        slow.stalled.set(true);
+
+        notify(1, null);
+        notify(1, null);
+
+        assertEquals(1, slow.sent.size());
+        assertEquals(2, fast.sent.size());
+        slow.resume();
+        assertEquals(2, slow.sent.size());
+    }
+
+    @Test
+    void testOnlyLatestQueuedGameStateIsSent() {
+        FakeSession slow = new FakeSession();
+        connections.add("slow", 1, slow.session);
+        slow.stalled.set(true);
+        notify(1, null);
+
+        ChessGame game = new ChessGame();
+        for (int i = 0; i < 5; i++) {
+            game.setTeamTurn(i % 2 == 0 ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+            connections.broadcast(1, null, new LoadGameMessage(game));
+        }
+        slow.resume();
+
+        //The notification already going out, then only the last of the five states
+        assertEquals(2, slow.sent.size());
+        assertEquals(new LoadGameMessage(game).toString(), slow.sent.get(1));
+        assertTrue(slow.session.isOpen());
+    }
+
+    @Test
+    void testOverflowingSessionIsDisconnected() {
+        FakeSession slow = new FakeSession();
+        connections.add("slow", 1, slow.session);
+        slow.stalled.set(true);
+
+        //One in flight and three queued fit, the fifth doesn't
+        for (int i = 0; i < 5; i++) {
+            notify(1, null);
+        }
+
+        assertFalse(slow.session.isOpen());
+        assertTrue(connections.connections(1).isEmpty());
+    }
+
+    @Test
+    void testDeltaSessionsGetTheMoveOnly() throws Exception {
+        FakeSession passoff = new FakeSession();
+        FakeSession delta = new FakeSession();
+        connections.add("alice", 1, passoff.session);
+        connections.add("bob", 1, delta.session, true);
+
+        ChessGame game = new ChessGame();
+        ChessMove move = new ChessMove(new ChessPosition(2, 5), new ChessPosition(4, 5), null);
+        game.makeMove(move);
+        MoveAppliedMessage moveApplied = new MoveAppliedMessage(move, game.getMoveCount(), game.getPositionKey());
+        connections.broadcastMove(1, new LoadGameMessage(game), moveApplied);
+
+        assertEquals(new LoadGameMessage(game).toString(), passoff.sent.get(0));
+        assertEquals(moveApplied.toString(), delta.sent.get(0));
+    }
+
+    @Test
+    void testQueuedMovesAreNeverReplaced() throws Exception {
+        FakeSession slow = new FakeSession();
+        connections.add("slow", 1, slow.session, true);
+        slow.stalled.set(true);
+
+        ChessGame game = new ChessGame();
+        for (String[] squares : new String[][]{{"e2", "e4"}, {"e7", "e5"}, {"g1", "f3"}}) {
+            ChessMove move = new ChessMove(square(squares[0]), square(squares[1]), null);
+            game.makeMove(move);
+            connections.broadcastMove(1, new LoadGameMessage(game),
+                    new MoveAppliedMessage(move, game.getMoveCount(), game.getPositionKey()));
+        }
+        slow.resume();
+        slow.resume();
+
+        assertEquals(3, slow.sent.size());
+        assertTrue(slow.sent.get(2).contains("\"seq\":3"));
+    }
+
+    private static ChessPosition square(String name) {
+        return new ChessPosition(name.charAt(1) - '0', name.charAt(0) - 'a' + 1);
+    }
+}
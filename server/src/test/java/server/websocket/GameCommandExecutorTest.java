@@ -0,0 +1,123 @@
+package server.websocket;
+
+import org.junit.jupiter.api.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameCommandExecutorTest {
+    private GameCommandExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = new GameCommandExecutor(Executors.newFixedThreadPool(4));
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdown();
+    }
+
+    //Waits for everything queued so far on the game to run
+    private void drain(int gameID) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(1);
+        executor.execute(gameID, done::countDown);
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testSameGameRunsInOrderOneAtATime() throws InterruptedException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        for (int i = 0; i < 200; i++) {
+            int command = i;
+            executor.execute(1, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                order.add(command);
+                running.decrementAndGet();
+            });
+        }
+        drain(1);
+
+        assertEquals(200, order.size());
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertEquals(1, maxRunning.get());
+    }
+
+    @Test
+    void testDifferentGamesRunInParallel() throws InterruptedException {
+        CountDownLatch otherGameRan = new CountDownLatch(1);
+        CountDownLatch firstGameDone = new CountDownLatch(1);
+        //Game 1's command can only finish once game 2's has run alongside it
+        executor.execute(1, () -> {
+            try {
+                if (otherGameRan.await(5, TimeUnit.SECONDS)) {
+                    firstGameDone.countDown();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(2, otherGameRan::countDown);
+
+        assertTrue(firstGameDone.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testFailingCommandDoesNotStopTheGame() throws InterruptedException {
+        AtomicInteger ran = new AtomicInteger();
+        executor.execute(1, () -> {
+            throw new IllegalStateException("Command failed on purpose");
+        });
+        executor.execute(1, ran::incrementAndGet);
+        drain(1);
+
+        assertEquals(1, ran.get());
+    }
+
+    @Test
+    void testIdleGamesAreForgotten() throws InterruptedException {
+        executor.execute(1, () -> { });
+        executor.execute(2, () -> { });
+        drain(1);
+        drain(2);
+
+        //The mailbox is dropped just after the last command's future completes
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (executor.activeGames() > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        assertEquals(0, executor.activeGames());
+    }
+
+    @Test
+    void testVirtualExecutorKeepsGameOrder() throws InterruptedException {
+        executor.shutdown();
+        executor = GameCommandExecutor.createVirtual();
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Boolean> virtual = Collections.synchronizedList(new ArrayList<>());
+        for (int i = 0; i < 100; i++) {
+            int command = i;
+            executor.execute(1, () -> {
+                order.add(command);
+                virtual.add(Thread.currentThread().isVirtual());
+            });
+        }
+        drain(1);
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertFalse(virtual.contains(false));
+    }
+}
@@ -1,22 +1,42 @@
 package service;
 
+import dataaccess.DataAccess;
 import dataaccess.DataAccessException;
+import model.ListGamesRequest;
+import model.UserData;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class ClearServiceTest {
+    private DataAccess dataAccess;
     private ClearService clearService;
 
     @BeforeEach
     void setUp() {
-        clearService = new ClearService();
+        dataAccess = DataAccess.inMemory();
+        clearService = new ClearService(dataAccess.userDAO(), dataAccess.authDAO(), dataAccess.gameDAO(),
+                dataAccess.liveGames());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataAccess.shutdown();
     }
 
     @Test
-    void testClear(){
+    void testClear() throws DataAccessException {
+        dataAccess.userDAO().createUser(new UserData("bob", "hash", "bob@example.com"));
+        String token = dataAccess.authDAO().createAuth("bob").authToken();
+        dataAccess.gameDAO().createGame("Game1");
+
         assertDoesNotThrow(() -> clearService.clear());
+
+        assertThrows(DataAccessException.class, () -> dataAccess.userDAO().getUser("bob"));
+        assertThrows(DataAccessException.class, () -> dataAccess.authDAO().getAuthToken(token));
+        assertTrue(dataAccess.gameDAO().listGameSummaries(ListGamesRequest.ALL, 0).isEmpty());
     }
 
 }
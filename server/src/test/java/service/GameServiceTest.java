@@ -4,7 +4,12 @@ import dataaccess.*;
 import dataaccess.DataAccessException;
 import model.AuthData;
 import model.GameData;
+import model.GameStatus;
+import model.GameSummary;
+import model.ListGamesRequest;
+import model.ListGamesResult;
 import model.UserData;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -14,20 +19,20 @@ import static org.junit.jupiter.api.Assertions.*;
 
 public class GameServiceTest {
     private GameService gameService;
-    private MySQLAuthDAO authDAO;
-    private MySQLGameDAO gameDAO;
+    private DataAccess dataAccess;
+    private AuthDAO authDAO;
+    private GameDAO gameDAO;
     private String validAuthToken;
     private String anotherAuthToken;
 
     @BeforeEach
     void setUp() throws DataAccessException {
-        authDAO = MySQLAuthDAO.getInstance();
-        gameDAO = MySQLGameDAO.getInstance();
-        MySQLUserDAO userDAO = MySQLUserDAO.getInstance();
-        gameService = new GameService();
-
-        // Clear previous data
-        DatabaseManager.clear();
+        //A fresh in-memory backend each time, so nothing is left over from the last test
+        dataAccess = DataAccess.inMemory();
+        authDAO = dataAccess.authDAO();
+        gameDAO = dataAccess.gameDAO();
+        UserDAO userDAO = dataAccess.userDAO();
+        gameService = new GameService(gameDAO, authDAO, dataAccess.liveGames());
 
         UserData user1 = new UserData("testDude", "password", "testDude@gmail.com");
         UserData user2 = new UserData("theOtherGuy", "password", "theOtherGuy@gmail.com");
@@ -44,9 +49,14 @@ public class GameServiceTest {
         anotherAuthToken = auth2.authToken();
     }
 
+    @AfterEach
+    void tearDown() {
+        dataAccess.shutdown();
+    }
+
     @Test
     void testListGamesNoGames() throws DataAccessException {
-        List<GameData> games = gameService.listGames(validAuthToken);
+        List<GameSummary> games = gameService.listGames(validAuthToken, ListGamesRequest.ALL).games();
         assertTrue(games.isEmpty());
     }
 
@@ -58,7 +68,7 @@ public class GameServiceTest {
         gameService.createGame(validAuthToken, "YoudNeverGuess");
         gameService.createGame(validAuthToken, "QuitePossiblyAnotherGame");
 
-        List<GameData> games = gameService.listGames(validAuthToken);
+        List<GameSummary> games = gameService.listGames(validAuthToken, ListGamesRequest.ALL).games();
         assertEquals(5, games.size());
     }
 
@@ -108,4 +118,44 @@ public class GameServiceTest {
         assertThrows(DataAccessException.class, () -> gameService.joinGame(anotherAuthToken, game.gameID(), "WHITE"));  // Second user tries
     }
 
+    @Test
+    void testListGamesPaged() throws DataAccessException {
+        for (int i = 0; i < 5; i++) {
+            gameService.createGame(validAuthToken, "Game" + i);
+        }
+
+        ListGamesResult first = gameService.listGames(validAuthToken, new ListGamesRequest(2, null, null, null, null));
+        ListGamesResult second = gameService.listGames(validAuthToken,
+                new ListGamesRequest(2, first.nextCursor(), null, null, null));
+        ListGamesResult last = gameService.listGames(validAuthToken,
+                new ListGamesRequest(2, second.nextCursor(), null, null, null));
+
+        assertEquals(List.of("Game0", "Game1"), first.games().stream().map(game -> game.gameName()).toList());
+        assertEquals(List.of("Game2", "Game3"), second.games().stream().map(game -> game.gameName()).toList());
+        assertEquals(List.of("Game4"), last.games().stream().map(game -> game.gameName()).toList());
+        assertNull(last.nextCursor());
+    }
+
+    @Test
+    void testListGamesFiltered() throws DataAccessException {
+        GameData joined = gameService.createGame(validAuthToken, "Joined");
+        gameService.createGame(validAuthToken, "Empty");
+        gameService.joinGame(validAuthToken, joined.gameID(), "WHITE");
+        gameService.joinGame(anotherAuthToken, joined.gameID(), "BLACK");
+
+        ListGamesResult open = gameService.listGames(validAuthToken, new ListGamesRequest(null, null, null, true, null));
+        ListGamesResult mine = gameService.listGames(validAuthToken,
+                new ListGamesRequest(null, null, GameStatus.ACTIVE, null, "theOtherGuy"));
+
+        assertEquals("Empty", open.games().get(0).gameName());
+        assertEquals(1, open.games().size());
+        assertEquals(joined.gameID(), mine.games().get(0).gameID());
+        assertEquals(1, mine.games().size());
+    }
+
+    @Test
+    void testListGamesNegativeWithBadLimit() {
+        assertThrows(DataAccessException.class, () -> gameService.listGames(validAuthToken,
+                new ListGamesRequest(GameService.MAX_PAGE_SIZE + 1, null, null, null, null)));
+    }
 }
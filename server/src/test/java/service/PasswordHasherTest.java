@@ -0,0 +1,142 @@
+package service;
+
+import exception.ResponseException;
+import org.junit.jupiter.api.*;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PasswordHasherTest {
+    //The cheapest cost BCrypt allows, so the tests don't spend their time hashing
+    private static final PasswordHasher.Config CONFIG = new PasswordHasher.Config(4, 1, 1, 5_000, 1);
+
+    private ThreadPoolExecutor workers;
+    private PasswordHasher hasher;
+    //Released at the end of each test, so a test can keep the only hashing thread busy
+    private final CountDownLatch unblock = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        workers = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1));
+        hasher = new PasswordHasher(CONFIG, workers);
+    }
+
+    @AfterEach
+    void tearDown() {
+        unblock.countDown();
+        workers.shutdownNow();
+    }
+
+    private void occupyWorker() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        workers.execute(() -> {
+            started.countDown();
+            try {
+                unblock.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testHashAndVerify() throws ResponseException {
+        String hashed = hasher.hash("secret");
+
+        assertTrue(hasher.verify("bob", "secret", hashed));
+        assertFalse(hasher.verify("bob", "wrong", hashed));
+        PasswordHasher.Stats stats = hasher.stats();
+        assertEquals(1, stats.hashes());
+        assertEquals(2, stats.verifications());
+        assertTrue(stats.totalHashNanos() > 0);
+    }
+
+    @Test
+    void testNewHashesUseConfiguredCost() throws ResponseException {
+        String hashed = hasher.hash("secret");
+
+        assertEquals(4, PasswordHasher.costOf(hashed));
+        assertFalse(hasher.needsRehash(hashed));
+        assertTrue(hasher.needsRehash(BCrypt.hashpw("secret", BCrypt.gensalt(5))));
+        assertEquals(-1, PasswordHasher.costOf("not a hash"));
+    }
+
+    @Test
+    void testRehashLaterSavesNewHash() throws Exception {
+        String old = BCrypt.hashpw("secret", BCrypt.gensalt(5));
+        AtomicReference<String> saved = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(1);
+
+        hasher.rehashLater("secret", hashed -> {
+            saved.set(hashed);
+            done.countDown();
+        });
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(4, PasswordHasher.costOf(saved.get()));
+        assertTrue(BCrypt.checkpw("secret", saved.get()));
+        assertNotEquals(old, saved.get());
+        assertEquals(1, hasher.stats().rehashes());
+    }
+
+    @Test
+    void testFullQueueIsTurnedAway() throws Exception {
+        occupyWorker();
+        //Fills the one queue slot
+        workers.execute(() -> { });
+
+        ResponseException e = assertThrows(ResponseException.class, () -> hasher.hash("secret"));
+
+        assertEquals(503, e.statusCode());
+        assertEquals(1, hasher.stats().rejected());
+    }
+
+    @Test
+    void testSlowHashTimesOut() throws Exception {
+        hasher = new PasswordHasher(new PasswordHasher.Config(4, 1, 1, 50, 1), workers);
+        occupyWorker();
+
+        ResponseException e = assertThrows(ResponseException.class, () -> hasher.hash("secret"));
+
+        assertEquals(503, e.statusCode());
+        //The timed out hash was taken back out of the queue
+        assertEquals(0, hasher.stats().queued());
+    }
+
+    @Test
+    void testTooManyChecksForOneUser() throws Exception {
+        String hashed = hasher.hash("secret");
+        occupyWorker();
+        //Bob's first check waits behind the busy worker, holding his only slot
+        Thread first = Thread.ofVirtual().start(() -> {
+            try {
+                hasher.verify("bob", "secret", hashed);
+            } catch (ResponseException ignored) {
+            }
+        });
+        while (hasher.stats().queued() == 0) {
+            Thread.sleep(1);
+        }
+
+        ResponseException e = assertThrows(ResponseException.class, () -> hasher.verify("bob", "secret", hashed));
+        assertEquals(429, e.statusCode());
+
+        unblock.countDown();
+        first.join();
+        //Once his first check is done he can try again
+        assertTrue(hasher.verify("bob", "secret", hashed));
+    }
+
+    @Test
+    void testConfigRejectsBadCost() {
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher.Config(3, 1, 1, 1, 1));
+        assertThrows(IllegalArgumentException.class, () -> new PasswordHasher.Config(32, 1, 1, 1, 1));
+    }
+}
@@ -3,25 +3,33 @@ package service;
 import dataaccess.DataAccessException;
 import model.*;
 import org.eclipse.jetty.server.Authentication;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import dataaccess.*;
+import exception.ResponseException;
 
 import static org.junit.jupiter.api.Assertions.*;
 
 
 public class UserServiceTest {
+    private DataAccess dataAccess;
     private UserService userService;
 
     @BeforeEach
-    void setUp() throws DataAccessException {
-        userService = new UserService();
-        ClearService clearService = new ClearService();
-        clearService.clear();
+    void setUp() {
+        //A fresh in-memory backend each time, so nothing is left over from the last test
+        dataAccess = DataAccess.inMemory();
+        userService = new UserService(dataAccess.userDAO(), dataAccess.authDAO());
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataAccess.shutdown();
     }
 
     @Test
-    void testPositiveRegister() throws DataAccessException{
+    void testPositiveRegister() throws DataAccessException, ResponseException {
         RegisterRequest request = new RegisterRequest("bobgustus","bobsSecretPassword","bob@gmail.com");
         RegisterResult result = userService.register(request);
 
@@ -45,7 +53,7 @@ public class UserServiceTest {
     }
 
     @Test
-    void testPositiveLogin() throws DataAccessException{
+    void testPositiveLogin() throws DataAccessException, ResponseException {
         RegisterRequest registerRequest = new RegisterRequest("bobgustus","bobsSecretPassword","bob@gmail.com");
         assertDoesNotThrow(() -> userService.register(registerRequest));
 
@@ -57,7 +65,7 @@ public class UserServiceTest {
     }
 
     @Test
-    void testFailedLogin() throws DataAccessException{
+    void testFailedLogin() throws DataAccessException, ResponseException {
         RegisterRequest registerRequest = new RegisterRequest("bobgustus","bobsSecretPassword","bob@gmail.com");
         assertDoesNotThrow(() -> userService.register(registerRequest));
 
@@ -67,12 +75,12 @@ public class UserServiceTest {
     }
 
     @Test
-    void testPositiveLogout() throws DataAccessException{
+    void testPositiveLogout() throws DataAccessException, ResponseException {
         RegisterRequest registerRequest = new RegisterRequest("bobgustus","bobsSecretPassword","bob@gmail.com");
         RegisterResult result = userService.register(registerRequest);
 
         assertDoesNotThrow(() -> userService.logout(result.authToken()));
-        assertThrows(DataAccessException.class, () -> AuthDAO.getInstance().getAuthToken(result.authToken()));
+        assertThrows(DataAccessException.class, () -> dataAccess.authDAO().getAuthToken(result.authToken()));
     }
 
     @Test
@@ -0,0 +1,110 @@
+package chess;
+
+/**
+ * Precomputed attack tables for the {@link Bitboard} square layout.
+ * <p>
+ * Knights, kings and pawns have a fixed set of target squares per square. Sliding pieces use one ray
+ * per direction, cut off at the first occupied square along it.
+ */
+public final class Attacks {
+    //Ray directions. The first four step towards higher square indexes, the last four towards lower ones
+    static final int NORTH = 0;
+    static final int EAST = 1;
+    static final int NORTH_EAST = 2;
+    static final int NORTH_WEST = 3;
+    static final int SOUTH = 4;
+    static final int WEST = 5;
+    static final int SOUTH_WEST = 6;
+    static final int SOUTH_EAST = 7;
+
+    private static final int[][] DIRECTIONS = {
+            {1, 0}, {0, 1}, {1, 1}, {1, -1}, {-1, 0}, {0, -1}, {-1, -1}, {-1, 1}
+    };
+    private static final int[][] KNIGHT_OFFSETS = {
+            {2, 1}, {1, 2}, {-1, 2}, {-2, 1}, {-2, -1}, {-1, -2}, {1, -2}, {2, -1}
+    };
+
+    private static final long[] KNIGHT = new long[64];
+    private static final long[] KING = new long[64];
+    private static final long[][] PAWN = new long[2][64];
+    private static final long[][] RAYS = new long[8][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            int row = Bitboard.row(square);
+            int col = Bitboard.column(square);
+
+            for (int[] offset : KNIGHT_OFFSETS) {
+                KNIGHT[square] |= bit(row + offset[0], col + offset[1]);
+            }
+            for (int dir = 0; dir < DIRECTIONS.length; dir++) {
+                KING[square] |= bit(row + DIRECTIONS[dir][0], col + DIRECTIONS[dir][1]);
+
+                int r = row + DIRECTIONS[dir][0];
+                int c = col + DIRECTIONS[dir][1];
+                while (r >= 1 && r <= 8 && c >= 1 && c <= 8) {
+                    RAYS[dir][square] |= bit(r, c);
+                    r += DIRECTIONS[dir][0];
+                    c += DIRECTIONS[dir][1];
+                }
+            }
+            PAWN[ChessGame.TeamColor.WHITE.ordinal()][square] = bit(row + 1, col - 1) | bit(row + 1, col + 1);
+            PAWN[ChessGame.TeamColor.BLACK.ordinal()][square] = bit(row - 1, col - 1) | bit(row - 1, col + 1);
+        }
+    }
+
+    private Attacks() {
+
+    }
+
+    private static long bit(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return 0L;
+        }
+        return 1L << Bitboard.square(row, col);
+    }
+
+    public static long knight(int square) {
+        return KNIGHT[square];
+    }
+
+    public static long king(int square) {
+        return KING[square];
+    }
+
+    /**
+     * @return the squares a pawn of the given team (0 = white, 1 = black) on {@code square} attacks
+     */
+    public static long pawn(int team, int square) {
+        return PAWN[team][square];
+    }
+
+    /**
+     * @return the squares reached along one direction, up to and including the first occupied square
+     */
+    static long ray(int dir, int square, long occupied) {
+        long ray = RAYS[dir][square];
+        long blockers = ray & occupied;
+        if (blockers != 0) {
+            int blocker = dir < SOUTH
+                    ? Long.numberOfTrailingZeros(blockers)
+                    : 63 - Long.numberOfLeadingZeros(blockers);
+            ray ^= RAYS[dir][blocker];
+        }
+        return ray;
+    }
+
+    public static long rook(int square, long occupied) {
+        return ray(NORTH, square, occupied) | ray(EAST, square, occupied)
+                | ray(SOUTH, square, occupied) | ray(WEST, square, occupied);
+    }
+
+    public static long bishop(int square, long occupied) {
+        return ray(NORTH_EAST, square, occupied) | ray(NORTH_WEST, square, occupied)
+                | ray(SOUTH_EAST, square, occupied) | ray(SOUTH_WEST, square, occupied);
+    }
+
+    public static long queen(int square, long occupied) {
+        return rook(square, occupied) | bishop(square, occupied);
+    }
+}
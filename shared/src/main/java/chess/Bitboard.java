@@ -0,0 +1,442 @@
+package chess;
+
+import java.util.Arrays;
+
+/**
+ * Bitboard representation of the pieces on a chessboard.
+ * <p>
+ * Squares are indexed 0-63 as {@code (row - 1) * 8 + (column - 1)}, so bit 0 is a1 and bit 63 is h8.
+ * Each of the 12 piece kinds (6 types for each team) gets its own {@code long}, and the per-team and
+ * total occupancy masks are kept in sync so lookups never have to scan the board.
+ */
+public final class Bitboard {
+    public static final int NO_PIECE = -1;
+    private static final ChessGame.TeamColor[] TEAMS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+    private static final int KING = ChessPiece.PieceType.KING.ordinal();
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+
+    public static final int WHITE_KING_SIDE = 1;
+    public static final int WHITE_QUEEN_SIDE = 2;
+    public static final int BLACK_KING_SIDE = 4;
+    public static final int BLACK_QUEEN_SIDE = 8;
+    public static final int ALL_CASTLING = 15;
+
+    //Rights kept when a move starts or ends on each square: moving the king or a rook, or capturing a rook
+    private static final int[] CASTLING_MASK = new int[64];
+    private static final long CASTLE_UNDO = 1L << 51;
+    private static final long EN_PASSANT_UNDO = 1L << 52;
+    //Where each team's king starts, the only square it can castle from
+    private static final int[] KING_HOME = {square(1, 5), square(8, 5)};
+
+    static {
+        Arrays.fill(CASTLING_MASK, ALL_CASTLING);
+        CASTLING_MASK[square(1, 5)] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASK[square(1, 8)] &= ~WHITE_KING_SIDE;
+        CASTLING_MASK[square(1, 1)] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASK[square(8, 5)] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASK[square(8, 8)] &= ~BLACK_KING_SIDE;
+        CASTLING_MASK[square(8, 1)] &= ~BLACK_QUEEN_SIDE;
+    }
+
+    private final long[] pieces = new long[12];
+    private final long[] teams = new long[2];
+    private long occupied;
+    //A new board has every right, they are only lost as kings and rooks move
+    private int castlingRights = ALL_CASTLING;
+    private int epSquare = -1;
+    private int halfmoveClock;
+    //Zobrist key of the position. It isn't serialized, the first call to key() after loading rebuilds it
+    private transient long key;
+    private transient boolean keyValid;
+
+    public Bitboard() {
+
+    }
+
+    // Copy constructor
+    public Bitboard(Bitboard other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.teams, 0, teams, 0, teams.length);
+        occupied = other.occupied;
+        castlingRights = other.castlingRights;
+        epSquare = other.epSquare;
+        halfmoveClock = other.halfmoveClock;
+        key = other.key;
+        keyValid = other.keyValid;
+    }
+
+    /**
+     * @return the square index (0-63) for a 1-indexed row and column
+     */
+    public static int square(int row, int col) {
+        return (row - 1) * 8 + (col - 1);
+    }
+
+    public static int square(ChessPosition position) {
+        return square(position.getRow(), position.getColumn());
+    }
+
+    public static boolean isOnBoard(ChessPosition position) {
+        return position.getRow() >= 1 && position.getRow() <= 8
+                && position.getColumn() >= 1 && position.getColumn() <= 8;
+    }
+
+    /**
+     * @return the 1-indexed row of a square index
+     */
+    public static int row(int square) {
+        return (square >>> 3) + 1;
+    }
+
+    /**
+     * @return the 1-indexed column of a square index
+     */
+    public static int column(int square) {
+        return (square & 7) + 1;
+    }
+
+    /**
+     * @return the piece index (0-11) for a team and piece type
+     */
+    public static int pieceIndex(ChessGame.TeamColor team, ChessPiece.PieceType type) {
+        return team.ordinal() * 6 + type.ordinal();
+    }
+
+    /**
+     * @return the shared ChessPiece for a piece index
+     */
+    public static ChessPiece piece(int pieceIndex) {
+        return ChessPiece.of(TEAMS[team(pieceIndex)], TYPES[type(pieceIndex)]);
+    }
+
+    public static int team(int pieceIndex) {
+        return pieceIndex / 6;
+    }
+
+    public static int type(int pieceIndex) {
+        return pieceIndex % 6;
+    }
+
+    /**
+     * @return the piece index on the given square, or {@link #NO_PIECE} if it is empty
+     */
+    public int pieceAt(int square) {
+        long mask = 1L << square;
+        if ((occupied & mask) == 0) {
+            return NO_PIECE;
+        }
+        int first = (teams[0] & mask) != 0 ? 0 : 6;
+        for (int i = first; i < first + 6; i++) {
+            if ((pieces[i] & mask) != 0) {
+                return i;
+            }
+        }
+        return NO_PIECE;
+    }
+
+    /**
+     * Places a piece on a square, replacing whatever was there
+     */
+    public void put(int square, int pieceIndex) {
+        remove(square);
+        set(square, pieceIndex);
+    }
+
+    /**
+     * Empties a square
+     *
+     * @return the piece index that was removed, or {@link #NO_PIECE}
+     */
+    public int remove(int square) {
+        int pieceIndex = pieceAt(square);
+        if (pieceIndex != NO_PIECE) {
+            unset(square, pieceIndex);
+        }
+        return pieceIndex;
+    }
+
+    //set and unset skip the lookup when the caller already knows which piece is involved
+    private void set(int square, int pieceIndex) {
+        long mask = 1L << square;
+        pieces[pieceIndex] |= mask;
+        teams[team(pieceIndex)] |= mask;
+        occupied |= mask;
+        key ^= Zobrist.piece(pieceIndex, square);
+    }
+
+    private void unset(int square, int pieceIndex) {
+        long mask = ~(1L << square);
+        pieces[pieceIndex] &= mask;
+        teams[team(pieceIndex)] &= mask;
+        occupied &= mask;
+        key ^= Zobrist.piece(pieceIndex, square);
+    }
+
+    /**
+     * Moves the piece on {@code from} to {@code to} in place, capturing anything on {@code to}.
+     * A king moving two columns from its starting square also moves the rook it castles with, and a pawn moving diagonally
+     * onto the en passant square captures the pawn that just passed it.
+     * <p>
+     * The returned undo record packs everything needed to take the move back:
+     * bits 0-5 from, 6-11 to, 12-15 moved piece, 16-19 captured piece, 20-23 the piece left on
+     * {@code to} (differs from the moved piece on promotion), 24-27 the old castling rights,
+     * 28-34 the old en passant square + 1, 35-50 the old halfmove clock, 51 castle and 52 en passant.
+     * Empty piece slots hold 0xF.
+     *
+     * @param promotion the piece index to promote to, or {@link #NO_PIECE}
+     * @return the undo record to pass to {@link #unmakeMove(long)}
+     */
+    public long makeMove(int from, int to, int promotion) {
+        long undo = ((long) castlingRights << 24) | ((long) (epSquare + 1) << 28)
+                | ((long) Math.min(halfmoveClock, 0xFFFF) << 35);
+
+        int moved = remove(from);
+        int captured = remove(to);
+        int movedType = moved == NO_PIECE ? NO_PIECE : type(moved);
+        boolean castle = movedType == KING && from == KING_HOME[team(moved)] && Math.abs(to - from) == 2;
+        boolean enPassant = movedType == PAWN && to == epSquare && captured == NO_PIECE && (from & 7) != (to & 7);
+
+        if (enPassant) {
+            captured = remove(enPassantVictim(to));
+            undo |= EN_PASSANT_UNDO;
+        }
+        int placed = promotion == NO_PIECE ? moved : promotion;
+        if (placed != NO_PIECE) {
+            set(to, placed);
+        }
+        if (castle) {
+            moveCastlingRook(from, to, false);
+            undo |= CASTLE_UNDO;
+        }
+
+        setCastlingRights(castlingRights & CASTLING_MASK[from] & CASTLING_MASK[to]);
+        setEnPassantSquare(movedType == PAWN && Math.abs(to - from) == 16 ? enPassantTarget(from, to, moved) : -1);
+        halfmoveClock = (movedType == PAWN || captured != NO_PIECE) ? 0 : halfmoveClock + 1;
+
+        return undo | from | (to << 6) | ((moved & 0xF) << 12) | ((captured & 0xF) << 16)
+                | ((long) (placed & 0xF) << 20);
+    }
+
+    /**
+     * Makes a move packed with {@link Move}, returning its undo record
+     */
+    public long makeMove(int move) {
+        int promotion = Move.promotion(move);
+        if (promotion >= 0) {
+            promotion += team(pieceAt(Move.from(move))) * 6;
+        }
+        return makeMove(Move.from(move), Move.to(move), promotion);
+    }
+
+    /**
+     * Restores the board to how it was before the move that produced {@code undo}
+     */
+    public void unmakeMove(long undo) {
+        int from = (int) (undo & 0x3F);
+        int to = (int) ((undo >>> 6) & 0x3F);
+        int moved = (int) ((undo >>> 12) & 0xF);
+        int captured = (int) ((undo >>> 16) & 0xF);
+        int placed = (int) ((undo >>> 20) & 0xF);
+
+        if (placed != 0xF) {
+            unset(to, placed);
+        }
+        if ((undo & CASTLE_UNDO) != 0) {
+            moveCastlingRook(from, to, true);
+        }
+        if (captured != 0xF) {
+            set((undo & EN_PASSANT_UNDO) != 0 ? enPassantVictim(to) : to, captured);
+        }
+        if (moved != 0xF) {
+            set(from, moved);
+        }
+
+        setCastlingRights((int) ((undo >>> 24) & 0xF));
+        setEnPassantSquare((int) ((undo >>> 28) & 0x7F) - 1);
+        halfmoveClock = (int) ((undo >>> 35) & 0xFFFF);
+    }
+
+    /*
+     * Only records the skipped square if an enemy pawn could actually take on it, so positions that differ
+     * by an en passant square nobody can use still count as the same for repetitions.
+     */
+    private int enPassantTarget(int from, int to, int pawn) {
+        int skipped = (from + to) / 2;
+        int team = team(pawn);
+        long enemyPawns = pieces[(1 - team) * 6 + PAWN];
+        return (Attacks.pawn(team, skipped) & enemyPawns) != 0 ? skipped : -1;
+    }
+
+    //The pawn taken en passant sits beside the capturing pawn, one row back from where it lands
+    private static int enPassantVictim(int to) {
+        return to >= 32 ? to - 8 : to + 8;
+    }
+
+    private void moveCastlingRook(int kingFrom, int kingTo, boolean undo) {
+        boolean kingSide = kingTo > kingFrom;
+        int rookHome = kingSide ? kingFrom + 3 : kingFrom - 4;
+        int rookCastled = kingSide ? kingFrom + 1 : kingFrom - 1;
+        int rook = remove(undo ? rookCastled : rookHome);
+        if (rook != NO_PIECE) {
+            set(undo ? rookHome : rookCastled, rook);
+        }
+    }
+
+    private void setCastlingRights(int rights) {
+        key ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+        castlingRights = rights;
+    }
+
+    private void setEnPassantSquare(int square) {
+        key ^= Zobrist.enPassant(epSquare) ^ Zobrist.enPassant(square);
+        epSquare = square;
+    }
+
+    /**
+     * Empties the board and resets the castling rights, en passant square and halfmove clock
+     */
+    public void clear() {
+        Arrays.fill(pieces, 0L);
+        Arrays.fill(teams, 0L);
+        occupied = 0L;
+        castlingRights = ALL_CASTLING;
+        epSquare = -1;
+        halfmoveClock = 0;
+        keyValid = false;
+    }
+
+    /**
+     * Castling rights are lost for good once the king or that rook moves or the rook is captured. Whether a
+     * castle is possible right now also depends on the pieces still being on their starting squares.
+     *
+     * @return the castling rights as a mask of {@link #WHITE_KING_SIDE} etc.
+     */
+    public int castlingRights() {
+        return castlingRights;
+    }
+
+    /**
+     * @return the square a pawn just skipped over with a double move, or -1 if there is none
+     */
+    public int enPassantSquare() {
+        return epSquare;
+    }
+
+    /**
+     * @return the number of moves since the last capture or pawn move
+     */
+    public int halfmoveClock() {
+        return halfmoveClock;
+    }
+
+    /**
+     * Replaces the castling rights, en passant square and halfmove clock, for setting up a position
+     */
+    public void setState(int castlingRights, int enPassantSquare, int halfmoveClock) {
+        setCastlingRights(castlingRights & ALL_CASTLING);
+        setEnPassantSquare(enPassantSquare);
+        this.halfmoveClock = halfmoveClock;
+    }
+
+    /**
+     * @return the Zobrist key of the position (pieces, castling rights and en passant square),
+     * kept up to date on every change
+     */
+    public long key() {
+        if (!keyValid) {
+            key = computeKey();
+            keyValid = true;
+        }
+        return key;
+    }
+
+    private long computeKey() {
+        long fullKey = Zobrist.castling(castlingRights) ^ Zobrist.enPassant(epSquare);
+        for (int pieceIndex = 0; pieceIndex < pieces.length; pieceIndex++) {
+            for (long squares = pieces[pieceIndex]; squares != 0; squares &= squares - 1) {
+                fullKey ^= Zobrist.piece(pieceIndex, Long.numberOfTrailingZeros(squares));
+            }
+        }
+        return fullKey;
+    }
+
+    /**
+     * @return the set of squares holding the given piece index
+     */
+    public long pieces(int pieceIndex) {
+        return pieces[pieceIndex];
+    }
+
+    /**
+     * @return the set of squares holding pieces of the given team
+     */
+    public long teamPieces(ChessGame.TeamColor team) {
+        return teams[team.ordinal()];
+    }
+
+    /**
+     * @param team 0 for white, 1 for black
+     */
+    public long teamPieces(int team) {
+        return teams[team];
+    }
+
+    public long occupied() {
+        return occupied;
+    }
+
+    /**
+     * @return the square of the given team's king, or -1 if that team has no king on the board
+     */
+    public int kingSquare(ChessGame.TeamColor team) {
+        long kings = pieces[pieceIndex(team, ChessPiece.PieceType.KING)];
+        return kings == 0 ? -1 : Long.numberOfTrailingZeros(kings);
+    }
+
+    /**
+     * Works backwards from the target square: a piece attacks it exactly when the same kind of piece
+     * standing on the target square would attack the attacker.
+     *
+     * @return true if any piece of {@code attacker} attacks the square
+     */
+    public boolean isAttacked(int square, ChessGame.TeamColor attacker) {
+        int base = attacker.ordinal() * 6;
+        int defender = 1 - attacker.ordinal();
+
+        if ((Attacks.knight(square) & pieces[base + ChessPiece.PieceType.KNIGHT.ordinal()]) != 0
+                || (Attacks.pawn(defender, square) & pieces[base + ChessPiece.PieceType.PAWN.ordinal()]) != 0
+                || (Attacks.king(square) & pieces[base + ChessPiece.PieceType.KING.ordinal()]) != 0) {
+            return true;
+        }
+        long queens = pieces[base + ChessPiece.PieceType.QUEEN.ordinal()];
+        long straight = pieces[base + ChessPiece.PieceType.ROOK.ordinal()] | queens;
+        long diagonal = pieces[base + ChessPiece.PieceType.BISHOP.ordinal()] | queens;
+        return (straight != 0 && (Attacks.rook(square, occupied) & straight) != 0)
+                || (diagonal != 0 && (Attacks.bishop(square, occupied) & diagonal) != 0);
+    }
+
+    /**
+     * @return true if the team's king is attacked. A team without a king is never in check.
+     */
+    public boolean isInCheck(ChessGame.TeamColor team) {
+        int king = kingSquare(team);
+        return king >= 0 && isAttacked(king, team == ChessGame.TeamColor.WHITE
+                ? ChessGame.TeamColor.BLACK : ChessGame.TeamColor.WHITE);
+    }
+
+    //Boards are equal when their pieces are, castling rights and en passant don't count, so neither can the hash
+    @Override
+    public boolean equals(Object o) {
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        Bitboard that = (Bitboard) o;
+        return Arrays.equals(pieces, that.pieces);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(pieces);
+    }
+}
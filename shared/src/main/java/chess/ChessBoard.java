@@ -1,8 +1,5 @@
 package chess;
 
-import java.util.Arrays;
-import java.util.Objects;
-
 /**
  * A chessboard that can hold and rearrange chess pieces.
  * <p>
@@ -10,20 +7,15 @@ import java.util.Objects;
  * signature of the existing methods.
  */
 public class ChessBoard {
-    private ChessPiece[][] board = new ChessPiece[8][8]; //This is the Board
+    //Pieces are stored as bitboards, getPiece/addPiece translate to and from ChessPiece objects
+    private final Bitboard bitboard;
+
     public ChessBoard() {
-        
+        bitboard = new Bitboard();
     }
     // Copy constructor
     public ChessBoard(ChessBoard other) {
-        board = new ChessPiece[8][8];
-        for (int row = 0; row < 8; row++) {
-            for (int col = 0; col < 8; col++) {
-                if (other.board[row][col] != null) {
-                    board[row][col] = other.board[row][col];
-                }
-            }
-        }
+        bitboard = new Bitboard(other.bitboard);
     }
 
     /**
@@ -33,7 +25,12 @@ public class ChessBoard {
      * @param piece    the piece to add
      */
     public void addPiece(ChessPosition position, ChessPiece piece) {
-        board[position.getRow()-1][position.getColumn()-1] = piece;
+        int square = Bitboard.square(position);
+        if (piece == null) {
+            bitboard.remove(square);
+        } else {
+            bitboard.put(square, Bitboard.pieceIndex(piece.getTeamColor(), piece.getPieceType()));
+        }
     }
 
     /**
@@ -45,51 +42,62 @@ public class ChessBoard {
      */
            //A function that returns a Chess piece type
     public ChessPiece getPiece(ChessPosition position) {
-        return board[position.getRow()-1][position.getColumn()-1]; //returning the thing in the array at this point
-        //aka the chess piece at that point in the array as the func returns ChessPiece
+        int pieceIndex = bitboard.pieceAt(Bitboard.square(position));
+        return pieceIndex == Bitboard.NO_PIECE ? null : Bitboard.piece(pieceIndex);
+        //the piece objects are shared since ChessPiece is immutable
     }
 
+    /**
+     * Makes a move on this board in place, without checking that it is legal
+     *
+     * @param move the move to make
+     * @return an undo record that {@link #unmakeMove(long)} uses to take the move back
+     */
+    public long makeMove(ChessMove move) {
+        int promotion = Bitboard.NO_PIECE;
+        int moved = bitboard.pieceAt(Bitboard.square(move.getStartPosition()));
+        if (move.getPromotionPiece() != null && moved != Bitboard.NO_PIECE) {
+            promotion = Bitboard.team(moved) * 6 + move.getPromotionPiece().ordinal();
+        }
+        return bitboard.makeMove(Bitboard.square(move.getStartPosition()), Bitboard.square(move.getEndPosition()), promotion);
+    }
 
-    public void resetBoard() {
-        //board[row][col]
-        //Ranks are Rows in Chess - Files are Columns in Chess
+    /**
+     * Takes back a move made with {@link #makeMove(ChessMove)}. Moves must be taken back in
+     * the reverse order they were made.
+     *
+     * @param undo the record returned by makeMove
+     */
+    public void unmakeMove(long undo) {
+        bitboard.unmakeMove(undo);
+    }
+
+    /**
+     * @return the bitboards backing this board, for use by the game logic
+     */
+    Bitboard bitboard() {
+        return bitboard;
+    }
 
-        //RANK 1
-        board[0][0] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
-        board[0][1] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        board[0][2] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        board[0][3] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.QUEEN);
-        board[0][4] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KING);
-        board[0][5] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.BISHOP);
-        board[0][6] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.KNIGHT);
-        board[0][7] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.ROOK);
 
-        //RANK 2
-        for (int i = 0; i < 8; i++) {
-            board[1][i] = new ChessPiece(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN);
-        }
+    public void resetBoard() {
+        //Ranks are Rows in Chess - Files are Columns in Chess
+        ChessPiece.PieceType[] backRank = {
+                ChessPiece.PieceType.ROOK, ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.QUEEN, ChessPiece.PieceType.KING, ChessPiece.PieceType.BISHOP,
+                ChessPiece.PieceType.KNIGHT, ChessPiece.PieceType.ROOK
+        };
+        bitboard.clear();
 
-        //RANK'S 3-6
-        for (int i = 2; i < 6; i++) {
-            for (int j = 0; j < 8; j++) {
-                board[i][j] = null;
-            }
-        }
+        for (int col = 1; col <= 8; col++) {
+            //RANK 1 and 2
+            bitboard.put(Bitboard.square(1, col), Bitboard.pieceIndex(ChessGame.TeamColor.WHITE, backRank[col - 1]));
+            bitboard.put(Bitboard.square(2, col), Bitboard.pieceIndex(ChessGame.TeamColor.WHITE, ChessPiece.PieceType.PAWN));
 
-        //RANK 7
-        for (int i = 0; i < 8; i++) {
-            board[6][i] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN);
+            //RANK 7 and 8
+            bitboard.put(Bitboard.square(7, col), Bitboard.pieceIndex(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.PAWN));
+            bitboard.put(Bitboard.square(8, col), Bitboard.pieceIndex(ChessGame.TeamColor.BLACK, backRank[col - 1]));
         }
-
-        //RANK 8
-        board[7][0] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
-        board[7][1] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        board[7][2] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        board[7][3] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.QUEEN);
-        board[7][4] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KING);
-        board[7][5] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.BISHOP);
-        board[7][6] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.KNIGHT);
-        board[7][7] = new ChessPiece(ChessGame.TeamColor.BLACK, ChessPiece.PieceType.ROOK);
     }
 
     @Override
@@ -98,11 +106,11 @@ public class ChessBoard {
             return false;
         }
         ChessBoard that = (ChessBoard) o;
-        return Objects.deepEquals(board, that.board);
+        return bitboard.equals(that.bitboard);
     }
 
     @Override
     public int hashCode() {
-        return Arrays.deepHashCode(board);
+        return bitboard.hashCode();
     }
 }
@@ -1,5 +1,7 @@
 package chess;
 
+import com.google.gson.annotations.JsonAdapter;
+
 import java.util.*;
 
 /**
@@ -7,7 +9,10 @@ import java.util.*;
  * <p>
  * Note: You can add to this class, but you may not alter
  * signature of the existing methods.
+ * <p>
+ * Gson reads and writes games in the compact form from {@link GameCodec}.
  */
+@JsonAdapter(ChessGameAdapter.class)
 public class ChessGame {
     /// NOTES FOR PHASE
 
@@ -15,10 +20,34 @@ public class ChessGame {
     /// WHEN FIGURING OUT A METHOD, LOOK AT THE PARAMETERS AND MAKE A NOTES LIST OF THE METHODS OF THE PARAMETER TYPES
     private TeamColor currentTurn;
     private ChessBoard board = new ChessBoard();
+    //Scratch space for the move generator, reused by every call so checking moves doesn't allocate
+    private final transient int[] moveBuffer = new int[MoveGenerator.MAX_MOVES];
+    private static final TeamColor[] TEAMS = TeamColor.values();
+    /** A game is drawn once the same position comes up this many times */
+    public static final int REPETITION_LIMIT = 3;
+    /** A game is drawn after this many moves (50 by each team) without a capture or pawn move */
+    public static final int FIFTY_MOVE_LIMIT = 100;
+    //Position keys since the last capture or pawn move, the only positions that can come up again.
+    //Saved with the game so a game loaded back from the database still knows its repetitions
+    private long[] positionHistory = new long[8];
+    private int historySize;
+    //Moves made with makeMove since the game was created
+    private int moveCount;
 
     public ChessGame() {
         board.resetBoard();
         this.currentTurn = TeamColor.WHITE;
+        resetHistory();
+    }
+
+    //Rebuilds a saved game, history holds the position keys before the current one, oldest first
+    ChessGame(ChessBoard board, TeamColor turn, int moveCount, long[] history) {
+        this.board = board;
+        this.currentTurn = turn;
+        this.moveCount = moveCount;
+        this.positionHistory = Arrays.copyOf(history, Math.max(8, history.length + 1));
+        this.historySize = history.length;
+        recordPosition();
     }
 
     /**
@@ -35,6 +64,7 @@ public class ChessGame {
      */
     public void setTeamTurn(TeamColor team) {
         currentTurn = team;
+        resetHistory();
     }
 
     /**
@@ -56,21 +86,23 @@ public class ChessGame {
     public Collection<ChessMove> validMoves(ChessPosition startPosition) {
         //Checks Check, Checkmate, Stalemate
         //needs to filter out the moves that it cant move to
-        ChessPiece piece = board.getPiece(startPosition);
-        Collection<ChessMove> moves = piece.pieceMoves(board, startPosition);
-        Collection<ChessMove> legalMoves = new ArrayList<>();
-
-        ChessBoard testBoard = null;
-        for(ChessMove move : moves) {
-            testBoard = new ChessBoard(board);
-            testBoard.addPiece(move.getEndPosition(), piece);
-            testBoard.addPiece(move.getStartPosition(), null);
-
-            if(isInCheck(piece.getTeamColor(), testBoard)) {
-                legalMoves.add(move);
-            }
+        int count = legalMoves(startPosition);
+        if (count < 0) {
+            return null;
+        }
+        return new MoveList(Arrays.copyOf(moveBuffer, count), count);
+    }
+
+    //Fills moveBuffer with the legal moves of the piece at the position, returns -1 if there is no piece there
+    private int legalMoves(ChessPosition startPosition) {
+        Bitboard bitboard = board.bitboard();
+        int square = Bitboard.square(startPosition);
+        int piece = bitboard.pieceAt(square);
+        if (piece == Bitboard.NO_PIECE) {
+            return -1;
         }
-        return legalMoves;
+        int count = MoveGenerator.pieceMoves(bitboard, square, moveBuffer, 0);
+        return MoveGenerator.retainLegal(bitboard, TEAMS[Bitboard.team(piece)], moveBuffer, 0, count);
     }
 
     /**
@@ -91,117 +123,89 @@ public class ChessGame {
             throw new InvalidMoveException("Invalid move: It is currently " + getTeamTurn() + "'s turn (tried to move " + team + ").");
         }
 
-        Collection<ChessMove> possibleMoves = validMoves(move.getStartPosition());
-        if (possibleMoves == null || !possibleMoves.contains(move)) {
+        int legalMove = findLegalMove(move);
+        if (legalMove < 0) {
             throw new InvalidMoveException("Invalid move: The move " + move + " is not legal for the piece at " + move.getStartPosition());
         }
 
 
-        if (move.getPromotionPiece() != null) {
-            ChessPiece promotionPiece = new ChessPiece(team, move.getPromotionPiece());
-            board.addPiece(move.getEndPosition(), promotionPiece);
-        } else {
-            board.addPiece(move.getEndPosition(), piece);
-        }
-        board.addPiece(move.getStartPosition(), null);
+        //Handles captures and pawn promotions
+        board.bitboard().makeMove(legalMove);
 
         if (team == TeamColor.WHITE) {
-            setTeamTurn(TeamColor.BLACK);
+            currentTurn = TeamColor.BLACK;
         } else {
-            setTeamTurn(TeamColor.WHITE);
+            currentTurn = TeamColor.WHITE;
         }
+        moveCount++;
+        recordPosition();
         //Updates the board to have the right piece in the right place based on the selected move
         //Updates Pieces for pawn promotions
     }
 
-    /**
-     * Determines if the given team is in check
-     *
-     * @param teamColor which team to check for check
-     * @return True if the specified team is in check
-     */
-    public boolean isInCheck(TeamColor teamColor) {
-        ChessPosition kingPosition = findKing(teamColor);
-        return isPositionAttacked(kingPosition, teamColor);
+    //Starts the repetition history over from the current position, for when the position is set up by hand
+    private void resetHistory() {
+        historySize = 0;
+        recordPosition();
     }
 
-    private boolean isPositionAttacked(ChessPosition position, TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = getOpponentPiece(row, col, teamColor);
-                if (piece != null && canPieceAttack(piece, row, col, position)) {
-                    return true;
-                }
-            }
+    private void recordPosition() {
+        //Nothing before a capture or pawn move can repeat, so there's no need to keep it
+        if (board.bitboard().halfmoveClock() == 0) {
+            historySize = 0;
         }
-        return false;
-    }
-
-    private ChessPiece getOpponentPiece(int row, int col, TeamColor teamColor) {
-        ChessPosition position = new ChessPosition(row, col);
-        ChessPiece piece = board.getPiece(position);
-        return (piece != null && piece.getTeamColor() != teamColor) ? piece : null;
-    }
-
-    private boolean canPieceAttack(ChessPiece piece, int row, int col, ChessPosition targetPosition) {
-        ChessPosition position = new ChessPosition(row, col);
-        for (ChessMove move : piece.pieceMoves(board, position)) {
-            if (move.getEndPosition().equals(targetPosition)) {
-                return true;
-            }
+        if (historySize == positionHistory.length) {
+            positionHistory = Arrays.copyOf(positionHistory, historySize * 2);
         }
-        return false;
+        positionHistory[historySize++] = getPositionKey();
     }
 
-    //Override for Checkmate Testing
-    public boolean isInCheck(TeamColor teamColor, ChessBoard testBoard) {
-        ChessPosition kingPosition = findKingPosition(teamColor, testBoard);
-        return kingPosition == null || !isKingAttacked(kingPosition, teamColor, testBoard);
-    }
-
-    private ChessPosition findKingPosition(TeamColor teamColor, ChessBoard testBoard) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = testBoard.getPiece(position);
-
-                if (isKing(piece, teamColor)) {
-                    return position;
-                }
+    //Returns the generated form of the move (with its flags), or -1 if it isn't legal
+    private int findLegalMove(ChessMove move) {
+        if (move.getEndPosition() == null || !Bitboard.isOnBoard(move.getEndPosition())) {
+            return -1;
+        }
+        int count = legalMoves(move.getStartPosition());
+        int encoded = Move.encode(move);
+        for (int i = 0; i < count; i++) {
+            if (Move.sameMove(moveBuffer[i], encoded)) {
+                return moveBuffer[i];
             }
         }
-        return null;
+        return -1;
     }
 
-    private boolean isKing(ChessPiece piece, TeamColor teamColor) {
-        return piece != null && piece.getTeamColor() == teamColor && piece.getPieceType() == ChessPiece.PieceType.KING;
+    /**
+     * Gets the number of moves made in this game, counting each team's moves separately
+     *
+     * @return the number of moves made with makeMove
+     */
+    public int getMoveCount() {
+        return moveCount;
     }
 
-    private boolean isKingAttacked(ChessPosition kingPosition, TeamColor teamColor, ChessBoard testBoard) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = testBoard.getPiece(position);
+    //The position keys before the current one that can still repeat, oldest first
+    long[] earlierPositions() {
+        return Arrays.copyOf(positionHistory, Math.max(0, historySize - 1));
+    }
 
-                if (isOpponentPiece(piece, teamColor) && canAttackKing(piece, position, kingPosition, testBoard)) {
-                    return true;
-                }
-            }
-        }
-        return false;
+    /**
+     * Determines if the given team is in check
+     *
+     * @param teamColor which team to check for check
+     * @return True if the specified team is in check
+     */
+    public boolean isInCheck(TeamColor teamColor) {
+        return board.bitboard().isInCheck(teamColor);
     }
 
-    private boolean isOpponentPiece(ChessPiece piece, TeamColor teamColor) {
-        return piece != null && piece.getTeamColor() != teamColor;
+    private static ChessPosition toPosition(int square) {
+        return ChessPosition.of(Bitboard.row(square), Bitboard.column(square));
     }
 
-    private boolean canAttackKing(ChessPiece piece, ChessPosition position, ChessPosition kingPosition, ChessBoard testBoard) {
-        for (ChessMove move : piece.pieceMoves(testBoard, position)) {
-            if (move.getEndPosition().equals(kingPosition)) {
-                return true;
-            }
-        }
-        return false;
+    //Override for Checkmate Testing
+    public boolean isInCheck(TeamColor teamColor, ChessBoard testBoard) {
+        return !testBoard.bitboard().isInCheck(teamColor);
     }
 
     /**
@@ -212,111 +216,59 @@ public class ChessGame {
      */
 
     public boolean isInCheckmate(TeamColor teamColor) {
-        if (!isInCheck(teamColor)) {
-            return false;
-        }
-
-        ChessPosition kingPosition = findKing(teamColor);
-        ChessPiece kingPiece = board.getPiece(kingPosition);
-
-        if (canKingEscape(kingPiece, kingPosition, teamColor)) {return false;}
-
-        List<ChessMove> threatPieces = findThreatPieces(teamColor, kingPosition);
-
-        return !canBlockOrCaptureThreat(threatPieces, teamColor);
+        return isInCheck(teamColor) && !hasLegalMoves(teamColor);
     }
 
     public boolean isGameOver() {
-        return isInCheckmate(TeamColor.WHITE) || isInCheckmate(TeamColor.BLACK) ||
-                isInStalemate(TeamColor.WHITE) || isInStalemate(TeamColor.BLACK);
-    }
-
-    private boolean canKingEscape(ChessPiece kingPiece, ChessPosition kingPosition, TeamColor teamColor) {
-        for (ChessMove move : kingPiece.pieceMoves(board, kingPosition)) {
-            ChessBoard testBoard = new ChessBoard(board);
-            performMove(testBoard, move, teamColor);
-            if (isInCheck(teamColor, testBoard)) {
-                return true;
-            }
-        }
-        return false;
+        return evaluate().isGameOver();
     }
 
-    private List<ChessMove> findThreatPieces(TeamColor teamColor, ChessPosition kingPosition) {
-        List<ChessMove> threatPieces = new ArrayList<>();
-
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPiece piece = getOpponentPiece(row, col, teamColor);
-                if (piece != null) {
-                    addThreatMoves(threatPieces, piece, new ChessPosition(row, col), kingPosition);
-                }
-            }
-        }
-        return threatPieces;
-    }
-
-    private void addThreatMoves(List<ChessMove> threatPieces, ChessPiece piece, ChessPosition position, ChessPosition kingPosition) {
-        for (ChessMove validMove : piece.pieceMoves(board, position)) {
-            if (validMove.getEndPosition().equals(kingPosition)) {
-                threatPieces.add(validMove);
-            }
+    /**
+     * Works out where the game stands for the team whose turn it is. Check is tested once and the search
+     * for a legal move stops at the first one found, so this costs about the same as one isInCheckmate call.
+     *
+     * @return the outcome, checkmate and stalemate taking priority over the draw rules
+     */
+    public GameOutcome evaluate() {
+        boolean inCheck = isInCheck(currentTurn);
+        if (!hasLegalMoves(currentTurn)) {
+            return inCheck ? GameOutcome.CHECKMATE : GameOutcome.STALEMATE;
         }
-    }
-
-    private boolean canBlockOrCaptureThreat(List<ChessMove> threatPieces, TeamColor teamColor) {
-        for (ChessPosition position : getAllTeamPositions(teamColor)) {
-            ChessPiece piece = board.getPiece(position);
-            if (piece == null) {
-                continue;
-            }
-
-            if (canPieceBlockOrCapture(piece, position, teamColor)) {
-                return true;
-            }
+        if (isDrawByRepetition()) {
+            return GameOutcome.DRAW_BY_REPETITION;
         }
-        return false;
-    }
-
-    private List<ChessPosition> getAllTeamPositions(TeamColor teamColor) {
-        List<ChessPosition> positions = new ArrayList<>();
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor) {
-                    positions.add(position);
-                }
-            }
+        if (isDrawByFiftyMoveRule()) {
+            return GameOutcome.DRAW_BY_FIFTY_MOVE_RULE;
         }
-        return positions;
+        return inCheck ? GameOutcome.CHECK : GameOutcome.ONGOING;
     }
 
-    private boolean canPieceBlockOrCapture(ChessPiece piece, ChessPosition position, TeamColor teamColor) {
-        for (ChessMove validMove : piece.pieceMoves(board, position)) {
-            if (isValidDefensiveMove(validMove, teamColor)) {
-                return true;
+    /**
+     * Determines if the current position has come up {@link #REPETITION_LIMIT} times, with the same team
+     * to move, the same castling rights and the same en passant capture available
+     *
+     * @return True if the game is drawn by repetition
+     */
+    public boolean isDrawByRepetition() {
+        long key = getPositionKey();
+        int seen = 0;
+        for (int i = 0; i < historySize; i++) {
+            if (positionHistory[i] == key) {
+                seen++;
             }
         }
-        return false;
-    }
-
-    private boolean isValidDefensiveMove(ChessMove move, TeamColor teamColor) {
-        ChessBoard testBoard = new ChessBoard(board);
-        performMove(testBoard, move, teamColor);
-        return isInCheck(teamColor, testBoard);
+        return seen >= REPETITION_LIMIT;
     }
 
-    private void performMove(ChessBoard board, ChessMove move, TeamColor teamColor) {
-        ChessPosition newPosition = move.getEndPosition();
-        ChessPiece piece = board.getPiece(move.getStartPosition());
-
-        board.addPiece(newPosition, piece);
-        board.addPiece(move.getStartPosition(), null);
+    /**
+     * Determines if {@link #FIFTY_MOVE_LIMIT} moves have been made without a capture or a pawn move
+     *
+     * @return True if the game is drawn by the fifty-move rule
+     */
+    public boolean isDrawByFiftyMoveRule() {
+        return board.bitboard().halfmoveClock() >= FIFTY_MOVE_LIMIT;
     }
 
-
-
     /**
      * Determines if the given team is in stalemate, which here is defined as having
      * no valid moves
@@ -332,48 +284,46 @@ public class ChessGame {
         return !hasLegalMoves(teamColor);
     }
 
+    /*
+     * Stops at the first move that doesn't leave the king in check. Moves are generated one piece at a time,
+     * starting with the king since it is usually the piece that can get out of check, so a position with a
+     * legal move rarely has every move generated.
+     */
     private boolean hasLegalMoves(TeamColor teamColor) {
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-
-                if (canMoveWithoutCheck(piece, teamColor, position)) {
-                    return true;
-                }
+        Bitboard bitboard = board.bitboard();
+        int kingSquare = bitboard.kingSquare(teamColor);
+        if (kingSquare >= 0 && hasLegalMove(bitboard, teamColor, kingSquare)) {
+            return true;
+        }
+        for (long pieces = bitboard.teamPieces(teamColor); pieces != 0; pieces &= pieces - 1) {
+            int square = Long.numberOfTrailingZeros(pieces);
+            if (square != kingSquare && hasLegalMove(bitboard, teamColor, square)) {
+                return true;
             }
         }
         return false;
     }
 
-    private boolean canMoveWithoutCheck(ChessPiece piece, TeamColor teamColor, ChessPosition position) {
-        if (piece == null || piece.getTeamColor() != teamColor) {
-            return false;
-        }
-
-        for (ChessMove move : piece.pieceMoves(board, position)) {
-            if (isValidMove(move, piece, teamColor, position)) {
+    private boolean hasLegalMove(Bitboard bitboard, TeamColor teamColor, int square) {
+        int count = MoveGenerator.pieceMoves(bitboard, square, moveBuffer, 0);
+        for (int i = 0; i < count; i++) {
+            if (MoveGenerator.isLegal(bitboard, teamColor, moveBuffer[i])) {
                 return true;
             }
         }
         return false;
     }
 
-    private boolean isValidMove(ChessMove move, ChessPiece piece, TeamColor teamColor, ChessPosition position) {
-        ChessBoard testBoard = new ChessBoard(board);
-        testBoard.addPiece(move.getEndPosition(), piece);
-        testBoard.addPiece(position, null);
-
-        return isInCheck(teamColor, testBoard);
-    }
-
     /**
      * Sets this game's chessboard with a given board
      *
      * @param board the new board to use
      */
     public void setBoard(ChessBoard board) {
-       this.board = board;
+       if (board != this.board) {
+           this.board = board;
+           resetHistory();
+       }
     }
 
     /**
@@ -387,20 +337,22 @@ public class ChessGame {
         return board;
     }
 
+    /**
+     * Gets a 64-bit Zobrist key for the current position, including whose turn it is. Two games
+     * with the same pieces on the same squares, the same team to move and the same castling and
+     * en passant options have the same key.
+     * The board keeps the key up to date as pieces move, so this is O(1).
+     *
+     * @return the position key
+     */
+    public long getPositionKey() {
+        long key = board.bitboard().key();
+        return currentTurn == TeamColor.BLACK ? key ^ Zobrist.SIDE : key;
+    }
+
     public ChessPosition findKing(TeamColor teamColor) {
-        //finding the kings Position
-        //printBoard(board);
-        ChessPosition kingPosition = null;
-        for (int row = 1; row <= 8; row++) {
-            for (int col = 1; col <= 8; col++) {
-                ChessPosition position = new ChessPosition(row, col);
-                ChessPiece piece = board.getPiece(position);
-                if (piece != null && piece.getTeamColor() == teamColor
-                        && piece.getPieceType() == ChessPiece.PieceType.KING){
-                    kingPosition = position;
-                }
-            }
-        }
-        return kingPosition;
+        //The king bitboard holds a single bit, so its index is the king's square
+        int kingSquare = board.bitboard().kingSquare(teamColor);
+        return kingSquare < 0 ? null : toPosition(kingSquare);
     }
 }
@@ -0,0 +1,128 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+
+/**
+ * How Gson reads and writes a {@link ChessGame}: as a string holding the {@link GameCodec} text form.
+ * <p>
+ * Reads also accept a FEN string (anything containing '/'), and the object form every game was written in
+ * before, so games already saved in the database and messages from older clients still load.
+ */
+public class ChessGameAdapter extends TypeAdapter<ChessGame> {
+    //ChessBoard has no adapter of its own, so plain Gson reads it the way it was written
+    private static final Gson LEGACY_GSON = new Gson();
+
+    @Override
+    public void write(JsonWriter out, ChessGame game) throws IOException {
+        if (game == null) {
+            out.nullValue();
+            return;
+        }
+        out.value(GameCodec.toText(game));
+    }
+
+    @Override
+    public ChessGame read(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return null;
+        }
+        try {
+            if (token == JsonToken.BEGIN_OBJECT) {
+                return readLegacy(JsonParser.parseReader(in).getAsJsonObject());
+            }
+            String text = in.nextString();
+            return text.indexOf('/') >= 0 ? Fen.parse(text) : GameCodec.fromText(text);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            throw new JsonParseException("Unreadable chess game: " + e.getMessage(), e);
+        }
+    }
+
+    private static ChessGame readLegacy(JsonObject json) {
+        JsonElement boardJson = json.get("board");
+        if (boardJson == null || !boardJson.isJsonObject()) {
+            throw new IllegalArgumentException("no board");
+        }
+        JsonElement squares = boardJson.getAsJsonObject().get("board");
+        //The original ChessBoard was an 8x8 array of pieces, later ones were written straight from the bitboards
+        ChessBoard board = squares != null ? readSquares(squares) : LEGACY_GSON.fromJson(boardJson, ChessBoard.class);
+        ChessGame.TeamColor turn = json.has("currentTurn")
+                ? ChessGame.TeamColor.valueOf(json.get("currentTurn").getAsString()) : ChessGame.TeamColor.WHITE;
+        int moveCount = json.has("moveCount") ? json.get("moveCount").getAsInt() : 0;
+
+        //The last recorded key is the current position, the constructor adds that back itself
+        long[] history = new long[0];
+        JsonElement keys = json.get("positionHistory");
+        if (keys != null && json.has("historySize")) {
+            JsonArray array = keys.getAsJsonArray();
+            history = new long[Math.max(0, Math.min(json.get("historySize").getAsInt(), array.size()) - 1)];
+            for (int i = 0; i < history.length; i++) {
+                history[i] = array.get(i).getAsLong();
+            }
+        }
+        return new ChessGame(board, turn, moveCount, history);
+    }
+
+    //board[row - 1][column - 1], null for an empty square
+    private static ChessBoard readSquares(JsonElement squares) {
+        JsonArray rows = squares.getAsJsonArray();
+        if (rows.size() != 8) {
+            throw new IllegalArgumentException("board has " + rows.size() + " rows");
+        }
+        ChessBoard board = new ChessBoard();
+        for (int row = 1; row <= 8; row++) {
+            JsonArray columns = rows.get(row - 1).getAsJsonArray();
+            if (columns.size() != 8) {
+                throw new IllegalArgumentException("board row " + row + " has " + columns.size() + " squares");
+            }
+            for (int column = 1; column <= 8; column++) {
+                JsonElement square = columns.get(column - 1);
+                if (square != null && !square.isJsonNull()) {
+                    JsonObject piece = square.getAsJsonObject();
+                    board.addPiece(new ChessPosition(row, column), new ChessPiece(
+                            ChessGame.TeamColor.valueOf(piece.get("pieceColor").getAsString()),
+                            ChessPiece.PieceType.valueOf(piece.get("type").getAsString())));
+                }
+            }
+        }
+        //Those games didn't track castling rights, so keep the ones whose king and rook are still at home
+        board.bitboard().setState(homeCastlingRights(board), -1, 0);
+        return board;
+    }
+
+    private static int homeCastlingRights(ChessBoard board) {
+        int rights = 0;
+        if (atHome(board, ChessGame.TeamColor.WHITE, 1, 8)) {
+            rights |= Bitboard.WHITE_KING_SIDE;
+        }
+        if (atHome(board, ChessGame.TeamColor.WHITE, 1, 1)) {
+            rights |= Bitboard.WHITE_QUEEN_SIDE;
+        }
+        if (atHome(board, ChessGame.TeamColor.BLACK, 8, 8)) {
+            rights |= Bitboard.BLACK_KING_SIDE;
+        }
+        if (atHome(board, ChessGame.TeamColor.BLACK, 8, 1)) {
+            rights |= Bitboard.BLACK_QUEEN_SIDE;
+        }
+        return rights;
+    }
+
+    private static boolean atHome(ChessBoard board, ChessGame.TeamColor team, int row, int rookColumn) {
+        ChessPiece king = board.getPiece(new ChessPosition(row, 5));
+        ChessPiece rook = board.getPiece(new ChessPosition(row, rookColumn));
+        return new ChessPiece(team, ChessPiece.PieceType.KING).equals(king)
+                && new ChessPiece(team, ChessPiece.PieceType.ROOK).equals(rook);
+    }
+}
@@ -14,6 +14,8 @@ public class ChessPiece {
     private final PieceType type;
                                 //Key      //Value                                                 //The Key Type for the map
     private static final EnumMap<PieceType,PieceMovesCalculator> MOVES_CALCULATORS = new EnumMap<>(PieceType.class);
+    //One shared instance per team and type, indexed by team ordinal * 6 + type ordinal
+    private static final ChessPiece[] PIECES = new ChessPiece[12];
 
     static {
         MOVES_CALCULATORS.put(PieceType.KING, new KingMovesCalculator());
@@ -22,6 +24,12 @@ public class ChessPiece {
         MOVES_CALCULATORS.put(PieceType.KNIGHT, new KnightMovesCalculator());
         MOVES_CALCULATORS.put(PieceType.ROOK, new RookMovesCalculator());
         MOVES_CALCULATORS.put(PieceType.PAWN, new PawnMovesCalculator());
+
+        for (ChessGame.TeamColor team : ChessGame.TeamColor.values()) {
+            for (PieceType type : PieceType.values()) {
+                PIECES[team.ordinal() * 6 + type.ordinal()] = new ChessPiece(team, type);
+            }
+        }
     }
 
     //Constructor
@@ -30,6 +38,14 @@ public class ChessPiece {
         this.type = type;
     }
 
+    /**
+     * Returns the shared instance for a team and piece type. Pieces are immutable, so callers
+     * should prefer this over the constructor.
+     */
+    public static ChessPiece of(ChessGame.TeamColor pieceColor, PieceType type) {
+        return PIECES[pieceColor.ordinal() * 6 + type.ordinal()];
+    }
+
     @Override
     public String toString() {
         return pieceColor.toString() + " " + type.toString();
@@ -46,7 +62,7 @@ public class ChessPiece {
 
     @Override
     public int hashCode() {
-        return Objects.hash(pieceColor, type);
+        return 31 * Objects.hashCode(pieceColor) + Objects.hashCode(type);
     }
 
     /**
@@ -102,63 +118,26 @@ public class ChessPiece {
         if(calculator != null) {
             return calculator.validMoves(board, myPosition);
         }
-        return new ArrayList<>();
+        return List.of();
     }
 
-    static Collection<ChessMove> kkValidMoves(ChessBoard board, ChessPosition myPosition, ChessPosition[] possibleKMoves) {
-        List<ChessMove> validMoves = new ArrayList<>(); //List of Valid Moves
-        ChessPiece myPiece = board.getPiece(myPosition);
-
-        for(ChessPosition moveOffset : possibleKMoves) {
-            int testRow = myPosition.getRow() + moveOffset.getRow();
-            int testCol = myPosition.getColumn() + moveOffset.getColumn();
-
-            //If In Bounds of the Board
-            if(testRow >= 1 && testRow <= 8 && testCol >= 1 && testCol <= 8) {
-                ChessPosition newPosition = new ChessPosition(testRow, testCol);
-                //Save next space to get knowledge about it
-                ChessPiece targetSpace = board.getPiece(newPosition);
-
-                //check if target position is null or opponents piece
-                if(targetSpace == null || targetSpace.getTeamColor() != myPiece.getTeamColor()) {
-                    ChessMove newMove = new ChessMove(myPosition, newPosition, null);
-                    validMoves.add(newMove);
-                }
-            }
-        }
-        return validMoves;
+    //Signature shared by the per-piece methods in MoveGenerator
+    interface PackedMoveGenerator {
+        int generate(Bitboard board, int square, int team, int[] buffer, int count);
     }
 
-    static Collection<ChessMove> qbrValidMoves(ChessBoard board, ChessPosition myPosition, ChessPosition[] possibleQBRMoves) {
-        List<ChessMove> validMoves = new ArrayList<>();
-        ChessPiece myPiece = board.getPiece(myPosition);
-
-        for(ChessPosition moveOffset : possibleQBRMoves) {
-            int testRow = myPosition.getRow() + moveOffset.getRow();
-            int testCol = myPosition.getColumn() + moveOffset.getColumn();
-
-                //If In Bounds of the Board
-                while (testRow >= 1 && testRow <= 8 && testCol >= 1 && testCol <= 8) {
-                    ChessPosition newPosition = new ChessPosition(testRow, testCol);
-                    //Save next space to get knowledge about it
-                    ChessPiece targetSpace = board.getPiece(newPosition);
-
-                    //check if target position is null or opponents piece
-                    if (targetSpace == null || targetSpace.getTeamColor() != myPiece.getTeamColor()) {
-                        ChessMove newMove = new ChessMove(myPosition, newPosition, null);
-                        validMoves.add(newMove);
-                        if(targetSpace != null && targetSpace.getTeamColor() != myPiece.getTeamColor()) {
-                            break; ///Breaks out of the While loop
-                        }
-                    } else {
-                        break; ///Breaks out of the While loop
-                    }
-                    //Increment to next square
-                    testRow += moveOffset.getRow();
-                    testCol += moveOffset.getColumn();
-                }
-            }
-        return validMoves;
+    static Collection<ChessMove> generatedMoves(ChessBoard board, ChessPosition myPosition, PackedMoveGenerator generator) {
+        Bitboard bitboard = board.bitboard();
+        int square = Bitboard.square(myPosition);
+        int myPiece = bitboard.pieceAt(square);
+        int[] moves = new int[MoveGenerator.MAX_PIECE_MOVES];
+        int count = 0;
+
+        if (myPiece != Bitboard.NO_PIECE) {
+            count = generator.generate(bitboard, square, Bitboard.team(myPiece), moves, count);
+        }
+        //ChessMove objects are only created if the caller actually looks at them
+        return new MoveList(moves, count);
     }
 
 }
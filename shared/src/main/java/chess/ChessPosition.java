@@ -1,7 +1,5 @@
 package chess;
 
-import java.util.Objects;
-
 /**
  * Represents a single square position on a chess board
  * <p>
@@ -12,6 +10,14 @@ public class ChessPosition {
 
     private final int row;
     private final int col;
+    //Positions are immutable, so every on-board square can share one instance
+    private static final ChessPosition[] SQUARES = new ChessPosition[64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            SQUARES[square] = new ChessPosition(square / 8 + 1, square % 8 + 1);
+        }
+    }
 
     @Override
     public boolean equals(Object o) {
@@ -24,7 +30,7 @@ public class ChessPosition {
 
     @Override
     public int hashCode() {
-        return Objects.hash(row, col);
+        return 31 * row + col;
     }
 
     public ChessPosition(int row, int col) {
@@ -32,6 +38,21 @@ public class ChessPosition {
         this.col = col;
     }
 
+    /**
+     * Returns the shared instance for a square instead of allocating a new one. Rows and columns
+     * off the board (used for move offsets) still get a fresh object.
+     *
+     * @param row 1-8, bottom to top
+     * @param col 1-8, left to right
+     * @return the position
+     */
+    public static ChessPosition of(int row, int col) {
+        if (row < 1 || row > 8 || col < 1 || col > 8) {
+            return new ChessPosition(row, col);
+        }
+        return SQUARES[(row - 1) * 8 + (col - 1)];
+    }
+
     /**
      * @return which row this position is in
      * 1 codes for the bottom row
@@ -0,0 +1,158 @@
+package chess;
+
+/**
+ * Reads and writes positions in Forsyth-Edwards Notation, the one line text format chess tools use to
+ * share positions, e.g. the starting position is
+ * {@code rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1}.
+ * <p>
+ * Games don't count full moves, so the last field is read and ignored, and always written as 1.
+ */
+public final class Fen {
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private static final String PIECE_LETTERS = "kqbnrp";
+    private static final String CASTLING_LETTERS = "KQkq";
+    private static final ChessGame.TeamColor[] TEAMS = ChessGame.TeamColor.values();
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Fen() {
+
+    }
+
+    /**
+     * Builds a game from a FEN string. Only the piece placement is required, the other fields default to
+     * white to move, no castling, no en passant square and a halfmove clock of 0.
+     *
+     * @throws IllegalArgumentException if the string isn't valid FEN
+     */
+    public static ChessGame parse(String fen) {
+        String[] fields = fen.trim().split("\\s+");
+        ChessBoard board = new ChessBoard();
+        Bitboard bitboard = board.bitboard();
+        bitboard.clear();
+
+        String[] rows = fields[0].split("/");
+        if (rows.length != 8) {
+            throw new IllegalArgumentException("Bad FEN, expected 8 rows: " + fen);
+        }
+        for (int i = 0; i < 8; i++) {
+            int row = 8 - i;
+            int col = 1;
+            for (char c : rows[i].toCharArray()) {
+                if (Character.isDigit(c)) {
+                    col += c - '0';
+                    continue;
+                }
+                int type = PIECE_LETTERS.indexOf(Character.toLowerCase(c));
+                if (type < 0 || col > 8) {
+                    throw new IllegalArgumentException("Bad FEN, unexpected '" + c + "' in row " + row + ": " + fen);
+                }
+                ChessGame.TeamColor team = Character.isUpperCase(c) ? ChessGame.TeamColor.WHITE : ChessGame.TeamColor.BLACK;
+                bitboard.put(Bitboard.square(row, col++), Bitboard.pieceIndex(team, TYPES[type]));
+            }
+            if (col != 9) {
+                throw new IllegalArgumentException("Bad FEN, row " + row + " doesn't have 8 squares: " + fen);
+            }
+        }
+
+        ChessGame.TeamColor turn = ChessGame.TeamColor.WHITE;
+        if (fields.length > 1) {
+            if (fields[1].equals("b")) {
+                turn = ChessGame.TeamColor.BLACK;
+            } else if (!fields[1].equals("w")) {
+                throw new IllegalArgumentException("Bad FEN, the side to move must be w or b: " + fen);
+            }
+        }
+
+        int castling = 0;
+        if (fields.length > 2 && !fields[2].equals("-")) {
+            for (char c : fields[2].toCharArray()) {
+                int right = CASTLING_LETTERS.indexOf(c);
+                if (right < 0) {
+                    throw new IllegalArgumentException("Bad FEN, unexpected castling right '" + c + "': " + fen);
+                }
+                castling |= 1 << right;
+            }
+        }
+
+        int enPassant = -1;
+        if (fields.length > 3 && !fields[3].equals("-")) {
+            enPassant = parseSquare(fields[3], fen);
+        }
+
+        int halfmoveClock = 0;
+        if (fields.length > 4) {
+            try {
+                halfmoveClock = Integer.parseInt(fields[4]);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad FEN, the halfmove clock must be a number: " + fen);
+            }
+            if (halfmoveClock < 0) {
+                throw new IllegalArgumentException("Bad FEN, the halfmove clock can't be negative: " + fen);
+            }
+        }
+
+        bitboard.setState(castling, enPassant, halfmoveClock);
+        ChessGame game = new ChessGame();
+        game.setBoard(board);
+        game.setTeamTurn(turn);
+        return game;
+    }
+
+    /**
+     * @return the game's position as a FEN string
+     */
+    public static String format(ChessGame game) {
+        Bitboard bitboard = game.getBoard().bitboard();
+        StringBuilder fen = new StringBuilder(90);
+        for (int row = 8; row >= 1; row--) {
+            int empty = 0;
+            for (int col = 1; col <= 8; col++) {
+                int piece = bitboard.pieceAt(Bitboard.square(row, col));
+                if (piece == Bitboard.NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+                if (empty > 0) {
+                    fen.append(empty);
+                    empty = 0;
+                }
+                char letter = PIECE_LETTERS.charAt(Bitboard.type(piece));
+                fen.append(TEAMS[Bitboard.team(piece)] == ChessGame.TeamColor.WHITE ? Character.toUpperCase(letter) : letter);
+            }
+            if (empty > 0) {
+                fen.append(empty);
+            }
+            if (row > 1) {
+                fen.append('/');
+            }
+        }
+
+        fen.append(game.getTeamTurn() == ChessGame.TeamColor.BLACK ? " b " : " w ");
+        int castling = bitboard.castlingRights();
+        if (castling == 0) {
+            fen.append('-');
+        }
+        for (int right = 0; right < CASTLING_LETTERS.length(); right++) {
+            if ((castling & (1 << right)) != 0) {
+                fen.append(CASTLING_LETTERS.charAt(right));
+            }
+        }
+
+        int enPassant = bitboard.enPassantSquare();
+        if (enPassant < 0) {
+            fen.append(" -");
+        } else {
+            fen.append(' ').append((char) ('a' + Bitboard.column(enPassant) - 1)).append(Bitboard.row(enPassant));
+        }
+        return fen.append(' ').append(bitboard.halfmoveClock()).append(" 1").toString();
+    }
+
+    private static int parseSquare(String square, String fen) {
+        if (square.length() != 2 || square.charAt(0) < 'a' || square.charAt(0) > 'h'
+                || square.charAt(1) < '1' || square.charAt(1) > '8') {
+            throw new IllegalArgumentException("Bad FEN, unexpected en passant square '" + square + "': " + fen);
+        }
+        return Bitboard.square(square.charAt(1) - '0', square.charAt(0) - 'a' + 1);
+    }
+}
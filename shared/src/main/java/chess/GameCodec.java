@@ -0,0 +1,172 @@
+package chess;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+
+/**
+ * Packs a game into a few dozen bytes, for the database and the wire. Text forms are base64url, which never
+ * contains '/', so they can't be mistaken for FEN.
+ * <p>
+ * Layout, version 1:
+ * <ul>
+ *     <li>1 byte version</li>
+ *     <li>32 bytes board, 4 bits per square (0 empty, otherwise piece index + 1), square 0 in the low
+ *     bits of the first byte</li>
+ *     <li>1 byte side to move (bit 0, set for black) and castling rights (bits 1-4)</li>
+ *     <li>1 byte en passant square + 1, 0 for none</li>
+ *     <li>varints for the halfmove clock, the move count and the number of earlier positions</li>
+ *     <li>8 bytes per earlier position key, for threefold repetition</li>
+ * </ul>
+ * Earlier positions only go back to the last capture or pawn move, so most games carry a handful of keys.
+ */
+public final class GameCodec {
+    public static final int VERSION = 1;
+
+    private static final int BOARD_BYTES = 32;
+    private static final ChessGame.TeamColor[] TEAMS = ChessGame.TeamColor.values();
+
+    private GameCodec() {
+
+    }
+
+    /**
+     * @return the game in the binary form
+     */
+    public static byte[] encode(ChessGame game) {
+        Bitboard bitboard = game.getBoard().bitboard();
+        long[] history = game.earlierPositions();
+        ByteArrayOutputStream out = new ByteArrayOutputStream(BOARD_BYTES + 8 + history.length * 8);
+        out.write(VERSION);
+        for (int square = 0; square < 64; square += 2) {
+            out.write(nibble(bitboard, square) | nibble(bitboard, square + 1) << 4);
+        }
+        out.write((game.getTeamTurn() == ChessGame.TeamColor.BLACK ? 1 : 0) | bitboard.castlingRights() << 1);
+        out.write(bitboard.enPassantSquare() + 1);
+        writeVarint(out, bitboard.halfmoveClock());
+        writeVarint(out, game.getMoveCount());
+        writeVarint(out, history.length);
+        for (long key : history) {
+            for (int shift = 56; shift >= 0; shift -= 8) {
+                out.write((int) (key >>> shift));
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * @return the game the bytes were encoded from
+     * @throws IllegalArgumentException if the bytes aren't a game in a version this codec reads
+     */
+    public static ChessGame decode(byte[] bytes) {
+        Reader in = new Reader(bytes);
+        int version = in.next();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unknown game encoding version " + version);
+        }
+        ChessBoard board = new ChessBoard();
+        Bitboard bitboard = board.bitboard();
+        bitboard.clear();
+        for (int square = 0; square < 64; square += 2) {
+            int packed = in.next();
+            put(bitboard, square, packed & 0xF);
+            put(bitboard, square + 1, packed >>> 4);
+        }
+        int flags = in.next();
+        int enPassant = in.next() - 1;
+        if (enPassant >= 64) {
+            throw new IllegalArgumentException("Bad game encoding, en passant square " + enPassant);
+        }
+        int halfmoveClock = in.varint();
+        if (halfmoveClock < 0) {
+            throw new IllegalArgumentException("Bad game encoding, halfmove clock " + halfmoveClock);
+        }
+        bitboard.setState(flags >>> 1 & Bitboard.ALL_CASTLING, enPassant, halfmoveClock);
+        int moveCount = in.varint();
+        if (moveCount < 0) {
+            throw new IllegalArgumentException("Bad game encoding, move count " + moveCount);
+        }
+        int historyLength = in.varint();
+        //Checked before allocating, so a corrupt count can't ask for more memory than the input could fill
+        if (historyLength < 0 || historyLength > in.remaining() / 8) {
+            throw new IllegalArgumentException("Bad game encoding, " + historyLength + " history keys in "
+                    + in.remaining() + " bytes");
+        }
+        long[] history = new long[historyLength];
+        for (int i = 0; i < history.length; i++) {
+            long key = 0;
+            for (int b = 0; b < 8; b++) {
+                key = key << 8 | in.next();
+            }
+            history[i] = key;
+        }
+        return new ChessGame(board, TEAMS[flags & 1], moveCount, history);
+    }
+
+    /**
+     * @return the binary form as base64url text
+     */
+    public static String toText(ChessGame game) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(encode(game));
+    }
+
+    /**
+     * @return the game from {@link #toText} output
+     * @throws IllegalArgumentException if the text isn't an encoded game
+     */
+    public static ChessGame fromText(String text) {
+        return decode(Base64.getUrlDecoder().decode(text));
+    }
+
+    private static int nibble(Bitboard bitboard, int square) {
+        return bitboard.pieceAt(square) + 1;
+    }
+
+    private static void put(Bitboard bitboard, int square, int nibble) {
+        if (nibble > 12) {
+            throw new IllegalArgumentException("Bad game encoding, piece " + nibble + " on square " + square);
+        }
+        if (nibble != 0) {
+            bitboard.put(square, nibble - 1);
+        }
+    }
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write(value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static final class Reader {
+        private final byte[] bytes;
+        private int position;
+
+        Reader(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        int next() {
+            if (position == bytes.length) {
+                throw new IllegalArgumentException("Bad game encoding, ends after " + position + " bytes");
+            }
+            return bytes[position++] & 0xFF;
+        }
+
+        int remaining() {
+            return bytes.length - position;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = next();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("Bad game encoding, varint too long");
+        }
+    }
+}
@@ -0,0 +1,27 @@
+package chess;
+
+/**
+ * The state of a game for the team whose turn it is, as worked out by {@link ChessGame#evaluate()}
+ */
+public enum GameOutcome {
+    /** The team to move has legal moves and isn't in check */
+    ONGOING,
+    /** The team to move is in check but can get out of it */
+    CHECK,
+    /** The team to move is in check with no legal moves, the other team wins */
+    CHECKMATE,
+    /** The team to move has no legal moves but isn't in check, a draw */
+    STALEMATE,
+    /** The same position has come up three times, a draw */
+    DRAW_BY_REPETITION,
+    /** Fifty moves each without a capture or pawn move, a draw */
+    DRAW_BY_FIFTY_MOVE_RULE;
+
+    public boolean isGameOver() {
+        return this != ONGOING && this != CHECK;
+    }
+
+    public boolean isDraw() {
+        return this == STALEMATE || this == DRAW_BY_REPETITION || this == DRAW_BY_FIFTY_MOVE_RULE;
+    }
+}
@@ -0,0 +1,70 @@
+package chess;
+
+/**
+ * Helpers for moves packed into a single {@code int}, used by the move generator so it never has to
+ * allocate {@link ChessMove} or {@link ChessPosition} objects.
+ * <p>
+ * Layout: bits 0-5 start square, 6-11 end square, 12-14 promotion piece ({@code PieceType.ordinal() + 1},
+ * 0 for none) and bits 15 and up hold flags describing the move.
+ */
+public final class Move {
+    public static final int CAPTURE = 1 << 15;
+    public static final int DOUBLE_PUSH = 1 << 16;
+    public static final int CASTLE = 1 << 17;
+    public static final int EN_PASSANT = 1 << 18;
+
+    //start, end and promotion, which is everything a ChessMove knows about
+    private static final int IDENTITY_MASK = 0x7FFF;
+    private static final ChessPiece.PieceType[] TYPES = ChessPiece.PieceType.values();
+
+    private Move() {
+
+    }
+
+    /**
+     * @param promotion the promotion piece type ordinal, or -1 for none
+     */
+    public static int encode(int from, int to, int promotion, int flags) {
+        return from | (to << 6) | ((promotion + 1) << 12) | flags;
+    }
+
+    public static int encode(ChessMove move) {
+        ChessPiece.PieceType promotion = move.getPromotionPiece();
+        return encode(Bitboard.square(move.getStartPosition()), Bitboard.square(move.getEndPosition()),
+                promotion == null ? -1 : promotion.ordinal(), 0);
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    /**
+     * @return the promotion piece type ordinal, or -1 if the move is not a promotion
+     */
+    public static int promotion(int move) {
+        return ((move >>> 12) & 0x7) - 1;
+    }
+
+    public static boolean is(int move, int flag) {
+        return (move & flag) != 0;
+    }
+
+    /**
+     * @return true if both moves have the same start, end and promotion, ignoring flags
+     */
+    public static boolean sameMove(int a, int b) {
+        return ((a ^ b) & IDENTITY_MASK) == 0;
+    }
+
+    public static ChessMove toChessMove(int move) {
+        int promotion = promotion(move);
+        return new ChessMove(
+                ChessPosition.of(Bitboard.row(from(move)), Bitboard.column(from(move))),
+                ChessPosition.of(Bitboard.row(to(move)), Bitboard.column(to(move))),
+                promotion < 0 ? null : TYPES[promotion]);
+    }
+}
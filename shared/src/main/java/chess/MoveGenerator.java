@@ -0,0 +1,211 @@
+package chess;
+
+/**
+ * Generates moves as packed ints (see {@link Move}) into a buffer owned by the caller.
+ * <p>
+ * Every method takes the buffer and the number of moves already in it, appends its moves and returns the
+ * new count, so callers can reuse one buffer for a whole search. Moves are pseudo-legal: they follow how the
+ * pieces move but may leave the mover's own king in check.
+ */
+public final class MoveGenerator {
+    /** No legal chess position has more than 218 moves, so this always fits a full team's moves */
+    public static final int MAX_MOVES = 256;
+    /** A queen in the middle of an open board has 27 moves, the most any single piece can have */
+    public static final int MAX_PIECE_MOVES = 28;
+
+    private static final int QUEEN = ChessPiece.PieceType.QUEEN.ordinal();
+    private static final int ROOK = ChessPiece.PieceType.ROOK.ordinal();
+    private static final int BISHOP = ChessPiece.PieceType.BISHOP.ordinal();
+    private static final int KNIGHT = ChessPiece.PieceType.KNIGHT.ordinal();
+    private static final int PAWN = ChessPiece.PieceType.PAWN.ordinal();
+    private static final int[] PROMOTIONS = {QUEEN, ROOK, BISHOP, KNIGHT};
+    private static final ChessGame.TeamColor[] TEAMS = ChessGame.TeamColor.values();
+
+    private static final int KING_HOME_WHITE = Bitboard.square(1, 5);
+    private static final int KING_HOME_BLACK = Bitboard.square(8, 5);
+
+    private static final long RANK_1 = 0xFFL;
+    private static final long RANK_8 = 0xFFL << 56;
+
+    private MoveGenerator() {
+
+    }
+
+    /**
+     * Appends the moves of whatever piece stands on {@code square}, including castling and en passant,
+     * which depend on the position's history as well as where the pieces are
+     */
+    public static int pieceMoves(Bitboard board, int square, int[] buffer, int count) {
+        int pieceIndex = board.pieceAt(square);
+        if (pieceIndex == Bitboard.NO_PIECE) {
+            return count;
+        }
+        int team = Bitboard.team(pieceIndex);
+        int type = Bitboard.type(pieceIndex);
+        if (type == PAWN) {
+            count = enPassantMoves(board, square, team, buffer, count);
+            return pawnMoves(board, square, team, buffer, count);
+        } else if (type == KNIGHT) {
+            return knightMoves(board, square, team, buffer, count);
+        } else if (type == BISHOP) {
+            return bishopMoves(board, square, team, buffer, count);
+        } else if (type == ROOK) {
+            return rookMoves(board, square, team, buffer, count);
+        } else if (type == QUEEN) {
+            return queenMoves(board, square, team, buffer, count);
+        }
+        count = castlingMoves(board, square, team, buffer, count);
+        return kingMoves(board, square, team, buffer, count);
+    }
+
+    /**
+     * Appends the moves of every piece on the given team
+     */
+    public static int teamMoves(Bitboard board, ChessGame.TeamColor team, int[] buffer, int count) {
+        for (long pieces = board.teamPieces(team); pieces != 0; pieces &= pieces - 1) {
+            count = pieceMoves(board, Long.numberOfTrailingZeros(pieces), buffer, count);
+        }
+        return count;
+    }
+
+    /**
+     * Removes the moves in {@code buffer[start, count)} that leave the mover's king in check, keeping the
+     * order of the rest. The board is used to try each move and is left unchanged.
+     *
+     * @return the new count
+     */
+    public static int retainLegal(Bitboard board, ChessGame.TeamColor team, int[] buffer, int start, int count) {
+        int kept = start;
+        for (int i = start; i < count; i++) {
+            if (isLegal(board, team, buffer[i])) {
+                buffer[kept++] = buffer[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * @return true if making the move does not leave the team's king in check
+     */
+    public static boolean isLegal(Bitboard board, ChessGame.TeamColor team, int move) {
+        long undo = board.makeMove(move);
+        boolean legal = !board.isInCheck(team);
+        board.unmakeMove(undo);
+        return legal;
+    }
+
+    /*
+     * The per-piece methods below take the team as 0 for white and 1 for black, matching
+     * TeamColor.ordinal(), so the inner loops don't have to look up enum values.
+     */
+    public static int kingMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        return addTargets(board, square, team, Attacks.king(square), buffer, count);
+    }
+
+    public static int knightMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        return addTargets(board, square, team, Attacks.knight(square), buffer, count);
+    }
+
+    public static int bishopMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        return addTargets(board, square, team, Attacks.bishop(square, board.occupied()), buffer, count);
+    }
+
+    public static int rookMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        return addTargets(board, square, team, Attacks.rook(square, board.occupied()), buffer, count);
+    }
+
+    public static int queenMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        return addTargets(board, square, team, Attacks.queen(square, board.occupied()), buffer, count);
+    }
+
+    public static int pawnMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        boolean white = team == 0;
+        int forward = white ? 8 : -8;
+        int startRow = white ? 2 : 7;
+        long empty = ~board.occupied();
+
+        //Single move, and double move from the starting row if both squares are empty
+        int oneStep = square + forward;
+        if (oneStep >= 0 && oneStep < 64 && (empty & (1L << oneStep)) != 0) {
+            count = addPawnMove(square, oneStep, 0, buffer, count);
+            int twoSteps = oneStep + forward;
+            if (Bitboard.row(square) == startRow && (empty & (1L << twoSteps)) != 0) {
+                buffer[count++] = Move.encode(square, twoSteps, -1, Move.DOUBLE_PUSH);
+            }
+        }
+
+        //Diagonal captures
+        long captures = Attacks.pawn(team, square) & board.teamPieces(1 - team);
+        for (; captures != 0; captures &= captures - 1) {
+            count = addPawnMove(square, Long.numberOfTrailingZeros(captures), Move.CAPTURE, buffer, count);
+        }
+        return count;
+    }
+
+    /**
+     * Appends the castles open to the king on {@code square}. The king and rook must both be on their starting
+     * squares with the right still held, the squares between them empty, and the king can't castle out of,
+     * through or into check.
+     */
+    public static int castlingMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        int home = team == 0 ? KING_HOME_WHITE : KING_HOME_BLACK;
+        int rights = board.castlingRights() >>> (team * 2);
+        if (square != home || (rights & 3) == 0) {
+            return count;
+        }
+        ChessGame.TeamColor enemy = TEAMS[1 - team];
+        if (board.isAttacked(square, enemy)) {
+            return count;
+        }
+        long occupied = board.occupied();
+        long rooks = board.pieces(team * 6 + ROOK);
+        if ((rights & 1) != 0 && (rooks & (1L << (home + 3))) != 0
+                && (occupied & (3L << (home + 1))) == 0
+                && !board.isAttacked(home + 1, enemy) && !board.isAttacked(home + 2, enemy)) {
+            buffer[count++] = Move.encode(home, home + 2, -1, Move.CASTLE);
+        }
+        if ((rights & 2) != 0 && (rooks & (1L << (home - 4))) != 0
+                && (occupied & (7L << (home - 3))) == 0
+                && !board.isAttacked(home - 1, enemy) && !board.isAttacked(home - 2, enemy)) {
+            buffer[count++] = Move.encode(home, home - 2, -1, Move.CASTLE);
+        }
+        return count;
+    }
+
+    /**
+     * Appends the en passant capture for the pawn on {@code square}, if the enemy pawn beside it just
+     * moved two squares
+     */
+    public static int enPassantMoves(Bitboard board, int square, int team, int[] buffer, int count) {
+        int target = board.enPassantSquare();
+        //The skipped square is on the 6th row when white takes and the 3rd when black does
+        if (target < 0 || Bitboard.row(target) != (team == 0 ? 6 : 3)
+                || (Attacks.pawn(team, square) & (1L << target)) == 0) {
+            return count;
+        }
+        buffer[count++] = Move.encode(square, target, -1, Move.CAPTURE | Move.EN_PASSANT);
+        return count;
+    }
+
+    private static int addPawnMove(int from, int to, int flags, int[] buffer, int count) {
+        if (((RANK_1 | RANK_8) & (1L << to)) != 0) {
+            for (int promotion : PROMOTIONS) {
+                buffer[count++] = Move.encode(from, to, promotion, flags);
+            }
+        } else {
+            buffer[count++] = Move.encode(from, to, -1, flags);
+        }
+        return count;
+    }
+
+    //Adds a move to every target square that isn't held by the moving team
+    private static int addTargets(Bitboard board, int square, int team, long targets, int[] buffer, int count) {
+        long enemies = board.teamPieces(1 - team);
+        targets &= ~board.teamPieces(team);
+        for (; targets != 0; targets &= targets - 1) {
+            int to = Long.numberOfTrailingZeros(targets);
+            buffer[count++] = Move.encode(square, to, -1, (enemies & (1L << to)) != 0 ? Move.CAPTURE : 0);
+        }
+        return count;
+    }
+}
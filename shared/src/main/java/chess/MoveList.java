@@ -0,0 +1,61 @@
+package chess;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * A read-only list of packed moves that only builds a {@link ChessMove} when one is asked for.
+ */
+public final class MoveList extends AbstractList<ChessMove> implements RandomAccess {
+    private final int[] moves;
+    private final int size;
+
+    public MoveList(int[] moves, int size) {
+        this.moves = moves;
+        this.size = size;
+    }
+
+    @Override
+    public ChessMove get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return Move.toChessMove(moves[index]);
+    }
+
+    /**
+     * @return the packed form of the move at {@code index}
+     */
+    public int getEncoded(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return moves[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    //Compares packed ints instead of building a ChessMove for every entry
+    @Override
+    public boolean contains(Object o) {
+        return indexOf(o) >= 0;
+    }
+
+    @Override
+    public int indexOf(Object o) {
+        if (!(o instanceof ChessMove move) || move.getStartPosition() == null || move.getEndPosition() == null
+                || !Bitboard.isOnBoard(move.getStartPosition()) || !Bitboard.isOnBoard(move.getEndPosition())) {
+            return -1;
+        }
+        int encoded = Move.encode(move);
+        for (int i = 0; i < size; i++) {
+            if (Move.sameMove(moves[i], encoded)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,189 @@
+package chess;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Perft ("performance test") walks the move tree to a fixed depth and counts the leaf positions. The counts
+ * for well known positions are published, so any difference points at a move generator bug, and the time
+ * taken gives the generator's speed in nodes per second.
+ * <p>
+ * Run it with {@code java -cp shared/target/shared.jar chess.Perft [options]}:
+ * <pre>
+ *   (no arguments)           check every position in {@link #SUITE} against its published counts
+ *   --depth N                search to depth N (default 5) from the starting position or --fen
+ *   --fen "&lt;fen&gt;"           search from this position instead of the starting position
+ *   --divide                 print the count under each root move, for diffing against another engine
+ * </pre>
+ */
+public final class Perft {
+    /**
+     * A position with its published node counts, {@code nodes[i]} being the count at depth i + 1
+     */
+    public record Position(String name, String fen, long... nodes) {
+    }
+
+    /** Positions from the Chess Programming Wiki's perft results page, chosen to cover every special move */
+    public static final List<Position> SUITE = List.of(
+            new Position("start", Fen.START, 20, 400, 8_902, 197_281, 4_865_609),
+            new Position("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+                    48, 2_039, 97_862, 4_085_603),
+            new Position("position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1",
+                    14, 191, 2_812, 43_238, 674_624),
+            new Position("position 4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1",
+                    6, 264, 9_467, 422_333),
+            new Position("position 5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8",
+                    44, 1_486, 62_379, 2_103_487),
+            new Position("position 6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10",
+                    46, 2_079, 89_890, 3_894_594)
+    );
+
+    private static final ChessGame.TeamColor[] TEAMS = ChessGame.TeamColor.values();
+
+    private Perft() {
+
+    }
+
+    /**
+     * Counts the leaf positions {@code depth} moves below the game's current position. The game is not
+     * changed.
+     */
+    public static long perft(ChessGame game, int depth) {
+        Bitboard board = new Bitboard(game.getBoard().bitboard());
+        return perft(board, game.getTeamTurn().ordinal(), depth, new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES]);
+    }
+
+    /**
+     * Prints the leaf count below each legal move of the game's position, then the total
+     *
+     * @return the total leaf count
+     */
+    public static long divide(ChessGame game, int depth) {
+        Bitboard board = new Bitboard(game.getBoard().bitboard());
+        int team = game.getTeamTurn().ordinal();
+        int[][] buffers = new int[Math.max(depth, 1)][MoveGenerator.MAX_MOVES];
+        int[] moves = buffers[0];
+        int count = MoveGenerator.teamMoves(board, TEAMS[team], moves, 0);
+        count = MoveGenerator.retainLegal(board, TEAMS[team], moves, 0, count);
+
+        long total = 0;
+        for (int i = 0; i < count; i++) {
+            long nodes = 1;
+            if (depth > 1) {
+                long undo = board.makeMove(moves[i]);
+                nodes = perftFrom(board, 1 - team, depth - 1, buffers, 1);
+                board.unmakeMove(undo);
+            }
+            total += nodes;
+            System.out.println(moveName(moves[i]) + ": " + nodes);
+        }
+        System.out.println();
+        System.out.println("Moves: " + count);
+        System.out.println("Nodes: " + total);
+        return total;
+    }
+
+    private static long perft(Bitboard board, int team, int depth, int[][] buffers) {
+        if (depth == 0) {
+            return 1;
+        }
+        return perftFrom(board, team, depth, buffers, 0);
+    }
+
+    //Each ply gets its own row of buffers, so no level overwrites the moves of the level above it
+    private static long perftFrom(Bitboard board, int team, int depth, int[][] buffers, int ply) {
+        int[] moves = buffers[ply];
+        ChessGame.TeamColor mover = TEAMS[team];
+        int count = MoveGenerator.teamMoves(board, mover, moves, 0);
+
+        long nodes = 0;
+        for (int i = 0; i < count; i++) {
+            long undo = board.makeMove(moves[i]);
+            if (!board.isInCheck(mover)) {
+                //At the last ply a legal move is a leaf, there's no need to generate the moves after it
+                nodes += depth == 1 ? 1 : perftFrom(board, 1 - team, depth - 1, buffers, ply + 1);
+            }
+            board.unmakeMove(undo);
+        }
+        return nodes;
+    }
+
+    /**
+     * @return the move in long algebraic notation, e.g. {@code e2e4} or {@code e7e8q}
+     */
+    static String moveName(int move) {
+        StringBuilder name = new StringBuilder(5)
+                .append(squareName(Move.from(move)))
+                .append(squareName(Move.to(move)));
+        if (Move.promotion(move) >= 0) {
+            name.append("kqbnrp".charAt(Move.promotion(move)));
+        }
+        return name.toString();
+    }
+
+    private static String squareName(int square) {
+        return "" + (char) ('a' + Bitboard.column(square) - 1) + Bitboard.row(square);
+    }
+
+    public static void main(String[] args) {
+        String fen = null;
+        int depth = 5;
+        boolean divide = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--depth" -> depth = Integer.parseInt(args[++i]);
+                case "--fen" -> fen = args[++i];
+                case "--divide" -> divide = true;
+                default -> {
+                    System.err.println("Unknown option " + args[i]
+                            + ", usage: chess.Perft [--depth N] [--fen \"<fen>\"] [--divide]");
+                    System.exit(2);
+                }
+            }
+        }
+
+        if (args.length == 0) {
+            System.exit(runSuite() ? 0 : 1);
+        }
+
+        ChessGame game = Fen.parse(fen == null ? Fen.START : fen);
+        long start = System.nanoTime();
+        long nodes = divide ? divide(game, depth) : perft(game, depth);
+        long elapsed = System.nanoTime() - start;
+        if (!divide) {
+            System.out.println("Nodes: " + nodes);
+        }
+        System.out.println(speed(nodes, elapsed));
+    }
+
+    //Checks every suite position at every depth it has a count for, printing one line per result
+    private static boolean runSuite() {
+        boolean passed = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+        for (Position position : SUITE) {
+            ChessGame game = Fen.parse(position.fen());
+            for (int depth = 1; depth <= position.nodes().length; depth++) {
+                long expected = position.nodes()[depth - 1];
+                long start = System.nanoTime();
+                long nodes = perft(game, depth);
+                long elapsed = System.nanoTime() - start;
+                totalNodes += nodes;
+                totalTime += elapsed;
+
+                boolean ok = nodes == expected;
+                passed &= ok;
+                System.out.printf(Locale.ROOT, "%-12s depth %d: %,12d %s%n", position.name(), depth, nodes,
+                        ok ? "ok" : "FAILED, expected " + String.format(Locale.ROOT, "%,d", expected));
+            }
+        }
+        System.out.println(passed ? "All counts match" : "Some counts did not match");
+        System.out.println(speed(totalNodes, totalTime));
+        return passed;
+    }
+
+    private static String speed(long nodes, long nanos) {
+        double seconds = nanos / 1e9;
+        return String.format(Locale.ROOT, "Time: %.3fs, %,.0f nodes/sec", seconds, nodes / Math.max(seconds, 1e-9));
+    }
+}
@@ -0,0 +1,69 @@
+package chess;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing of positions.
+ * <p>
+ * A position's key is the XOR of one key per (piece, square) pair on the board, the keys for the
+ * castling rights and en passant column, plus {@link #SIDE} when black is to move. Because XOR undoes
+ * itself, moving a piece only changes two keys, so the board keeps its key up to date as it changes
+ * instead of rehashing all 64 squares.
+ * <p>
+ * The keys come from a fixed seed so every JVM (server and clients) computes the same key for the
+ * same position.
+ */
+public final class Zobrist {
+    private static final long SEED = 0x5EED_C0DE_240CL;
+    private static final long[][] PIECE_SQUARE = new long[12][64];
+    private static final long[] CASTLING = new long[16];
+    private static final long[] EN_PASSANT_COLUMN = new long[8];
+    public static final long SIDE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (long[] squares : PIECE_SQUARE) {
+            for (int square = 0; square < squares.length; square++) {
+                squares[square] = random.nextLong();
+            }
+        }
+        SIDE = random.nextLong();
+        //Each castling right gets a key and a set of rights hashes to the XOR of its members
+        long[] rightKeys = {random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()};
+        for (int rights = 0; rights < CASTLING.length; rights++) {
+            for (int bit = 0; bit < rightKeys.length; bit++) {
+                if ((rights & (1 << bit)) != 0) {
+                    CASTLING[rights] ^= rightKeys[bit];
+                }
+            }
+        }
+        for (int col = 0; col < EN_PASSANT_COLUMN.length; col++) {
+            EN_PASSANT_COLUMN[col] = random.nextLong();
+        }
+    }
+
+    private Zobrist() {
+
+    }
+
+    /**
+     * @return the key for a piece index (see {@link Bitboard#pieceIndex}) standing on a square
+     */
+    public static long piece(int pieceIndex, int square) {
+        return PIECE_SQUARE[pieceIndex][square];
+    }
+
+    /**
+     * @return the key for a castling rights mask
+     */
+    public static long castling(int rights) {
+        return CASTLING[rights];
+    }
+
+    /**
+     * @return the key for an en passant square, or 0 if there is none (-1)
+     */
+    public static long enPassant(int square) {
+        return square < 0 ? 0L : EN_PASSANT_COLUMN[square & 7];
+    }
+}
@@ -15,6 +15,10 @@ public class ResponseException extends Exception {
         this.statusCode = statusCode;
     }
 
+    public int statusCode() {
+        return statusCode;
+    }
+
     public String toJson() {
         return new Gson().toJson(Map.of("message", getMessage(), "status", statusCode));
     }
@@ -0,0 +1,12 @@
+package model;
+
+/**
+ * What the game list shows of a game, everything but the board
+ */
+public record GameSummary(
+        int gameID,
+        String whiteUsername,
+        String blackUsername,
+        String gameName,
+        GameStatus status
+) {}
@@ -0,0 +1,38 @@
+package model;
+
+/**
+ * Filters and paging for the game list, from the query string of GET /game. Every field is optional, with
+ * none set the list has every game.
+ *
+ * @param limit    most games to return, the result's nextCursor picks up after the last one
+ * @param after    only games with a higher ID, the nextCursor of the previous page
+ * @param status   only games with this status
+ * @param openSeat only games with (true) or without (false) a free seat
+ * @param player   only games this user plays in
+ */
+public record ListGamesRequest(
+        Integer limit,
+        Integer after,
+        GameStatus status,
+        Boolean openSeat,
+        String player
+) {
+    public static final ListGamesRequest ALL = new ListGamesRequest(null, null, null, null, null);
+
+    /**
+     * @return whether the game passes the filters and comes after the cursor, ignoring the limit
+     */
+    public boolean matches(GameSummary game) {
+        if (after != null && game.gameID() <= after) {
+            return false;
+        }
+        if (status != null && game.status() != status) {
+            return false;
+        }
+        boolean hasOpenSeat = game.whiteUsername() == null || game.blackUsername() == null;
+        if (openSeat != null && hasOpenSeat != openSeat) {
+            return false;
+        }
+        return player == null || player.equals(game.whiteUsername()) || player.equals(game.blackUsername());
+    }
+}
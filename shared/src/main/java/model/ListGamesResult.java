@@ -2,6 +2,10 @@ package model;
 
 import java.util.List;
 
+/**
+ * @param nextCursor the {@code after} value for the next page, or null if this is the last one
+ */
 public record ListGamesResult(
-        List<GameData> games
-) {}
\ No newline at end of file
+        List<GameSummary> games,
+        Integer nextCursor
+) {}
@@ -5,13 +5,25 @@ import chess.ChessGame;
 public class ConnectCommand extends UserGameCommand {
 
     private final ChessGame.TeamColor playerColor;
+    //Whether the client wants each move instead of the whole game after every move. Clients that
+    //leave it out get LOAD_GAME as before
+    private final boolean moveDeltas;
 
     public ConnectCommand(String authToken, Integer gameID, ChessGame.TeamColor playerColor) {
+        this(authToken, gameID, playerColor, false);
+    }
+
+    public ConnectCommand(String authToken, Integer gameID, ChessGame.TeamColor playerColor, boolean moveDeltas) {
         super(CommandType.CONNECT, authToken, gameID);
         this.playerColor = playerColor;
+        this.moveDeltas = moveDeltas;
     }
 
     public ChessGame.TeamColor getPlayerColor() {
         return playerColor;
     }
-}
\ No newline at end of file
+
+    public boolean wantsMoveDeltas() {
+        return moveDeltas;
+    }
+}
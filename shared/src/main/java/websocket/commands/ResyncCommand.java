@@ -0,0 +1,7 @@
+package websocket.commands;
+
+public class ResyncCommand extends UserGameCommand {
+    public ResyncCommand(String authToken, Integer gameID) {
+        super(CommandType.RESYNC, authToken, gameID);
+    }
+}
@@ -16,9 +16,13 @@ public class UserGameCommand { // Changed from 'record' to 'class'
         CONNECT,
         MAKE_MOVE,
         LEAVE,
-        RESIGN
+        RESIGN,
+        //Asks for the full game again, for a client whose copy no longer matches the server's
+        RESYNC
     }
 
+    private static final Gson GSON = new Gson();
+
     private final CommandType commandType;
     private final String authToken;
     private final Integer gameID;
@@ -61,6 +65,6 @@ public class UserGameCommand { // Changed from 'record' to 'class'
 
     @Override
     public String toString() {
-        return new Gson().toJson(this);
+        return GSON.toJson(this);
     }
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+package websocket.messages;
+
+import chess.ChessMove;
+
+/**
+ * A move made in the game, sent instead of the whole game to clients that asked for moves on connect.
+ * The client makes the move on its own copy of the game, then checks it against seq and positionHash
+ */
+public class MoveAppliedMessage extends ServerMessage {
+    private final ChessMove move;
+    //The game's move count once this move is made, so a client can tell when it missed one
+    private final int seq;
+    private final long positionHash;
+
+    public MoveAppliedMessage(ChessMove move, int seq, long positionHash) {
+        super(ServerMessageType.MOVE_APPLIED);
+        this.move = move;
+        this.seq = seq;
+        this.positionHash = positionHash;
+    }
+
+    public ChessMove getMove() {
+        return move;
+    }
+
+    public int getSeq() {
+        return seq;
+    }
+
+    /**
+     * @return the game's position key after the move, see ChessGame.getPositionKey
+     */
+    public long getPositionHash() {
+        return positionHash;
+    }
+}
@@ -11,13 +11,17 @@ import java.util.Objects;
  * methods.
  */
 public class ServerMessage {
+    //Gson is thread safe, and building one for every message costs more than encoding the message
+    private static final Gson GSON = new Gson();
+
     ServerMessageType serverMessageType;
     String message;
 
     public enum ServerMessageType {
         LOAD_GAME,
         ERROR,
-        NOTIFICATION
+        NOTIFICATION,
+        MOVE_APPLIED
     }
 
     public ServerMessage(ServerMessageType type, String message) {
@@ -55,6 +59,6 @@ public class ServerMessage {
     }
 
     public String toString() {
-        return new Gson().toJson(this);
+        return GSON.toJson(this);
     }
 }
@@ -0,0 +1,39 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BitboardTest {
+    @Test
+    void testEqualBoardsHashTheSame() {
+        ChessBoard castled = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w KQkq - 0 1").getBoard();
+        ChessBoard moved = Fen.parse("r3k2r/8/8/8/8/8/8/R3K2R w - - 0 1").getBoard();
+
+        assertEquals(castled, moved);
+        assertEquals(castled.hashCode(), moved.hashCode());
+    }
+
+    @Test
+    void testEnPassantDoesNotChangeHash() {
+        ChessBoard passable = Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 w - d6 0 1").getBoard();
+        ChessBoard blocked = Fen.parse("4k3/8/8/3pP3/8/8/8/4K3 w - - 0 1").getBoard();
+
+        assertEquals(passable, blocked);
+        assertEquals(passable.hashCode(), blocked.hashCode());
+    }
+
+    @Test
+    void testKingOffItsHomeSquareDoesNotCastle() {
+        Bitboard board = Fen.parse("4k3/8/8/8/3K2R1/8/8/8 w - - 0 1").getBoard().bitboard();
+        int rook = board.pieceAt(Bitboard.square(4, 7));
+
+        long undo = board.makeMove(Bitboard.square(4, 4), Bitboard.square(4, 6), Bitboard.NO_PIECE);
+
+        assertEquals(rook, board.pieceAt(Bitboard.square(4, 7)));
+        assertEquals(Bitboard.NO_PIECE, board.pieceAt(Bitboard.square(4, 5)));
+        board.unmakeMove(undo);
+        assertEquals(rook, board.pieceAt(Bitboard.square(4, 7)));
+        assertEquals(Bitboard.NO_PIECE, board.pieceAt(Bitboard.square(4, 6)));
+    }
+}
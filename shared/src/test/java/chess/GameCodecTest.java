@@ -0,0 +1,171 @@
+package chess;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import org.junit.jupiter.api.*;
+import websocket.messages.LoadGameMessage;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameCodecTest {
+    private static final String KIWIPETE = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+    private static final ChessMove[] KNIGHT_DANCE = {
+            new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+            new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+            new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+            new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null),
+    };
+
+    private final Gson gson = new Gson();
+
+    @Test
+    void testStartPositionIsSmall() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+
+        assertEquals(38, bytes.length);
+        assertEquals(Fen.START, Fen.format(GameCodec.decode(bytes)));
+    }
+
+    @Test
+    void testRoundTripKeepsPositionState() {
+        String fen = "r3k2r/8/8/3pP3/8/8/8/R3K2R w Kq d6 7 1";
+        ChessGame decoded = GameCodec.decode(GameCodec.encode(Fen.parse(fen)));
+
+        assertEquals(fen, Fen.format(decoded));
+        assertEquals(Fen.parse(fen).getPositionKey(), decoded.getPositionKey());
+        assertEquals(Fen.format(Fen.parse(KIWIPETE)), Fen.format(GameCodec.fromText(GameCodec.toText(Fen.parse(KIWIPETE)))));
+    }
+
+    @Test
+    void testRoundTripKeepsMoveCountAndRepetitions() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        for (ChessMove move : KNIGHT_DANCE) {
+            game.makeMove(move);
+        }
+        for (int i = 0; i < 3; i++) {
+            game.makeMove(KNIGHT_DANCE[i]);
+        }
+
+        ChessGame decoded = GameCodec.decode(GameCodec.encode(game));
+        assertEquals(7, decoded.getMoveCount());
+        assertEquals(GameOutcome.ONGOING, decoded.evaluate());
+        //The start position comes up for the third time, which the decoded game has to remember
+        decoded.makeMove(KNIGHT_DANCE[3]);
+        assertEquals(GameOutcome.DRAW_BY_REPETITION, decoded.evaluate());
+    }
+
+    @Test
+    void testBadBytesAreRejected() {
+        byte[] bytes = GameCodec.encode(new ChessGame());
+
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(new byte[]{9}));
+        assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(Arrays.copyOf(bytes, bytes.length - 1)));
+    }
+
+    //A new game's version, board, flags and en passant bytes, then the halfmove clock, move count and history
+    //as the given bytes
+    private static byte[] newGameWith(int... counts) {
+        byte[] bytes = Arrays.copyOf(GameCodec.encode(new ChessGame()), 35 + counts.length);
+        for (int i = 0; i < counts.length; i++) {
+            bytes[35 + i] = (byte) counts[i];
+        }
+        return bytes;
+    }
+
+    @Test
+    void testHistoryCountIsBoundedByInput() {
+        assertThrows(IllegalArgumentException.class, () -> GameCodec.decode(newGameWith(0, 0, 0xFF, 0xFF, 0xFF, 0x7F)));
+        assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(newGameWith(0, 0, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F)));
+    }
+
+    @Test
+    void testNegativeCountsAreRejected() {
+        assertEquals(Fen.START, Fen.format(GameCodec.decode(newGameWith(0, 0, 0))));
+        //-1 as a varint
+        assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(newGameWith(0xFF, 0xFF, 0xFF, 0xFF, 0x0F, 0, 0)));
+        assertThrows(IllegalArgumentException.class,
+                () -> GameCodec.decode(newGameWith(0, 0xFF, 0xFF, 0xFF, 0xFF, 0x0F, 0)));
+    }
+
+    @Test
+    void testGsonWritesCompactString() {
+        LoadGameMessage message = new LoadGameMessage(Fen.parse(KIWIPETE));
+        String json = gson.toJson(message);
+
+        JsonObject object = gson.fromJson(json, JsonObject.class);
+        assertTrue(object.get("game").isJsonPrimitive());
+        assertEquals(KIWIPETE, Fen.format(gson.fromJson(json, LoadGameMessage.class).getGame()));
+    }
+
+    @Test
+    void testGsonReadsFen() {
+        ChessGame game = gson.fromJson("\"" + KIWIPETE + "\"", ChessGame.class);
+
+        assertEquals(KIWIPETE, Fen.format(game));
+    }
+
+    //A game after 1. Nf3 as the original ChessGame was written by Gson, before games had an adapter
+    private static final String LEGACY_GAME = """
+            {"currentTurn":"BLACK","board":{"board":[\
+            [{"pieceColor":"WHITE","type":"ROOK"},{"pieceColor":"WHITE","type":"KNIGHT"},\
+            {"pieceColor":"WHITE","type":"BISHOP"},{"pieceColor":"WHITE","type":"QUEEN"},\
+            {"pieceColor":"WHITE","type":"KING"},{"pieceColor":"WHITE","type":"BISHOP"},null,\
+            {"pieceColor":"WHITE","type":"ROOK"}],\
+            [{"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},\
+            {"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},\
+            {"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"},\
+            {"pieceColor":"WHITE","type":"PAWN"},{"pieceColor":"WHITE","type":"PAWN"}],\
+            [null,null,null,null,null,{"pieceColor":"WHITE","type":"KNIGHT"},null,null],\
+            [null,null,null,null,null,null,null,null],\
+            [null,null,null,null,null,null,null,null],\
+            [null,null,null,null,null,null,null,null],\
+            [{"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},\
+            {"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},\
+            {"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"},\
+            {"pieceColor":"BLACK","type":"PAWN"},{"pieceColor":"BLACK","type":"PAWN"}],\
+            [{"pieceColor":"BLACK","type":"ROOK"},{"pieceColor":"BLACK","type":"KNIGHT"},\
+            {"pieceColor":"BLACK","type":"BISHOP"},{"pieceColor":"BLACK","type":"QUEEN"},\
+            {"pieceColor":"BLACK","type":"KING"},{"pieceColor":"BLACK","type":"BISHOP"},\
+            {"pieceColor":"BLACK","type":"KNIGHT"},{"pieceColor":"BLACK","type":"ROOK"}]]}}""";
+
+    @Test
+    void testGsonReadsLegacyObject() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        game.makeMove(KNIGHT_DANCE[0]);
+
+        ChessGame read = gson.fromJson(LEGACY_GAME, ChessGame.class);
+
+        assertTrue(Fen.format(read).startsWith("rnbqkbnr/pppppppp/8/8/8/5N2/PPPPPPPP/RNBQKB1R b KQkq - "));
+        assertEquals(game.getPositionKey(), read.getPositionKey());
+        //The game goes on from where it was
+        read.makeMove(KNIGHT_DANCE[1]);
+        assertEquals(ChessGame.TeamColor.WHITE, read.getTeamTurn());
+    }
+
+    @Test
+    void testGsonReadsLegacyCastlingRights() {
+        //Only the white king and its king side rook are still on their starting squares
+        String legacy = "{\"currentTurn\":\"WHITE\",\"board\":{\"board\":["
+                + "[null,null,null,null,{\"pieceColor\":\"WHITE\",\"type\":\"KING\"},null,null,"
+                + "{\"pieceColor\":\"WHITE\",\"type\":\"ROOK\"}],"
+                + "[null,null,null,null,null,null,null,null],".repeat(6)
+                + "[null,null,null,{\"pieceColor\":\"BLACK\",\"type\":\"KING\"},null,null,null,"
+                + "{\"pieceColor\":\"BLACK\",\"type\":\"ROOK\"}]]}}";
+
+        String[] fen = Fen.format(gson.fromJson(legacy, ChessGame.class)).split(" ");
+
+        assertEquals("3k3r/8/8/8/8/8/8/4K2R", fen[0]);
+        assertEquals("K", fen[2]);
+    }
+
+    @Test
+    void testGsonRejectsGarbage() {
+        assertThrows(JsonParseException.class, () -> gson.fromJson("\"not a game\"", ChessGame.class));
+    }
+}
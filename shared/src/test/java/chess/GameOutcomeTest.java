@@ -0,0 +1,65 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameOutcomeTest {
+
+    @Test
+    void testEvaluateOngoing() {
+        assertEquals(GameOutcome.ONGOING, new ChessGame().evaluate());
+        assertFalse(new ChessGame().isGameOver());
+    }
+
+    @Test
+    void testEvaluateCheck() {
+        ChessGame game = Fen.parse("4k3/8/8/8/8/8/4r3/4K3 w - - 0 1");
+        assertEquals(GameOutcome.CHECK, game.evaluate());
+        assertFalse(game.isGameOver());
+    }
+
+    @Test
+    void testEvaluateCheckmate() {
+        ChessGame game = Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3r2K1 w - - 0 1");
+        assertEquals(GameOutcome.CHECKMATE, game.evaluate());
+        assertTrue(game.isInCheckmate(ChessGame.TeamColor.WHITE));
+        assertTrue(game.isGameOver());
+    }
+
+    @Test
+    void testEvaluateStalemate() {
+        ChessGame game = Fen.parse("7k/5Q2/6K1/8/8/8/8/8 b - - 0 1");
+        assertEquals(GameOutcome.STALEMATE, game.evaluate());
+        assertTrue(game.evaluate().isDraw());
+    }
+
+    @Test
+    void testEvaluateRepetition() throws InvalidMoveException {
+        ChessGame game = new ChessGame();
+        ChessMove[] knightDance = {
+                new ChessMove(new ChessPosition(1, 7), new ChessPosition(3, 6), null),
+                new ChessMove(new ChessPosition(8, 7), new ChessPosition(6, 6), null),
+                new ChessMove(new ChessPosition(3, 6), new ChessPosition(1, 7), null),
+                new ChessMove(new ChessPosition(6, 6), new ChessPosition(8, 7), null),
+        };
+        for (int round = 0; round < 2; round++) {
+            assertEquals(GameOutcome.ONGOING, game.evaluate());
+            for (ChessMove move : knightDance) {
+                game.makeMove(move);
+            }
+        }
+        assertEquals(GameOutcome.DRAW_BY_REPETITION, game.evaluate());
+    }
+
+    @Test
+    void testEvaluateFiftyMoveRule() {
+        assertEquals(GameOutcome.DRAW_BY_FIFTY_MOVE_RULE, Fen.parse("4k3/8/8/8/8/8/8/R3K3 w - - 100 80").evaluate());
+        assertEquals(GameOutcome.ONGOING, Fen.parse("4k3/8/8/8/8/8/8/R3K3 w - - 99 80").evaluate());
+    }
+
+    @Test
+    void testMateTakesPriorityOverFiftyMoveRule() {
+        assertEquals(GameOutcome.CHECKMATE, Fen.parse("6k1/5ppp/8/8/8/8/5PPP/3r2K1 w - - 100 80").evaluate());
+    }
+}
@@ -0,0 +1,59 @@
+package chess;
+
+import org.junit.jupiter.api.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PerftTest {
+    //Deeper counts take several seconds each, run chess.Perft with no arguments to check the whole suite
+    private static final long MAX_TEST_NODES = 1_000_000;
+
+    @Test
+    void testSuitePositionsMatchPublishedCounts() {
+        for (Perft.Position position : Perft.SUITE) {
+            ChessGame game = Fen.parse(position.fen());
+            for (int depth = 1; depth <= position.nodes().length; depth++) {
+                long expected = position.nodes()[depth - 1];
+                if (expected > MAX_TEST_NODES) {
+                    break;
+                }
+                assertEquals(expected, Perft.perft(game, depth), position.name() + " at depth " + depth);
+            }
+        }
+    }
+
+    @Test
+    void testPerftLeavesGameUnchanged() {
+        ChessGame game = Fen.parse(Perft.SUITE.get(1).fen());
+        long key = game.getPositionKey();
+
+        Perft.perft(game, 3);
+
+        assertEquals(key, game.getPositionKey());
+        assertEquals(Perft.SUITE.get(1).fen(), Fen.format(game));
+    }
+
+    @Test
+    void testFenRoundTrip() {
+        for (Perft.Position position : Perft.SUITE) {
+            ChessGame game = Fen.parse(position.fen());
+            //Full moves aren't tracked, so only compare up to the halfmove clock
+            String expected = position.fen().substring(0, position.fen().lastIndexOf(' '));
+            assertTrue(Fen.format(game).startsWith(expected + " "), position.name());
+        }
+    }
+
+    @Test
+    void testStartFenMatchesNewGame() {
+        assertEquals(new ChessGame().getPositionKey(), Fen.parse(Fen.START).getPositionKey());
+        assertEquals(Fen.START, Fen.format(new ChessGame()));
+    }
+
+    @Test
+    void testParseRejectsBadFen() {
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8/8 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("9/8/8/8/8/8/8/8 w - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8/8/8/8/8/8 x - - 0 1"));
+        assertThrows(IllegalArgumentException.class, () -> Fen.parse("8/8/8/8/8/8/8/8 w - - -1 1"));
+    }
+}